@@ -4,6 +4,7 @@ import _1_basic_agent.CvGenerator;
 import dev.langchain4j.agentic.AgenticServices;
 import dev.langchain4j.agentic.UntypedAgent;
 import dev.langchain4j.model.chat.ChatModel;
+import util.BatchRunner;
 import util.ChatModelProvider;
 import util.StringLoader;
 import util.log.CustomLogging;
@@ -11,6 +12,7 @@ import util.log.LogLevels;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public class _2a_Sequential_Agent_Example {
 
@@ -121,6 +123,28 @@ public class _2a_Sequential_Agent_Example {
         // when you'd use job_description_fullstack.txt as input
         // 当输入改为 job_description_fullstack.txt 时
 
+        ////////////////// BATCH EXAMPLE //////////////////////
+        ////////////////// 批处理示例 //////////////////////
+
+        // 7. Run the same workflow for many inputs at once, here one tailored CV per job description
+        // 7. 同时为多个输入运行同一个工作流，这里为每个职位描述生成一份定制简历
+        // The agents are shared, every invocation gets its own AgenticScope. At most 4 workflows run at the same time,
+        // 智能体是共享的，每次调用都有自己的 AgenticScope。最多同时运行 4 个工作流，
+        // results arrive as they complete, and a failing input does not stop the others.
+        // 结果在完成时依次到达，某个输入失败也不会影响其他输入。
+        Stream<Map<String, Object>> batch = Stream.of(
+                        StringLoader.loadFromResource("/documents/job_description_backend.txt"),
+                        StringLoader.loadFromResource("/documents/job_description_fullstack.txt"))
+                .map(jobDescription -> Map.of(
+                        "lifeStory", lifeStory,
+                        "instructions", "Adapt the CV to the job description below." + jobDescription));
+        BatchRunner.of(tailoredCvGenerator::invoke, 4)
+                .invokeAll(batch)
+                .forEach(result -> {
+                    System.out.println("=== TAILORED CV #" + result.index() + " (" + result.latency().toMillis() + " ms) ===");
+                    System.out.println(result.isSuccess() ? result.output() : "FAILED: " + result.error());
+                });
+
         // In example 2b we'll build the same sequential agent but with typed output,
         // 在示例 2b 中，我们将构建带类型输出的相同顺序智能体
         // and we'll inspect the AgenticScope
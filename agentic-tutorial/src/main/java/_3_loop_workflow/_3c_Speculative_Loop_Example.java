@@ -0,0 +1,92 @@
+package _3_loop_workflow;
+
+import dev.langchain4j.agentic.AgenticServices;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.output.TokenUsage;
+import domain.CvReview;
+import util.ChatModelProvider;
+import util.SpeculativeLoop;
+import util.StringLoader;
+import util.TokenUsageTracker;
+import util.log.CustomLogging;
+import util.log.LogLevels;
+
+import java.io.IOException;
+import java.time.Duration;
+
+public class _3c_Speculative_Loop_Example {
+
+    static {
+        CustomLogging.setLevel(LogLevels.PRETTY, 150);  // control how much you see from the model calls
+        // 控制从模型调用中看到的日志量
+    }
+
+    /**
+     * The loop of _3b (review, then tailor, until the score is good enough) spends review + tailor per iteration.
+     * _3b 中的循环（先评审、再定制，直到分数足够好）每次迭代耗时为 评审 + 定制。
+     * SpeculativeLoop can start the next tailoring pass while the reviewer is still scoring, and cancel it
+     * SpeculativeLoop 可以在评审者仍在打分时就开始下一轮定制，并在满足退出条件时取消它，
+     * when the exit condition is met, so an iteration takes max(review, tailor) instead.
+     * 这样每次迭代的耗时就变成 max(评审, 定制)。
+     * The price is quality: the speculative pass tailors CV n with the review of CV n-1, which CV n was already built from.
+     * 代价是质量：推测性的定制使用第 n-1 份简历的评审来定制第 n 份简历，而第 n 份简历本来就是根据它生成的。
+     * This example runs the same loop both ways and prints score, iterations, latency and tokens, so you can compare.
+     * 本示例以两种方式运行同一个循环，并打印分数、迭代次数、耗时和 token 用量，便于比较。
+     */
+
+    private static final ChatModel CHAT_MODEL = TokenUsageTracker.tracking(ChatModelProvider.createChatModel()); // so the loop can report tokens per iteration
+    // 以便循环按迭代统计 token 用量
+
+    public static void main(String[] args) throws IOException {
+
+        // 1. Create the sub-agents of _3b; the loop calls them directly, so no output keys are needed
+        // 1. 创建 _3b 中的子智能体；循环会直接调用它们，因此不需要输出键
+        CvReviewer cvReviewer = AgenticServices.agentBuilder(CvReviewer.class)
+                .chatModel(CHAT_MODEL)
+                .build();
+        ScoredCvTailor scoredCvTailor = AgenticServices.agentBuilder(ScoredCvTailor.class)
+                .chatModel(CHAT_MODEL)
+                .build();
+
+        String masterCv = StringLoader.loadFromResource("/documents/master_cv.txt");
+        String fluteJobDescription = "We are looking for a passionate flute teacher to join our music academy.";
+
+        // 2. Run the loop one step after the other (like loopBuilder()), then speculatively
+        // 2. 先依次执行各步骤运行循环（与 loopBuilder() 相同），再以推测方式运行
+        for (boolean speculative : new boolean[]{false, true}) {
+            SpeculativeLoop<String, CvReview> reviewedCvGenerator = SpeculativeLoop.<String, CvReview>builder()
+                    .reviewer(cv -> cvReviewer.reviewCv(cv, fluteJobDescription))
+                    .refiner((cv, review) -> scoredCvTailor.tailorCv(cv, review))
+                    .exitCondition(review -> review.score >= 0.8)
+                    .maxIterations(3)
+                    .speculative(speculative)
+                    .build();
+
+            SpeculativeLoop.Result<String, CvReview> cvAndReview = reviewedCvGenerator.run(masterCv);
+
+            // 3. The result holds the last CV, the review of exactly that CV, and the history of all iterations
+            // 3. 结果包含最后一份简历、恰好针对这份简历的评审，以及所有迭代的历史记录
+            Duration latency = Duration.ZERO;
+            TokenUsage tokenUsage = new TokenUsage(0, 0);
+            System.out.println("=== " + (speculative ? "SPECULATIVE" : "SEQUENTIAL") + " LOOP ===");
+            for (SpeculativeLoop.Iteration<String, CvReview> iteration : cvAndReview.history()) {
+                System.out.println("Iteration " + iteration.number() + ": score=" + iteration.review().score
+                        + ", latency=" + iteration.latency().toMillis() + " ms"
+                        + ", tokens=" + iteration.tokenUsage().totalTokenCount());
+                latency = latency.plus(iteration.latency());
+                tokenUsage = TokenUsage.sum(tokenUsage, iteration.tokenUsage());
+            }
+            System.out.println("CV" + (cvAndReview.exitConditionMet() ? " passes" : " does not pass")
+                    + " with score=" + cvAndReview.review().score
+                    + " after " + cvAndReview.history().size() + " iterations"
+                    + ", " + latency.toMillis() + " ms, " + tokenUsage.totalTokenCount() + " tokens"
+                    + " (" + cvAndReview.discardedTokenUsage().totalTokenCount() + " spent on "
+                    + cvAndReview.discardedRefinements() + " discarded tailoring passes)");
+        }
+
+        // Compare the two runs (ideally over several job descriptions): speculation pays off when the latency saved
+        // 比较两次运行（最好使用多个职位描述）：只有当节省的延迟
+        // outweighs the extra iterations, the lower scores and the tokens of the discarded passes.
+        // 超过额外的迭代、更低的分数以及被丢弃的定制所消耗的 token 时，推测执行才划算。
+    }
+}
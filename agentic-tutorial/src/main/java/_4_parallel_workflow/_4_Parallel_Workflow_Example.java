@@ -6,12 +6,12 @@ import dev.langchain4j.model.chat.ChatModel;
 import domain.CvReview;
 import util.ChatModelProvider;
 import util.StringLoader;
+import util.VirtualThreadExecutor;
 import util.log.CustomLogging;
 import util.log.LogLevels;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.Executors;
 
 public class _4_Parallel_Workflow_Example {
 
@@ -76,16 +76,18 @@ public class _4_Parallel_Workflow_Example {
 
         // 4. Build the sequence
         // 4. 构建序列
-        var executor = Executors.newFixedThreadPool(3);  // keep a reference for later closing
-        // 保留引用以便稍后关闭
+        var executor = new VirtualThreadExecutor("cv-review", 3);  // one virtual thread per reviewer, at most 3 LLM calls at once
+        // 每个评审者一个虚拟线程，最多同时 3 个 LLM 调用
+        // raise the limit to fan out hundreds of reviews, waiting reviews are parked virtual threads, not pooled platform threads
+        // 调高上限即可同时扇出数百个评审，等待中的评审是挂起的虚拟线程，而非池化的平台线程
 
         UntypedAgent cvReviewGenerator = AgenticServices // use UntypedAgent unless you define the resulting composed agent, see _2_Sequential_Agent_Example
                 // 除非你定义了组合后的智能体，否则使用 UntypedAgent（见 _2_Sequential_Agent_Example）
                 .parallelBuilder()
                 .subAgents(hrCvReviewer, managerCvReviewer, teamMemberCvReviewer) // this can be as many as you want
                 // 子智能体数量不限
-                .executor(executor) // optional, by default an internal cached thread pool is used which will automatically shut down after execution is completed
-                // 可选；默认使用内部缓存线程池，执行完成后会自动关闭
+                .executor(executor) // optional, by default an internal executor is used (virtual threads on Java 21+, without a concurrency limit)
+                // 可选；默认使用内部执行器（Java 21+ 上为虚拟线程，不限制并发度）
                 .outputKey("fullCvReview") // this is the final output we want to observe
                 // 这是我们要观察的最终输出
                 .output(agenticScope -> {
@@ -131,9 +133,5 @@ public class _4_Parallel_Workflow_Example {
         // 8. 并打印生成的评审结果
         System.out.println("=== REVIEWED CV ===");
         System.out.println(review);
-
-        // 9. Shutdown executor
-        // 9. 关闭线程池
-        executor.shutdown();
    }
 }
@@ -8,6 +8,8 @@ import util.ChatModelProvider;
 import util.StringLoader;
 import util.log.CustomLogging;
 import util.log.LogLevels;
+import util.tracing.AgentTracer;
+import util.tracing.ConsoleSpanExporter;
 
 import java.io.IOException;
 import java.util.Map;
@@ -15,8 +17,8 @@ import java.util.Map;
 public class _5a_Conditional_Workflow_Example {
 
     static {
-        CustomLogging.setLevel(LogLevels.PRETTY, 200);  // control how much you see from the model calls
-        // 控制从模型调用中看到的日志量
+        CustomLogging.setLevel(LogLevels.NONE);  // in this example we trace the workflow instead of logging the model calls
+        // 本例中我们追踪工作流，而不是记录模型调用
     }
 
     /**
@@ -30,7 +32,14 @@ public class _5a_Conditional_Workflow_Example {
      * - 调用智能体发送一封婉拒邮件*
      */
 
-    private static final ChatModel CHAT_MODEL = ChatModelProvider.createChatModel();
+    // The tracer creates a span for every agent, LLM call and tool call, with latency and token usage,
+    // 追踪器为每个智能体、每次 LLM 调用和每次工具调用创建一个 span，包含耗时和 token 用量，
+    // and prints every finished workflow as a tree. It does not need the HTTP bodies, so request/response logging is off.
+    // 并把每个完成的工作流打印成一棵树。它不需要 HTTP 请求体，因此关闭了请求/响应日志。
+    // Replace the ConsoleSpanExporter by your own SpanExporter to send the spans to your tracing backend.
+    // 将 ConsoleSpanExporter 替换为你自己的 SpanExporter，即可把 span 发送到你的追踪后端。
+    private static final AgentTracer TRACER = new AgentTracer(new ConsoleSpanExporter());
+    private static final ChatModel CHAT_MODEL = TRACER.traced(ChatModelProvider.createChatModel(false));
 
     public static void main(String[] args) throws IOException {
 
@@ -62,6 +71,8 @@ public class _5a_Conditional_Workflow_Example {
                 .conditionalBuilder()
                 .subAgents(agenticScope -> ((CvReview) agenticScope.readState("cvReview")).score >= 0.8, interviewOrganizer)
                 .subAgents(agenticScope -> ((CvReview) agenticScope.readState("cvReview")).score < 0.8, emailAssistant)
+                .listener(TRACER) // inherited by the sub-agents
+                // 会被子智能体继承
                 .build();
         // Good to know: when multiple conditions are defined, they are all executed in sequence.
         // 小提示：当定义多个条件时，会按顺序依次执行。
@@ -41,8 +41,8 @@ public class _5b_Conditional_Workflow_Example_Async {
         // 1. 创建所有异步智能体
         ManagerCvReviewer managerCvReviewer = AgenticServices.agentBuilder(ManagerCvReviewer.class)
                 .chatModel(CHAT_MODEL)
-                .async(true) // async agent
-                // 异步智能体
+                .async(true) // async agent, runs on the internal default executor: a virtual thread per call on Java 21+
+                // 异步智能体，运行在内部默认执行器上：Java 21+ 上每次调用一个虚拟线程
                 .outputKey("managerReview")
                 .build();
         EmailAssistant emailAssistant = AgenticServices.agentBuilder(EmailAssistant.class)
@@ -11,16 +11,21 @@ import _5_conditional_workflow.InterviewOrganizer;
 import _5_conditional_workflow.OrganizingTools;
 import dev.langchain4j.agentic.AgenticServices;
 import dev.langchain4j.agentic.UntypedAgent;
+import dev.langchain4j.agentic.workflow.impl.SequentialPlanner;
 import dev.langchain4j.model.chat.ChatModel;
 import domain.CvReview;
 import util.ChatModelProvider;
 import util.StringLoader;
+import util.VirtualThreadExecutor;
+import util.checkpoint.CheckpointStore;
+import util.checkpoint.CheckpointingPlanner;
+import util.checkpoint.FileCheckpointStore;
 import util.log.CustomLogging;
 import util.log.LogLevels;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
-import java.util.concurrent.Executors;
 
 public class _6_Composed_Workflow_Example {
 
@@ -98,13 +103,24 @@ public class _6_Composed_Workflow_Example {
 
         // 3. Create the complete candidate workflow: Generate > Review > Improve Loop
         // 3. 创建完整的候选人工作流：生成 > 评审 > 改进循环
+        // This is a sequence like sequenceBuilder(CandidateWorkflow.class) would build, but its planner writes a checkpoint
+        // 这与 sequenceBuilder(CandidateWorkflow.class) 构建的序列相同，但其规划器会在每个子智能体完成后
+        // to an append-only log after every sub-agent. If the application crashes (or you stop it) during the improvement loop,
+        // 向仅追加日志写入检查点。如果应用在改进循环期间崩溃（或被你停止），
+        // the next run skips the CV generation and first review, and continues right where it stopped.
+        // 下次运行会跳过简历生成和首次评审，直接从中断处继续。
+        CheckpointStore checkpointStore = new FileCheckpointStore(
+                Path.of(System.getProperty("java.io.tmpdir"), "agentic-tutorial", "checkpoints"));
         CandidateWorkflow candidateWorkflow = AgenticServices
-                .sequenceBuilder(CandidateWorkflow.class)
+                .plannerBuilder(CandidateWorkflow.class)
                 .subAgents(cvGenerator, cvReviewer, cvImprovementLoop)
-                // here we use the composed agent cvImprovementLoop inside the sequenceBuilder
-                // 这里在 sequenceBuilder 中使用组合智能体 cvImprovementLoop
+                // here we use the composed agent cvImprovementLoop inside the sequence
+                // 这里在序列中使用组合智能体 cvImprovementLoop
                 // we also need the cvReviewer in order to generate a first review before entering the loop
                 // 还需要 cvReviewer 在进入循环前生成首次评审
+                .planner(() -> new CheckpointingPlanner(new SequentialPlanner(), checkpointStore, "candidate-workflow-john-doe"))
+                // one workflowId per process instance, e.g. per candidate; its checkpoints are deleted once the workflow completes
+                // 每个流程实例一个 workflowId，例如每个候选人一个；工作流完成后其检查点会被删除
                 .outputKey("cv")
                 .build();
 
@@ -170,7 +186,7 @@ public class _6_Composed_Workflow_Example {
         UntypedAgent parallelReviewWorkflow = AgenticServices
                 .parallelBuilder()
                 .subAgents(hrCvReviewer, managerCvReviewer, teamMemberCvReviewer)
-                .executor(Executors.newFixedThreadPool(3))
+                .executor(new VirtualThreadExecutor("hiring-team-review", 3))
                 .outputKey("combinedCvReview")
                 .output(agenticScope -> {
                     CvReview hrReview = (CvReview) agenticScope.readState("hrReview");
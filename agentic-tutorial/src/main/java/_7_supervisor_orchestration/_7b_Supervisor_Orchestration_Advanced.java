@@ -10,15 +10,24 @@ import dev.langchain4j.agentic.AgenticServices;
 import dev.langchain4j.agentic.scope.ResultWithAgenticScope;
 import dev.langchain4j.agentic.supervisor.SupervisorContextStrategy;
 import dev.langchain4j.agentic.supervisor.SupervisorResponseStrategy;
+import dev.langchain4j.model.TokenCountEstimator;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
+import util.AgenticScopeCompactor;
 import util.ChatModelProvider;
+import util.SingleFlightChatModel;
 import util.StringLoader;
+import util.context.DocumentReferences;
+import util.context.TokenBudgetChatMemory;
 import util.log.CustomLogging;
 import util.log.LogLevels;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static dev.langchain4j.model.openai.OpenAiChatModelName.GPT_4_O_MINI;
+
 /**
  * Advanced Supervisor Example with explicit AgenticScope to inspect evolving context
  * 高级 Supervisor 示例，显式使用 AgenticScope 来检查上下文演进
@@ -30,7 +39,12 @@ public class _7b_Supervisor_Orchestration_Advanced {
         // 控制从模型调用中看到的日志量
     }
 
-    private static final ChatModel CHAT_MODEL = ChatModelProvider.createChatModel();
+    // identical concurrent calls share one response, and responses are reused for 30s: the supervisor tends to ask
+    // 相同的并发调用共享同一个响应，且响应会被复用 30 秒：supervisor 往往会用完全相同的输入
+    // a reviewer the exact same question again, e.g. after summarizing or when re-planning
+    // 再次向评审者提出同一个问题，例如在总结或重新规划之后
+    private static final SingleFlightChatModel CHAT_MODEL = new SingleFlightChatModel(ChatModelProvider.createChatModel(), Duration.ofSeconds(30));
+    private static final TokenCountEstimator TOKEN_COUNT_ESTIMATOR = new OpenAiTokenCountEstimator(GPT_4_O_MINI);
 
     /**
      * In this example we build a similar supervisor as in _7a_Supervisor_Orchestration,
@@ -47,29 +61,51 @@ public class _7b_Supervisor_Orchestration_Advanced {
      * - 调用链观察，
      * - context evolution inspection
      * - 上下文演进检查
+     * - bounded AgenticScope memory for long-running sessions
+     * - 为长时间运行的会话限制 AgenticScope 内存
+     * - a token budget for the supervisor's context
+     * - 为 supervisor 的上下文设置 token 预算
      */
     public static void main(String[] args) throws IOException {
 
         // 1. Define subagents
         // 1. 定义子智能体
+        // The compactor shares large inputs like the CV by reference and keeps only the last 3 invocations per agent
+        // 该压缩器按引用共享大输入（如简历），且每个智能体只保留最近 3 次调用，
+        // in the AgenticScope, so a long supervisor session does not grow without limit.
+        // 因此长时间的 supervisor 会话不会无限增长。
+        AgenticScopeCompactor compactor = new AgenticScopeCompactor(3);
+        // The supervisor plans every step with an LLM call that contains the whole user request. Instead of pasting the
+        // supervisor 每一步规划都会发起一次包含完整用户请求的 LLM 调用。我们不把
+        // CV, job description, ... into the request, we register them as documents and only send short references
+        // 简历、职位描述等粘贴进请求，而是把它们注册为文档，只发送类似 [[doc:candidateCv]] 的
+        // like [[doc:candidateCv]]. The sub-agents get a chat model that expands the references into the full text.
+        // 短引用。子智能体使用的聊天模型会把引用展开为完整文本。
+        DocumentReferences documents = new DocumentReferences(TOKEN_COUNT_ESTIMATOR);
+        ChatModel documentAwareModel = documents.expanding(CHAT_MODEL);
         HrCvReviewer hrReviewer = AgenticServices.agentBuilder(HrCvReviewer.class)
-                .chatModel(CHAT_MODEL)
+                .chatModel(documentAwareModel)
+                .listener(compactor)
                 .build();
         ManagerCvReviewer managerReviewer = AgenticServices.agentBuilder(ManagerCvReviewer.class)
-                .chatModel(CHAT_MODEL)
+                .chatModel(documentAwareModel)
+                .listener(compactor)
                 .build();
         TeamMemberCvReviewer teamReviewer = AgenticServices.agentBuilder(TeamMemberCvReviewer.class)
-                .chatModel(CHAT_MODEL)
+                .chatModel(documentAwareModel)
+                .listener(compactor)
                 .build();
         InterviewOrganizer interviewOrganizer = AgenticServices.agentBuilder(InterviewOrganizer.class)
-                .chatModel(CHAT_MODEL)
+                .chatModel(documentAwareModel)
                 .tools(new OrganizingTools())
                 .outputKey("response")
+                .listener(compactor)
                 .build();
         EmailAssistant emailAssistant = AgenticServices.agentBuilder(EmailAssistant.class)
-                .chatModel(CHAT_MODEL)
+                .chatModel(documentAwareModel)
                 .tools(new OrganizingTools())
                 .outputKey("response")
+                .listener(compactor)
                 .build();
 
         // 2. Build supervisor
@@ -79,16 +115,23 @@ public class _7b_Supervisor_Orchestration_Advanced {
                 .supervisorBuilder(HiringSupervisor.class)
                 .chatModel(CHAT_MODEL)
                 .subAgents(hrReviewer, managerReviewer, teamReviewer, interviewOrganizer, emailAssistant)
-                .contextGenerationStrategy(SupervisorContextStrategy.CHAT_MEMORY_AND_SUMMARIZATION)
+                .contextGenerationStrategy(SupervisorContextStrategy.CHAT_MEMORY)
                 // depending on what your supervisor needs to know about what the sub-agents have been doing,
                 // 取决于 supervisor 需要了解子智能体做了什么，
                 // you can choose contextGenerationStrategy CHAT_MEMORY, SUMMARIZATION, or CHAT_MEMORY_AND_SUMMARIZATION
                 // 可选择 CHAT_MEMORY、SUMMARIZATION 或 CHAT_MEMORY_AND_SUMMARIZATION
+                // SUMMARIZATION re-summarizes the whole history before every step, so instead we use a chat memory
+                // SUMMARIZATION 会在每一步之前重新总结整段历史，因此我们改用一个聊天记忆，
+                // that stays below 2000 tokens by folding only its oldest messages into a running summary
+                // 它只把最早的消息并入滚动摘要，从而保持在 2000 token 以内
+                .chatMemoryProvider(memoryId -> new TokenBudgetChatMemory(memoryId, TOKEN_COUNT_ESTIMATOR, 2000, CHAT_MODEL))
                 .responseStrategy(SupervisorResponseStrategy.SCORED) // this strategy uses a scorer model to decide weather the LAST response or the SUMMARY solves the user request best
                 // 该策略使用评分模型来决定“最后响应”还是“总结”更能满足用户请求
                 // an output function here would override the response strategy
                 // 若在此定义输出函数，会覆盖响应策略
-                .supervisorContext("Policy: Always check HR first, escalate if needed, reject low-fit.")
+                .supervisorContext("Policy: Always check HR first, escalate if needed, reject low-fit.\n"
+                        + "Documents are given as references like [[doc:name]]. Pass the references unchanged as argument values, "
+                        + "the agents can read them.")
                 .build();
 
         // 3. Load input data
@@ -100,11 +143,12 @@ public class _7b_Supervisor_Orchestration_Advanced {
         String phoneInterviewNotes = StringLoader.loadFromResource("/documents/phone_interview_notes.txt");
 
         String request = "Evaluate this candidate and either schedule an interview or send a rejection email.\n"
-                + "Candidate CV:\n" + candidateCv + "\n"
-                + "Candidate Contacts:\n" + candidateContact + "\n"
-                + "Job Description:\n" + jobDescription + "\n"
-                + "HR Requirements:\n" + hrRequirements + "\n"
-                + "Phone Interview Notes:\n" + phoneInterviewNotes;
+                + "Candidate CV: " + documents.register("candidateCv", candidateCv) + "\n"
+                + "Candidate Contacts: " + documents.register("candidateContact", candidateContact) + "\n"
+                + "Job Description: " + documents.register("jobDescription", jobDescription) + "\n"
+                + "HR Requirements: " + documents.register("hrRequirements", hrRequirements) + "\n"
+                + "Phone Interview Notes: " + documents.register("phoneInterviewNotes", phoneInterviewNotes);
+        System.out.println("=== Documents kept out of every supervisor step ===\n" + documents.catalogue());
 
         // 4. Invoke supervisor
         // 4. 调用 supervisor
@@ -121,5 +165,9 @@ public class _7b_Supervisor_Orchestration_Advanced {
         System.out.println(decision.agenticScope().contextAsConversation()); // will work in next release
         // 将在下一版本生效
 
+        System.out.println("\n=== AgenticScope size: ~" + AgenticScopeCompactor.sizeInBytes(decision.agenticScope()) / 1024 + " KiB ===");
+        System.out.println("=== LLM calls: " + CHAT_MODEL.calls() + ", coalesced: " + CHAT_MODEL.coalescedCalls()
+                + ", from cache: " + CHAT_MODEL.cacheHits() + " ===");
+
     }
 }
@@ -14,13 +14,14 @@ import dev.langchain4j.agentic.supervisor.SupervisorResponseStrategy;
 import dev.langchain4j.model.chat.ChatModel;
 import domain.CvReview;
 import util.ChatModelProvider;
+import util.DependencyGraphPlanner;
 import util.StringLoader;
+import util.VirtualThreadExecutor;
 import util.log.CustomLogging;
 import util.log.LogLevels;
 
 import java.io.IOException;
 import java.util.Map;
-import java.util.concurrent.Executors;
 
 public class _8_Non_AI_Agents {
 
@@ -72,27 +73,35 @@ public class _8_Non_AI_Agents {
                 .outputKey("teamMemberReview")
                 .build();
 
-        // 3. Build the composed parallel agent
-        // 3. 构建组合并行智能体
-        var executor = Executors.newFixedThreadPool(3);  // keep a reference for later closing
-        // 保留引用以便稍后关闭
-
-        UntypedAgent parallelReviewWorkflow = AgenticServices
-                .parallelBuilder()
-                .subAgents(hrReviewer, managerReviewer, teamReviewer)
-                .executor(executor)
+        // 3. Build the review-and-score step as a dependency graph instead of nesting parallel and sequence workflows
+        // 3. 将评审与打分步骤构建为依赖图，而不是手动嵌套并行与顺序工作流
+        // The DependencyGraphPlanner reads the declared @V inputs and outputKeys: the three reviewers only need the
+        // DependencyGraphPlanner 读取声明的 @V 输入与 outputKey：三个评审者只需要
+        // invocation arguments and start at once, ScoreAggregator starts when all three reviews are in the AgenticScope,
+        // 调用参数，因此立即启动；三份评审都写入 AgenticScope 后 ScoreAggregator 启动，
+        // and StatusUpdate as soon as 'combinedCvReview' is there. Wall-clock time is the slowest path, not the sum.
+        // 'combinedCvReview' 就绪后 StatusUpdate 随即启动。总耗时取决于最慢的路径，而不是各步骤之和。
+        var executor = new VirtualThreadExecutor("cv-review", 3);  // at most 3 agents at once, each on its own virtual thread
+        // 最多同时运行 3 个智能体，每个都在独立的虚拟线程上
+
+        UntypedAgent reviewAndScore = AgenticServices
+                .plannerBuilder()
+                .subAgents(
+                        hrReviewer, managerReviewer, teamReviewer,
+                        new ScoreAggregator(), // no AgenticServices builder needed for non-AI agents. outputKey 'combinedCvReview' is defined in the class
+                        // 非 AI 智能体无需 AgenticServices 构建器，outputKey 'combinedCvReview' 在类中定义
+                        new StatusUpdate() // takes 'combinedCvReview' as input, no output needed
+                        // 以 'combinedCvReview' 作为输入，不需要输出
+                )
+                .planner(() -> new DependencyGraphPlanner(executor))
                 .build();
 
-        // 4. Build the full workflow incl. non-AI agent
-        // 4. 构建包含非 AI 智能体的完整工作流
+        // 4. Build the full workflow incl. an agentAction, which declares no inputs and therefore runs after the graph
+        // 4. 构建完整工作流，包含一个 agentAction，它不声明输入，因此在依赖图之后运行
         UntypedAgent collectFeedback = AgenticServices
                 .sequenceBuilder()
                 .subAgents(
-                        parallelReviewWorkflow,
-                        new ScoreAggregator(), // no AgenticServices builder needed for non-AI agents. outputKey 'combinedCvReview' is defined in the class
-                        // 非 AI 智能体无需 AgenticServices 构建器，outputKey 'combinedCvReview' 在类中定义
-                        new StatusUpdate(), // takes 'combinedCvReview' as input, no output needed
-                        // 以 'combinedCvReview' 作为输入，不需要输出
+                        reviewAndScore,
                         AgenticServices.agentAction(agenticScope -> { // another way to add non-AI agents that can operate on the AgenticScope
                             // 另一种添加可操作 AgenticScope 的非 AI 智能体方式
                             CvReview review = (CvReview) agenticScope.readState("combinedCvReview");
@@ -100,8 +109,8 @@ public class _8_Non_AI_Agents {
                             // 不同系统的智能体通信时，常需要做输出转换
                         })
                 )
-                .outputKey("scoreAsPercentage") // outputKey defined on the non-AI agent annotation in ScoreAggregator.java
-                // outputKey 在 ScoreAggregator.java 的非 AI 智能体注解中定义
+                .outputKey("scoreAsPercentage") // written by the agentAction above
+                // 由上面的 agentAction 写入
                 .build();
 
         // 5. Load input data
@@ -123,7 +132,6 @@ public class _8_Non_AI_Agents {
         // 6. Invoke the workflow
         // 6. 调用工作流
         double scoreAsPercentage = (double) collectFeedback.invoke(arguments);
-        executor.shutdown();
 
         System.out.println("=== SCORE AS PERCENTAGE ===");
         System.out.println(scoreAsPercentage);
@@ -3,15 +3,23 @@ package _9_human_in_the_loop;
 import dev.langchain4j.agentic.AgenticServices;
 import dev.langchain4j.agentic.UntypedAgent;
 import dev.langchain4j.agentic.workflow.HumanInTheLoop;
+import dev.langchain4j.agentic.workflow.impl.LoopPlanner;
+import dev.langchain4j.agentic.workflow.impl.SequentialPlanner;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.service.AiServices;
 import util.ChatModelProvider;
+import util.checkpoint.CheckpointingPlanner;
+import util.checkpoint.H2CheckpointStore;
+import util.human.HumanRequestQueue;
+import util.human.WorkflowSuspendedException;
 import util.log.CustomLogging;
 import util.log.LogLevels;
 
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public class _9b_HumanInTheLoop_Chatbot_With_Memory {
 
@@ -35,7 +43,9 @@ public class _9b_HumanInTheLoop_Chatbot_With_Memory {
 
     private static final ChatModel CHAT_MODEL = ChatModelProvider.createChatModel();
 
-    public static void main(String[] args) {
+    private static final String WORKFLOW_ID = "scheduling-user-1234";
+
+    public static void main(String[] args) throws InterruptedException {
 
         // 1. Define sub-agent
         // 1. 定义子智能体
@@ -53,6 +63,14 @@ public class _9b_HumanInTheLoop_Chatbot_With_Memory {
 
         // 2. Define Human-in-the-loop agent
         // 2. 定义人在回路智能体
+        // Instead of blocking a thread on System.in until the candidate replies (which can take days), the question is
+        // 不再让线程阻塞在 System.in 上等待候选人回复（这可能需要好几天），而是把问题
+        // parked in a queue and the workflow suspends: the invocation ends and no thread waits for the answer.
+        // 放入队列并挂起工作流：本次调用结束，没有任何线程在等待回答。
+        // When the answer arrives, the workflow is invoked again and continues from its checkpoints (see below).
+        // 回答到达时，工作流会被再次调用，并从其检查点继续执行（见下文）。
+        HumanRequestQueue humanRequests = new HumanRequestQueue();
+
         HumanInTheLoop humanInTheLoop = AgenticServices
                 .humanInTheLoopBuilder()
                 .description("agent that asks input from the user")
@@ -60,24 +78,38 @@ public class _9b_HumanInTheLoop_Chatbot_With_Memory {
                 // 与提议者输入变量名之一对应
                 .inputKey("proposal") // must match the output of the proposer agent
                 // 必须与提议者智能体的输出匹配
-                .requestWriter(request -> {
-                    System.out.println(request);
-                    System.out.print("> ");
-                })
-                .responseReader(() -> new Scanner(System.in).nextLine())
-                .async(true) // no need to block the entire program while waiting for user input
-                // 等待用户输入时无需阻塞整个程序
+                .requestWriter(request -> humanRequests.post(WORKFLOW_ID, request))
+                .responseReader(() -> humanRequests.answerOrSuspend(WORKFLOW_ID))
+                .async(false) // the response reader never waits, it returns the answer or suspends the workflow
+                // 响应读取器从不等待，它要么返回回答，要么挂起工作流
                 .build();
 
         // 3. construct the loop
         // 3. 构建循环
+        // The loop waits for a human, so it can run for a long time: every step is checkpointed in an embedded
+        // 该循环要等待人类输入，因此可能运行很久：每一步都会在嵌入式 H2 数据库中写入检查点，
+        // H2 database, so a suspended workflow (or a restarted application) continues where it stopped.
+        // 因此被挂起的工作流（或重启后的应用）会从中断处继续。
+        // Note that the proposer's chat memory lives outside the AgenticScope, in memory: to also keep what it proposed
+        // 注意提议者的聊天记忆位于 AgenticScope 之外的内存中：若还想在重启后保留它提议过的内容，
+        // across restarts, give its MessageWindowChatMemory a persistent ChatMemoryStore.
+        // 请为其 MessageWindowChatMemory 配置持久化的 ChatMemoryStore。
+        // (H2 closes the embedded database when the JVM exits)
+        // （JVM 退出时 H2 会关闭嵌入式数据库）
+        H2CheckpointStore checkpointStore = new H2CheckpointStore("jdbc:h2:./target/checkpoints");
+
         // Here we only want the exit condition to be checked once per loop, not after every agent invocation,
         // 这里我们只希望每个循环检查一次退出条件，而不是每次智能体调用后检查
-        // so we bundle both agents in a sequence and give it as one agent to the loop
-        // 因此把两个智能体打包成序列，作为一个智能体交给循环
+        // so we bundle both agents in a sequence and give it as one agent to the loop.
+        // 因此把两个智能体打包成序列，作为一个智能体交给循环。
+        // Like sequenceBuilder(), but checkpointed on its own: when the workflow suspends on the candidate's answer,
+        // 与 sequenceBuilder() 相同，但单独写入检查点：当工作流因等待候选人回答而挂起时，
+        // the proposal of this round is kept and the proposer is not called again on resume.
+        // 本轮的提议会被保留，恢复时不会再次调用提议者。
         UntypedAgent agentSequence = AgenticServices
-                .sequenceBuilder()
+                .plannerBuilder()
                 .subAgents(proposer, humanInTheLoop)
+                .planner(() -> new CheckpointingPlanner(new SequentialPlanner(), checkpointStore, WORKFLOW_ID + "/round"))
                 .output(agenticScope -> Map.of(
                         "proposal", agenticScope.readState("proposal"),
                         "candidateAnswer", agenticScope.readState("candidateAnswer")
@@ -87,17 +119,18 @@ public class _9b_HumanInTheLoop_Chatbot_With_Memory {
                 // 该输出包含最后一次日期提议与候选人回答，足以让后续智能体安排会议（或放弃尝试）
                 .build();
 
+        // Like loopBuilder() with maxIterations(5), every completed round is checkpointed as well
+        // 与 maxIterations(5) 的 loopBuilder() 相同，每完成一轮同样会写入检查点
         UntypedAgent schedulingLoop = AgenticServices
-                .loopBuilder()
+                .plannerBuilder()
                 .subAgents(agentSequence)
-                .exitCondition(scope -> {
+                .planner(() -> new CheckpointingPlanner(new LoopPlanner(5, false, (scope, iteration) -> {
                     System.out.println("--- checking exit condition ---");
                     String response = (String) scope.readState("candidateAnswer");
                     String proposal = (String) scope.readState("proposal");
                     return response != null && decisionService.isDecisionReached(proposal, response);
-                })
+                }), checkpointStore, WORKFLOW_ID))
                 .outputKey("proposalAndAnswer")
-                .maxIterations(5)
                 .build();
 
         // 4. Run the scheduling loop
@@ -108,9 +141,40 @@ public class _9b_HumanInTheLoop_Chatbot_With_Memory {
                 "memoryId", "user-1234"); // if we don't put a memoryId, the proposer agent will not remember what he proposed already
                 // 若不提供 memoryId，提议者智能体不会记住已提议内容
 
-        var lastProposalAndAnswer = schedulingLoop.invoke(input);
+        // Every answer to the suspended workflow resumes it on a fresh virtual thread, which runs until the next question and ends
+        // 对已挂起工作流的每个回答都会在新的虚拟线程上恢复它，该线程运行到下一个问题为止，然后结束
+        CompletableFuture<Object> lastProposalAndAnswer = new CompletableFuture<>();
+        Consumer<String> startOrResume = workflowId -> Thread.ofVirtual().start(() -> {
+            try {
+                lastProposalAndAnswer.complete(schedulingLoop.invoke(input));
+            } catch (RuntimeException e) {
+                if (!WorkflowSuspendedException.isSuspension(e)) {
+                    lastProposalAndAnswer.completeExceptionally(e);
+                }
+                // suspended: the question is in humanRequests and nothing waits for the answer
+                // 已挂起：问题在 humanRequests 中，没有任何东西在等待回答
+            }
+        });
+        humanRequests.onAnswer(startOrResume);
+        startOrResume.accept(WORKFLOW_ID);
+
+        // 5. Answer the pending questions
+        // 5. 回答待处理的问题
+        // This loop stands in for the outside world, e.g. a web page polling GET /pending and posting the answer:
+        // 这个循环代表外部世界，例如一个轮询 GET /pending 并提交回答的网页：
+        // here it is the candidate typing in the console
+        // 这里就是在控制台输入的候选人
+        Scanner scanner = new Scanner(System.in);
+        while (!lastProposalAndAnswer.isDone()) {
+            for (HumanRequestQueue.PendingRequest pending : humanRequests.pending()) {
+                System.out.println(pending.request());
+                System.out.print("> ");
+                humanRequests.answer(pending.workflowId(), scanner.nextLine());
+            }
+            Thread.sleep(100);
+        }
 
         System.out.println("=== Result: last proposalAndAnswer ===");
-        System.out.println(lastProposalAndAnswer);
+        System.out.println(lastProposalAndAnswer.join());
     }
 }
@@ -0,0 +1,181 @@
+package util;
+
+import dev.langchain4j.agentic.observability.AgentListener;
+import dev.langchain4j.agentic.observability.AgentRequest;
+import dev.langchain4j.agentic.observability.AgentResponse;
+import dev.langchain4j.agentic.scope.AgentInvocation;
+import dev.langchain4j.agentic.scope.AgenticScope;
+import dev.langchain4j.agentic.scope.DefaultAgenticScope;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+// Keeps the memory of long-running AgenticScopes (e.g. supervisor sessions) bounded.
+// 让长时间运行的 AgenticScope（例如 supervisor 会话）的内存占用保持有界。
+// Register it with .listener(...) on the outermost agent, it is inherited by all sub-agents. It
+// 在最外层智能体上通过 .listener(...) 注册即可，所有子智能体都会继承。它会
+// - interns large strings in the state (CVs, job descriptions, ...), so equal values written by different agents
+// - 驻留状态中的大字符串（简历、职位描述等），使不同智能体或不同迭代写入的相同值
+//   or iterations are one shared instance, also in the recorded invocations that reference them;
+//   共享同一个实例，记录下来的调用也会引用这个实例；
+// - keeps only the last historyPerAgent invocations of every agent, and the last maxContextMessages context messages,
+// - 每个智能体只保留最近 historyPerAgent 次调用，上下文只保留最近 maxContextMessages 条消息，
+//   since the scope otherwise records every invocation for as long as it lives.
+//   否则作用域会在其整个生命周期内记录每一次调用。
+// The state itself already holds only the latest value per key, so it needs no trimming.
+// 状态本身对每个键只保存最新值，无需裁剪。
+public class AgenticScopeCompactor implements AgentListener {
+
+    private final int historyPerAgent;
+    private final int maxContextMessages;
+    private final int internMinChars;
+
+    // weak keys and values: a string leaves the pool once no scope references it anymore
+    // 键和值都是弱引用：一旦没有作用域再引用某个字符串，它就会离开驻留池
+    private final Map<String, WeakReference<String>> interned = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public AgenticScopeCompactor(int historyPerAgent) {
+        this(historyPerAgent, 50, 256);
+    }
+
+    public AgenticScopeCompactor(int historyPerAgent, int maxContextMessages, int internMinChars) {
+        if (historyPerAgent < 1 || maxContextMessages < 1) {
+            throw new IllegalArgumentException("historyPerAgent and maxContextMessages must be at least 1");
+        }
+        this.historyPerAgent = historyPerAgent;
+        this.maxContextMessages = maxContextMessages;
+        this.internMinChars = internMinChars;
+    }
+
+    @Override
+    public void beforeAgentInvocation(AgentRequest agentRequest) {
+        // intern before the invocation records its inputs, so the record shares the interned instances
+        // 在调用记录其输入之前驻留，使记录共享驻留后的实例
+        internState(agentRequest.agenticScope());
+    }
+
+    @Override
+    public void afterAgentInvocation(AgentResponse agentResponse) {
+        AgenticScope agenticScope = agentResponse.agenticScope();
+        internState(agenticScope);
+        trimInvocations(agenticScope.agentInvocations());
+        if (agenticScope instanceof DefaultAgenticScope defaultAgenticScope) {
+            trimContext(defaultAgenticScope.context());
+        }
+    }
+
+    @Override
+    public boolean inheritedBySubagents() {
+        return true;
+    }
+
+    private void internState(AgenticScope agenticScope) {
+        for (Map.Entry<String, Object> entry : agenticScope.state().entrySet()) {
+            if (entry.getValue() instanceof String value && value.length() >= internMinChars) {
+                String canonical = intern(value);
+                if (canonical != value) {
+                    // only replace if no agent wrote a new value in the meantime
+                    // 仅当期间没有智能体写入新值时才替换
+                    agenticScope.state().replace(entry.getKey(), value, canonical);
+                }
+            }
+        }
+    }
+
+    private String intern(String value) {
+        synchronized (interned) {
+            WeakReference<String> reference = interned.get(value);
+            String canonical = reference == null ? null : reference.get();
+            if (canonical == null) {
+                interned.put(value, new WeakReference<>(value));
+                canonical = value;
+            }
+            return canonical;
+        }
+    }
+
+    private void trimInvocations(List<AgentInvocation> invocations) {
+        // the scope's lists are synchronized lists, iteration must hold their lock
+        // 作用域中的列表是同步列表，遍历时必须持有其锁
+        synchronized (invocations) {
+            Map<String, Integer> kept = new HashMap<>();
+            for (ListIterator<AgentInvocation> it = invocations.listIterator(invocations.size()); it.hasPrevious(); ) {
+                if (kept.merge(it.previous().agentName(), 1, Integer::sum) > historyPerAgent) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private void trimContext(List<DefaultAgenticScope.AgentMessage> context) {
+        synchronized (context) {
+            if (context.size() > maxContextMessages) {
+                context.subList(0, context.size() - maxContextMessages).clear();
+            }
+        }
+    }
+
+    // Rough estimate of the heap retained by the state, the recorded invocations and the context.
+    // 粗略估算状态、调用记录和上下文所占用的堆内存。
+    // Shared instances are counted once, so interning shows up in this number.
+    // 共享实例只计算一次，因此驻留的效果会体现在这个数字上。
+    public static long sizeInBytes(AgenticScope agenticScope) {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        long size = estimate(agenticScope.state(), seen);
+        List<AgentInvocation> invocations = agenticScope.agentInvocations();
+        synchronized (invocations) {
+            for (AgentInvocation invocation : invocations) {
+                size += 32 + estimate(invocation.input(), seen) + estimate(invocation.output(), seen);
+            }
+        }
+        if (agenticScope instanceof DefaultAgenticScope defaultAgenticScope) {
+            List<DefaultAgenticScope.AgentMessage> context = defaultAgenticScope.context();
+            synchronized (context) {
+                for (DefaultAgenticScope.AgentMessage message : context) {
+                    size += 32 + estimate(message.message(), seen);
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long estimate(Object value, Set<Object> seen) {
+        if (value == null || !seen.add(value)) {
+            return 0;
+        }
+        if (value instanceof String string) {
+            // compact strings use one byte per char when all chars are Latin-1
+            // 紧凑字符串在所有字符都是 Latin-1 时每个字符占一个字节
+            boolean latin1 = string.chars().allMatch(c -> c < 256);
+            return 40 + (long) string.length() * (latin1 ? 1 : 2);
+        }
+        if (value instanceof Map<?, ?> map) {
+            long size = 64;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += 32 + estimate(entry.getKey(), seen) + estimate(entry.getValue(), seen);
+            }
+            return size;
+        }
+        if (value instanceof Collection<?> collection) {
+            long size = 40;
+            for (Object element : collection) {
+                size += 8 + estimate(element, seen);
+            }
+            return size;
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Enum<?>) {
+            return 16;
+        }
+        // other objects (records, POJOs, chat messages) are dominated by their text
+        // 其他对象（record、POJO、聊天消息）的大小主要由其文本决定
+        return 16 + estimate(value.toString(), seen);
+    }
+}
@@ -0,0 +1,150 @@
+package util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Runs one workflow over many inputs, e.g. screening thousands of CVs with the same agents:
+// 用同一个工作流处理大量输入，例如用相同的智能体筛选成千上万份简历：
+//     BatchRunner.of(workflow::invoke, 16).invokeAll(inputs).forEach(result -> ...)
+// - at most maxConcurrency workflow instances run at once, each on its own virtual thread;
+// - 最多同时运行 maxConcurrency 个工作流实例，每个实例运行在自己的虚拟线程上；
+// - inputs are pulled from the stream only when there is room, so a stream over a huge file is never loaded at once;
+// - 只有在有空位时才从流中拉取输入，因此基于超大文件的流不会被一次性加载；
+// - results are streamed in completion order, the index tells which input they belong to;
+// - 结果按完成顺序以流的形式返回，index 表示它属于哪个输入；
+// - a failing instance becomes a failed Result instead of aborting the batch.
+// - 失败的实例会成为一个失败的 Result，而不会中止整个批次。
+// A slot is only freed when the caller takes the result, so a slow consumer slows the batch down instead of
+// 只有调用方取走结果后才会释放一个空位，因此消费慢时批处理会随之变慢，而不是
+// piling up results in memory. Closing the returned stream early stops starting new instances.
+// 在内存中堆积结果。提前关闭返回的流会停止启动新的实例。
+// Agents built with AgenticServices can be shared: every invocation of an untyped agent gets its own AgenticScope.
+// 用 AgenticServices 构建的智能体可以共享：无类型智能体的每次调用都有自己的 AgenticScope。
+public class BatchRunner<I, R> {
+
+    public record Result<I, R>(long index, I input, R output, Throwable error, Duration latency) {
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    private record EndOfBatch(long count) {
+    }
+
+    private final Function<I, R> workflow;
+    private final int maxConcurrency;
+
+    private BatchRunner(Function<I, R> workflow, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1, but was " + maxConcurrency);
+        }
+        this.workflow = workflow;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    // for untyped agents: BatchRunner.of(untypedAgent::invoke, 16)
+    // 用于无类型智能体：BatchRunner.of(untypedAgent::invoke, 16)
+    public static <R> BatchRunner<Map<String, Object>, R> of(Function<Map<String, Object>, R> workflow, int maxConcurrency) {
+        return new BatchRunner<>(workflow, maxConcurrency);
+    }
+
+    // for anything else, e.g. a typed agent: BatchRunner.forFunction(cv -> reviewer.review(cv, job), 16)
+    // 用于其他情况，例如类型化智能体：BatchRunner.forFunction(cv -> reviewer.review(cv, job), 16)
+    public static <I, R> BatchRunner<I, R> forFunction(Function<I, R> workflow, int maxConcurrency) {
+        return new BatchRunner<>(workflow, maxConcurrency);
+    }
+
+    public Stream<Result<I, R>> invokeAll(Stream<I> inputs) {
+        Semaphore slots = new Semaphore(maxConcurrency);
+        BlockingQueue<Object> completed = new LinkedBlockingQueue<>();
+
+        // the feeder pulls inputs as slots free up and starts one virtual thread per input
+        // 投递线程在有空位时拉取输入，并为每个输入启动一个虚拟线程
+        Thread feeder = Thread.ofVirtual().name("batch-feeder").start(() -> {
+            long count = 0;
+            try (inputs) {
+                for (Iterator<I> it = inputs.iterator(); it.hasNext(); count++) {
+                    slots.acquire();
+                    I input = it.next();
+                    long index = count;
+                    Thread.ofVirtual().name("batch-" + index).start(() -> completed.add(run(index, input)));
+                }
+            } catch (InterruptedException e) {
+                // the stream was closed, stop feeding
+                // 流已被关闭，停止投递
+            } catch (RuntimeException e) {
+                // the input stream itself failed: report it, the instances already started still complete
+                // 输入流本身失败：报告该错误，已启动的实例仍会完成
+                completed.add(new Result<I, R>(count++, null, null, e, Duration.ZERO));
+            } finally {
+                completed.add(new EndOfBatch(count));
+            }
+        });
+
+        Iterator<Result<I, R>> results = new Iterator<>() {
+
+            private Result<I, R> next;
+            private long taken;
+            private long total = -1;
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public boolean hasNext() {
+                while (next == null && taken != total) {
+                    Object element;
+                    try {
+                        element = completed.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        feeder.interrupt();
+                        return false;
+                    }
+                    // the end marker can overtake results of instances that are still running
+                    // 结束标记可能先于仍在运行的实例的结果到达
+                    if (element instanceof EndOfBatch endOfBatch) {
+                        total = endOfBatch.count();
+                    } else {
+                        next = (Result<I, R>) element;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Result<I, R> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Result<I, R> result = next;
+                next = null;
+                taken++;
+                slots.release();
+                return result;
+            }
+        };
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(feeder::interrupt);
+    }
+
+    private Result<I, R> run(long index, I input) {
+        long start = System.nanoTime();
+        try {
+            R output = workflow.apply(input);
+            return new Result<>(index, input, output, null, Duration.ofNanos(System.nanoTime() - start));
+        } catch (Throwable e) {
+            return new Result<>(index, input, null, e, Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+}
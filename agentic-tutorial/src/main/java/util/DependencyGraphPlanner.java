@@ -0,0 +1,167 @@
+package util;
+
+import dev.langchain4j.agentic.internal.AgentExecutor;
+import dev.langchain4j.agentic.planner.Action;
+import dev.langchain4j.agentic.planner.AgentArgument;
+import dev.langchain4j.agentic.planner.AgentInstance;
+import dev.langchain4j.agentic.planner.AgenticSystemConfigurationException;
+import dev.langchain4j.agentic.planner.AgenticSystemTopology;
+import dev.langchain4j.agentic.planner.InitPlanningContext;
+import dev.langchain4j.agentic.planner.Planner;
+import dev.langchain4j.agentic.planner.PlanningContext;
+import dev.langchain4j.agentic.scope.DefaultAgenticScope;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+// Runs the sub-agents as a dependency graph derived from their declared keys:
+// 根据子智能体声明的键推导依赖图并执行：
+// an agent depends on every other sub-agent whose outputKey matches one of its @V inputs,
+// 若某个子智能体的 outputKey 与一个智能体的 @V 输入同名，则该智能体依赖它，
+// and starts on the executor as soon as all of those have finished.
+// 一旦这些依赖全部完成，它就会立即在 executor 上启动。
+// Inputs that no sub-agent produces must already be in the AgenticScope (e.g. the invocation arguments).
+// 没有子智能体产出的输入必须已存在于 AgenticScope 中（例如调用参数）。
+// Agents that read the AgenticScope directly (like agentAction) declare no inputs, so keep them in a sequence after the graph.
+// 直接读取 AgenticScope 的智能体（如 agentAction）不声明输入，请在依赖图之后用顺序工作流调用它们。
+// Why the whole graph runs inside firstAction, through the internal AgentExecutor and DefaultAgenticScope,
+// 为什么整个依赖图都在 firstAction 中、通过内部的 AgentExecutor 与 DefaultAgenticScope 运行，
+// instead of returning call(...) actions:
+// 而不是返回 call(...) 动作：
+// - a call(a, b, c) action is a barrier, the next action only starts after all of a, b and c finished, so successive
+// - call(a, b, c) 动作是一道屏障，只有 a、b、c 全部完成后才会开始下一个动作，因此依次执行的
+//   waves make a dependent wait for unrelated slow agents instead of starting as soon as its own producers are done;
+//   各批次会让一个智能体等待与它无关的慢智能体，而不是在它自己的依赖完成后立即启动；
+// - the agents of one call(...) report to nextAction from their own threads, and the framework merges the returned
+//   - 同一个 call(...) 中的智能体会在各自的线程上回调 nextAction，而框架合并返回动作时
+//   actions without synchronization, so the next wave returned by one of them can be overwritten by another.
+//   没有做同步，因此其中一个返回的下一批次可能被另一个覆盖。
+// The price is that the graph's agents are not reported to nextAction one by one: the whole graph is one step.
+// 代价是依赖图中的智能体不会逐个回调 nextAction：整个依赖图算作一步。
+public class DependencyGraphPlanner implements Planner {
+
+    private final Executor executor;
+
+    private List<AgentInstance> topologicalOrder;
+    private Map<AgentInstance, Set<AgentInstance>> dependencies;
+
+    public DependencyGraphPlanner(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void init(InitPlanningContext initPlanningContext) {
+        List<AgentInstance> agents = initPlanningContext.subagents();
+
+        Map<String, AgentInstance> producers = new HashMap<>();
+        for (AgentInstance agent : agents) {
+            if (!(agent instanceof AgentExecutor)) {
+                throw new AgenticSystemConfigurationException("Unsupported sub-agent " + agent.name());
+            }
+            String outputKey = agent.outputKey();
+            if (outputKey == null || outputKey.isBlank()) {
+                continue;
+            }
+            AgentInstance previous = producers.putIfAbsent(outputKey, agent);
+            if (previous != null) {
+                // two writers of the same key have no well-defined order in a graph
+                // 同一个键有两个写入者时，依赖图中无法确定它们的顺序
+                throw new AgenticSystemConfigurationException("Agents '" + previous.name() + "' and '" + agent.name()
+                        + "' both write '" + outputKey + "', use a sequence or loop for them instead");
+            }
+        }
+
+        dependencies = new LinkedHashMap<>();
+        for (AgentInstance agent : agents) {
+            Set<AgentInstance> inputs = new LinkedHashSet<>();
+            for (AgentArgument argument : agent.arguments()) {
+                AgentInstance producer = producers.get(argument.name());
+                if (producer != null && producer != agent) {
+                    inputs.add(producer);
+                }
+            }
+            dependencies.put(agent, inputs);
+        }
+
+        topologicalOrder = topologicalOrder(dependencies);
+    }
+
+    @Override
+    public Action firstAction(PlanningContext planningContext) {
+        DefaultAgenticScope agenticScope = (DefaultAgenticScope) planningContext.agenticScope();
+
+        // Chain every agent on the completion of its producers, in topological order so producers come first
+        // 按拓扑顺序把每个智能体挂在其依赖完成之后，保证依赖先被创建
+        Map<AgentInstance, CompletableFuture<Void>> runs = new HashMap<>();
+        for (AgentInstance agent : topologicalOrder) {
+            CompletableFuture<?>[] inputs = dependencies.get(agent).stream()
+                    .map(runs::get)
+                    .toArray(CompletableFuture[]::new);
+            runs.put(agent, CompletableFuture.allOf(inputs).thenRunAsync(
+                    () -> ((AgentExecutor) agent).syncExecute(agenticScope, invocation -> { }), executor));
+        }
+
+        try {
+            CompletableFuture.allOf(runs.values().toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+        return done();
+    }
+
+    @Override
+    public Action nextAction(PlanningContext planningContext) {
+        return done();
+    }
+
+    @Override
+    public AgenticSystemTopology topology() {
+        return AgenticSystemTopology.PARALLEL;
+    }
+
+    private static List<AgentInstance> topologicalOrder(Map<AgentInstance, Set<AgentInstance>> dependencies) {
+        Map<AgentInstance, Integer> pending = new HashMap<>();
+        Map<AgentInstance, List<AgentInstance>> dependents = new HashMap<>();
+        Queue<AgentInstance> ready = new ArrayDeque<>();
+        dependencies.forEach((agent, inputs) -> {
+            pending.put(agent, inputs.size());
+            inputs.forEach(input -> dependents.computeIfAbsent(input, key -> new ArrayList<>()).add(agent));
+            if (inputs.isEmpty()) {
+                ready.add(agent);
+            }
+        });
+
+        List<AgentInstance> order = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            AgentInstance agent = ready.poll();
+            order.add(agent);
+            for (AgentInstance dependent : dependents.getOrDefault(agent, List.of())) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+
+        if (order.size() < dependencies.size()) {
+            List<String> cycle = dependencies.keySet().stream()
+                    .filter(agent -> !order.contains(agent))
+                    .map(AgentInstance::name)
+                    .toList();
+            throw new AgenticSystemConfigurationException("Sub-agents " + cycle + " depend on each other in a cycle");
+        }
+        return order;
+    }
+}
@@ -0,0 +1,152 @@
+package util;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Coalesces identical concurrent LLM calls: while a request is in flight, callers sending an equal request
+// 合并相同的并发 LLM 调用：某个请求尚在进行时，发送相同请求的调用方
+// (same messages, same parameters, same tools) wait for that response instead of making a second HTTP call.
+// （相同的消息、参数和工具）会等待这次的响应，而不是发起第二次 HTTP 请求。
+// Useful when parallel agents or a supervisor share one chat model and end up asking the exact same question.
+// 适用于并行智能体或 supervisor 共享同一个聊天模型、最终问出完全相同问题的场景。
+// Optionally, responses are also cached for a short time, so identical calls shortly after each other are coalesced too.
+// 还可以选择把响应缓存一小段时间，这样先后紧挨着的相同调用也会被合并。
+// Requests are compared with ChatRequest.equals, so only byte-identical requests share a response: callers that rely
+// 请求通过 ChatRequest.equals 比较，因此只有完全相同的请求才会共享响应：
+// on getting independent samples for the same prompt (temperature > 0) should not use this decorator.
+// 如果调用方依赖同一提示词得到相互独立的采样（temperature > 0），就不应使用这个装饰器。
+public class SingleFlightChatModel implements ChatModel {
+
+    private record CachedResponse(ChatResponse response, long expiresAtNanos) {
+    }
+
+    private final ChatModel delegate;
+    private final long cacheTtlNanos;
+
+    private final Map<ChatRequest, CompletableFuture<ChatResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Map<ChatRequest, CachedResponse> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong coalescedCalls = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    public SingleFlightChatModel(ChatModel delegate) {
+        this(delegate, Duration.ZERO);
+    }
+
+    public SingleFlightChatModel(ChatModel delegate, Duration cacheTtl) {
+        this.delegate = delegate;
+        this.cacheTtlNanos = cacheTtl.toNanos();
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        calls.incrementAndGet();
+
+        CachedResponse cached = cache.get(chatRequest);
+        if (cached != null) {
+            if (System.nanoTime() - cached.expiresAtNanos() < 0) {
+                cacheHits.incrementAndGet();
+                return cached.response();
+            }
+            cache.remove(chatRequest, cached);
+        }
+
+        CompletableFuture<ChatResponse> call = new CompletableFuture<>();
+        CompletableFuture<ChatResponse> leader = inFlight.putIfAbsent(chatRequest, call);
+        if (leader != null) {
+            coalescedCalls.incrementAndGet();
+            return await(leader);
+        }
+
+        // this caller is the leader: it makes the call on its own thread and hands the result to the waiting callers
+        // 该调用方是领头者：在自己的线程上发起调用，并把结果交给等待中的调用方
+        try {
+            // a previous leader caches its response before leaving, so look once more
+            // 上一个领头者会在离开前缓存响应，所以再查一次
+            cached = cache.get(chatRequest);
+            if (cached != null && System.nanoTime() - cached.expiresAtNanos() < 0) {
+                cacheHits.incrementAndGet();
+                call.complete(cached.response());
+                return cached.response();
+            }
+            ChatResponse response = delegate.chat(chatRequest);
+            if (cacheTtlNanos > 0) {
+                evictExpired();
+                cache.put(chatRequest, new CachedResponse(response, System.nanoTime() + cacheTtlNanos));
+            }
+            call.complete(response);
+            return response;
+        } catch (Throwable e) {
+            // failures, Errors included, are shared with the waiting callers, but never cached
+            // 失败（包括 Error）会同样交给等待中的调用方，但不会被缓存
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(chatRequest, call);
+        }
+    }
+
+    private static ChatResponse await(CompletableFuture<ChatResponse> call) {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for an identical in-flight request");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            } else if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        cache.values().removeIf(cached -> now - cached.expiresAtNanos() >= 0);
+    }
+
+    // number of chat calls, and how many of them were answered by an in-flight call or by the cache
+    // 聊天调用次数，以及其中由进行中的调用或缓存回答的次数
+    public long calls() {
+        return calls.get();
+    }
+
+    public long coalescedCalls() {
+        return coalescedCalls.get();
+    }
+
+    public long cacheHits() {
+        return cacheHits.get();
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+}
@@ -0,0 +1,223 @@
+package util;
+
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static util.TokenUsageTracker.track;
+
+// A review-and-refine loop (like loopBuilder().subAgents(reviewer, refiner)) that can overlap the two steps.
+// 一个"评审-改进"循环（类似 loopBuilder().subAgents(reviewer, refiner)），可以让两个步骤重叠执行。
+// While the reviewer scores candidate n, the refinement of candidate n already starts, speculatively, with review n-1.
+// 评审者为第 n 个候选打分的同时，第 n 个候选的改进已推测性地开始，使用的是第 n-1 轮评审。
+// As soon as a review meets the exit condition the in-flight refinement is cancelled (interrupted).
+// 一旦某次评审满足退出条件，正在进行的改进就会被取消（中断）。
+// An iteration then costs max(review, refine) instead of review + refine, but this is a trade of quality for latency:
+// 这样每次迭代的耗时是 max(评审, 改进) 而不是 评审 + 改进，但这是用质量换延迟：
+// candidate n was itself produced from review n-1, so that feedback is applied a second time, and the refiner never
+// 第 n 个候选本身就是根据第 n-1 轮评审生成的，因此同一反馈会被再次应用，而改进者永远看不到
+// sees a critique of the text it edits. Expect more iterations, or a lower final score, than with speculative(false),
+// 针对它正在编辑的文本的评审。与 speculative(false) 相比，预计需要更多迭代或得到更低的最终分数，
+// and measure both on your task before choosing (see _3c_Speculative_Loop_Example).
+// 请在你的任务上对两者进行测量后再做选择（参见 _3c_Speculative_Loop_Example）。
+// The result is always the last reviewed candidate, so candidate and review match.
+// 结果总是最后一个被评审的候选，因此候选与评审一一对应。
+// Tokens spent by discarded refinements (cancelled, or finished after the exit condition was met) are counted
+// 被丢弃的改进（被取消，或在满足退出条件后才完成）所消耗的 token 会计入
+// in the last iteration and in Result.discardedTokenUsage(); a call aborted before it returned reports no usage.
+// 最后一次迭代以及 Result.discardedTokenUsage()；在返回前就被中止的调用不会报告用量。
+// The reviewer and refiner are plain functions, typically calls to typed agents, so cancelled work never
+// 评审者和改进者是普通函数，通常是对类型化智能体的调用，因此被取消的工作
+// touches a shared AgenticScope.
+// 永远不会写入共享的 AgenticScope。
+public class SpeculativeLoop<C, R> {
+
+    public record Iteration<C, R>(int number, C candidate, R review, Duration latency, TokenUsage tokenUsage) {
+    }
+
+    public record Result<C, R>(C candidate, R review, boolean exitConditionMet, int discardedRefinements,
+                               TokenUsage discardedTokenUsage, List<Iteration<C, R>> history) {
+    }
+
+    // a submitted step, with the token usage it reported so far
+    // 已提交的步骤，以及它迄今报告的 token 用量
+    private record Step<T>(FutureTask<T> future, List<TokenUsage> usages) {
+
+        TokenUsage tokenUsage() {
+            return TokenUsageTracker.sum(usages);
+        }
+    }
+
+    private final Function<C, R> reviewer;
+    private final BiFunction<C, R, C> refiner;
+    private final Predicate<R> exitCondition;
+    private final int maxIterations;
+    private final boolean speculative;
+    private final Executor executor;
+
+    private SpeculativeLoop(Builder<C, R> builder) {
+        this.reviewer = builder.reviewer;
+        this.refiner = builder.refiner;
+        this.exitCondition = builder.exitCondition;
+        this.maxIterations = builder.maxIterations;
+        this.speculative = builder.speculative;
+        this.executor = builder.executor;
+    }
+
+    public static <C, R> Builder<C, R> builder() {
+        return new Builder<>();
+    }
+
+    public Result<C, R> run(C initialCandidate) {
+        List<Iteration<C, R>> history = new ArrayList<>();
+        int discardedRefinements = 0;
+        C candidate = initialCandidate;
+        R previousReview = null;
+
+        for (int number = 1; ; number++) {
+            long start = System.nanoTime();
+            C reviewed = candidate;
+            R previous = previousReview;
+
+            Step<R> review = submit(() -> reviewer.apply(reviewed));
+            Step<C> refinement = null;
+            if (speculative && previous != null && number < maxIterations) {
+                // speculate that this review will not pass, and refine with the feedback we already have
+                // 推测本轮评审不会通过，用已有的反馈开始改进
+                refinement = submit(() -> refiner.apply(reviewed, previous));
+            }
+
+            R reviewResult;
+            try {
+                reviewResult = await(review.future());
+            } catch (RuntimeException e) {
+                cancel(refinement);
+                throw e;
+            }
+
+            boolean exitConditionMet = exitCondition.test(reviewResult);
+            if (exitConditionMet || number == maxIterations) {
+                TokenUsage tokenUsage = review.tokenUsage();
+                TokenUsage discardedTokenUsage = new TokenUsage(0, 0);
+                if (refinement != null) {
+                    // the speculative refinement is not needed: cancelled if still running, its tokens are spent anyway
+                    // 推测性的改进不再需要：若仍在运行则取消，但它的 token 已经花掉了
+                    cancel(refinement);
+                    discardedRefinements++;
+                    discardedTokenUsage = refinement.tokenUsage();
+                    tokenUsage = TokenUsage.sum(tokenUsage, discardedTokenUsage);
+                }
+                history.add(new Iteration<>(number, reviewed, reviewResult, since(start), tokenUsage));
+                return new Result<>(reviewed, reviewResult, exitConditionMet, discardedRefinements, discardedTokenUsage,
+                        List.copyOf(history));
+            }
+
+            if (refinement == null) {
+                // not speculating (or first iteration): refine with this review
+                // 不做推测（或第一轮迭代）：使用本轮评审进行改进
+                R currentReview = reviewResult;
+                refinement = submit(() -> refiner.apply(reviewed, currentReview));
+            }
+            C refined = await(refinement.future());
+
+            history.add(new Iteration<>(number, reviewed, reviewResult, since(start),
+                    TokenUsage.sum(review.tokenUsage(), refinement.tokenUsage())));
+            previousReview = reviewResult;
+            candidate = refined;
+        }
+    }
+
+    private <T> Step<T> submit(Supplier<T> work) {
+        List<TokenUsage> usages = new CopyOnWriteArrayList<>();
+        FutureTask<T> task = new FutureTask<>(() -> track(work, usages));
+        executor.execute(task);
+        return new Step<>(task, usages);
+    }
+
+    private static <T> T await(FutureTask<T> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static void cancel(Step<?> step) {
+        if (step != null) {
+            step.future().cancel(true);
+        }
+    }
+
+    private static Duration since(long startNanos) {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    public static class Builder<C, R> {
+
+        private Function<C, R> reviewer;
+        private BiFunction<C, R, C> refiner;
+        private Predicate<R> exitCondition = review -> false;
+        private int maxIterations = 3;
+        private boolean speculative = true;
+        private Executor executor = VirtualThreadExecutor.unbounded("speculative-loop");
+
+        public Builder<C, R> reviewer(Function<C, R> reviewer) {
+            this.reviewer = reviewer;
+            return this;
+        }
+
+        public Builder<C, R> refiner(BiFunction<C, R, C> refiner) {
+            this.refiner = refiner;
+            return this;
+        }
+
+        public Builder<C, R> exitCondition(Predicate<R> exitCondition) {
+            this.exitCondition = exitCondition;
+            return this;
+        }
+
+        public Builder<C, R> maxIterations(int maxIterations) {
+            this.maxIterations = maxIterations;
+            return this;
+        }
+
+        // false runs review and refinement one after the other, like loopBuilder(), with the same history and accounting
+        // false 会像 loopBuilder() 一样依次运行评审和改进，并提供相同的历史记录与统计
+        public Builder<C, R> speculative(boolean speculative) {
+            this.speculative = speculative;
+            return this;
+        }
+
+        public Builder<C, R> executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public SpeculativeLoop<C, R> build() {
+            if (reviewer == null || refiner == null) {
+                throw new IllegalArgumentException("reviewer and refiner must be set");
+            }
+            if (maxIterations < 1) {
+                throw new IllegalArgumentException("maxIterations must be at least 1, but was " + maxIterations);
+            }
+            return new SpeculativeLoop<>(this);
+        }
+    }
+}
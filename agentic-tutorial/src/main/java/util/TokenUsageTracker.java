@@ -0,0 +1,93 @@
+package util;
+
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+// Attributes the token usage of LLM calls to the piece of work that made them.
+// 将 LLM 调用的 token 用量归属到发起调用的那段工作上。
+// Build the agents with tracking(chatModel), then wrap the work in track(...): every call made on that thread
+// 使用 tracking(chatModel) 构建智能体，再用 track(...) 包裹要统计的工作：
+// while the work runs is summed into the returned TokenUsage.
+// 工作运行期间在该线程上发起的所有调用都会累加到返回的 TokenUsage 中。
+public class TokenUsageTracker {
+
+    private static final ThreadLocal<List<TokenUsage>> CURRENT = new ThreadLocal<>();
+
+    public record Tracked<T>(T value, TokenUsage tokenUsage) {
+    }
+
+    public static ChatModel tracking(ChatModel chatModel) {
+        return new ChatModel() {
+
+            @Override
+            public ChatResponse chat(ChatRequest chatRequest) {
+                ChatResponse response = chatModel.chat(chatRequest);
+                List<TokenUsage> usages = CURRENT.get();
+                if (usages != null && response.tokenUsage() != null) {
+                    usages.add(response.tokenUsage());
+                }
+                return response;
+            }
+
+            @Override
+            public ChatRequestParameters defaultRequestParameters() {
+                return chatModel.defaultRequestParameters();
+            }
+
+            @Override
+            public Set<Capability> supportedCapabilities() {
+                return chatModel.supportedCapabilities();
+            }
+
+            @Override
+            public ModelProvider provider() {
+                return chatModel.provider();
+            }
+        };
+    }
+
+    public static <T> Tracked<T> track(Supplier<T> work) {
+        List<TokenUsage> usages = new ArrayList<>();
+        T value = track(work, usages);
+        return new Tracked<>(value, sum(usages));
+    }
+
+    // Same, but the usages are added to a list the caller owns, so the calls made before the work failed
+    // 同上，但用量会被添加到调用方持有的列表中，因此在工作失败或被取消之前
+    // or was cancelled are still counted (the list must be thread-safe when the caller reads it concurrently).
+    // 发起的调用仍会被统计（调用方并发读取时，该列表必须是线程安全的）。
+    public static <T> T track(Supplier<T> work, List<TokenUsage> usages) {
+        List<TokenUsage> outer = CURRENT.get();
+        CURRENT.set(usages);
+        try {
+            return work.get();
+        } finally {
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                // nested tracking: the enclosing work made these calls too
+                // 嵌套统计：外层工作同样发起了这些调用
+                outer.addAll(usages);
+                CURRENT.set(outer);
+            }
+        }
+    }
+
+    public static TokenUsage sum(List<TokenUsage> usages) {
+        TokenUsage total = null;
+        for (TokenUsage usage : usages) {
+            total = TokenUsage.sum(total, usage);
+        }
+        return total == null ? new TokenUsage(0, 0) : total;
+    }
+}
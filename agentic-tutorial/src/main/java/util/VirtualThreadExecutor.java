@@ -0,0 +1,43 @@
+package util;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+// Runs every task on its own virtual thread, so an agent blocked on an LLM call does not hold a platform thread.
+// 每个任务都在独立的虚拟线程上运行，等待 LLM 调用的智能体不会占用平台线程。
+// Concurrency is limited with a semaphore instead of a pool size: waiting tasks are parked virtual threads,
+// 并发度由信号量而不是线程池大小限制：等待中的任务只是被挂起的虚拟线程，
+// which cost a few hundred bytes, and the caller never blocks on submission.
+// 开销仅几百字节，且提交任务的调用方永远不会阻塞。
+// Nothing to shut down: there is no pool, threads end with their task.
+// 无需关闭：没有线程池，线程随任务结束。
+public class VirtualThreadExecutor implements Executor {
+
+    private final ThreadFactory threadFactory;
+    private final Semaphore permits;
+
+    public VirtualThreadExecutor(String name, int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1, but was " + maxConcurrency);
+        }
+        this.threadFactory = Thread.ofVirtual().name(name + "-", 1).factory();
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    public static VirtualThreadExecutor unbounded(String name) {
+        return new VirtualThreadExecutor(name, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        threadFactory.newThread(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        }).start();
+    }
+}
@@ -0,0 +1,20 @@
+package util.checkpoint;
+
+import java.util.List;
+
+// Durable, append-only storage for the checkpoints of a workflow, see CheckpointingPlanner.
+// 工作流检查点的持久化、仅追加存储，参见 CheckpointingPlanner。
+// A checkpoint is an opaque single-line string, written once after an agent completed and never modified.
+// 检查点是一个不透明的单行字符串，在智能体完成后写入一次，之后不再修改。
+public interface CheckpointStore {
+
+    // must be durable when it returns: a checkpoint that was appended survives a crash right after
+    // 返回时必须已持久化：已追加的检查点在随后立即崩溃时也不会丢失
+    void append(String workflowId, String checkpoint);
+
+    // all checkpoints of the workflow in the order they were appended, empty if there are none
+    // 按追加顺序返回该工作流的所有检查点，没有则返回空列表
+    List<String> load(String workflowId);
+
+    void delete(String workflowId);
+}
@@ -0,0 +1,225 @@
+package util.checkpoint;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.agentic.planner.Action;
+import dev.langchain4j.agentic.planner.AgentInstance;
+import dev.langchain4j.agentic.planner.AgenticSystemTopology;
+import dev.langchain4j.agentic.planner.InitPlanningContext;
+import dev.langchain4j.agentic.planner.Planner;
+import dev.langchain4j.agentic.planner.PlanningContext;
+import dev.langchain4j.agentic.scope.AgentInvocation;
+import dev.langchain4j.agentic.scope.AgenticScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Makes a long workflow resumable: wraps the planner of a workflow and checkpoints the AgenticScope after every
+// 让长工作流可以恢复：包装工作流的规划器，在每个子智能体完成后
+// completed sub-agent. When the same workflowId runs again after a crash, the completed agents are not called again:
+// 为 AgenticScope 写入检查点。崩溃后以相同的 workflowId 再次运行时，已完成的智能体不会被再次调用：
+// their state changes are restored from the store and the workflow continues with the first unfinished agent.
+// 它们的状态变更从存储中恢复，工作流从第一个未完成的智能体继续执行。
+// Use it with plannerBuilder().planner(() -> new CheckpointingPlanner(new SequentialPlanner(), store, workflowId)).
+// 用法：plannerBuilder().planner(() -> new CheckpointingPlanner(new SequentialPlanner(), store, workflowId))。
+// The built-in AgenticScopeStore only saves a persistent scope when the root call ends, so it cannot help a
+// 内置的 AgenticScopeStore 只在根调用结束时保存持久化作用域，因此对中途崩溃的工作流
+// workflow that crashes halfway. Here every checkpoint is one appended line with only the keys the agent changed,
+// 无能为力。这里每个检查点都是追加的一行，只包含该智能体修改过的键，
+// so the store writes O(changes) instead of the whole scope after every agent. Changes are found by comparing
+// 因此存储每次只写入变更量，而不是在每个智能体之后写入整个作用域。变更是通过比较
+// the JSON of each value with its last checkpoint, so values mutated in place (e.g. a list an agent appended to)
+// 每个值的 JSON 与其上一个检查点得出的，因此被原地修改的值（例如智能体向其追加元素的列表）
+// are caught too; the price is serializing, in memory, the whole scope after every agent.
+// 也能被发现；代价是每个智能体之后都要在内存中序列化整个作用域。
+// Notes:
+// 注意：
+// - the delegate must call one agent at a time (sequence, loop, conditional, ...), nested workflows count as one agent;
+// - 被包装的规划器必须一次只调用一个智能体（顺序、循环、条件等），嵌套工作流算作一个智能体；
+// - on resume the delegate replays its decisions on the restored state, so loop exit conditions are evaluated again;
+// - 恢复时被包装的规划器会基于恢复的状态重放其决策，因此循环退出条件会被再次评估；
+// - state values must be JSON-serializable with Jackson, collections come back as LinkedHashMap/ArrayList/LinkedHashSet;
+// - 状态值必须能被 Jackson 序列化为 JSON，集合恢复后分别是 LinkedHashMap/ArrayList/LinkedHashSet；
+// - chat memories are not part of the AgenticScope, use a persistent ChatMemoryStore to keep those as well.
+// - 聊天记忆不属于 AgenticScope，如需保留请使用持久化的 ChatMemoryStore。
+// The checkpoints are deleted once the workflow is done, so the next run with that workflowId starts fresh.
+// 工作流完成后检查点会被删除，因此下次使用该 workflowId 运行时会重新开始。
+public class CheckpointingPlanner implements Planner {
+
+    private static final Logger log = LoggerFactory.getLogger(CheckpointingPlanner.class);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Planner delegate;
+    private final CheckpointStore store;
+    private final String workflowId;
+
+    private final Map<String, AgentInstance> agentsById = new HashMap<>();
+    // encoded, i.e. deep copies: a value that an agent mutated in place is still told apart from what was checkpointed
+    // 编码后的值，即深拷贝：被智能体原地修改的值仍能与已写入检查点的值区分开
+    private Map<String, JsonNode> lastCheckpointedState = Map.of();
+    private int sequence;
+
+    public CheckpointingPlanner(Planner delegate, CheckpointStore store, String workflowId) {
+        this.delegate = delegate;
+        this.store = store;
+        this.workflowId = workflowId;
+    }
+
+    @Override
+    public void init(InitPlanningContext initPlanningContext) {
+        delegate.init(initPlanningContext);
+        for (AgentInstance agent : initPlanningContext.subagents()) {
+            agentsById.put(agent.agentId(), agent);
+        }
+    }
+
+    @Override
+    public Action firstAction(PlanningContext planningContext) {
+        AgenticScope agenticScope = planningContext.agenticScope();
+        Action action = delegate.firstAction(planningContext);
+
+        List<String> checkpoints = store.load(workflowId);
+        for (String checkpoint : checkpoints) {
+            // replay: restore what the completed agent wrote and let the delegate decide what comes after it
+            // 重放：恢复已完成智能体写入的内容，由被包装的规划器决定接下来做什么
+            JsonNode node = readTree(checkpoint);
+            AgentInstance agent = agentsById.get(node.get("agentId").asText());
+            if (agent == null || !(action instanceof Action.AgentCallAction call) || !call.agentsToCall().contains(agent)) {
+                throw new IllegalStateException("The checkpoints of workflow '" + workflowId +
+                        "' do not match this workflow, expected " + action + " but found " + node.get("agentName").asText());
+            }
+            restore(node, agenticScope);
+            sequence = node.get("sequence").asInt();
+            Object output = agent.outputKey() == null ? null : agenticScope.readState(agent.outputKey());
+            action = delegate.nextAction(new PlanningContext(agenticScope,
+                    new AgentInvocation(agent.type(), agent.name(), agent.agentId(), Map.of(), output)));
+        }
+        if (!checkpoints.isEmpty()) {
+            log.info("Resumed workflow '{}' after {} completed agent(s)", workflowId, checkpoints.size());
+            // 在 N 个已完成的智能体之后恢复了工作流
+        }
+
+        lastCheckpointedState = encode(agenticScope.state());
+        return deleteIfDone(action);
+    }
+
+    @Override
+    public synchronized Action nextAction(PlanningContext planningContext) {
+        AgenticScope agenticScope = planningContext.agenticScope();
+        AgentInvocation invocation = planningContext.previousAgentInvocation();
+
+        // the checkpoint must be durable before the workflow moves on
+        // 在工作流继续之前，检查点必须已经持久化
+        Map<String, JsonNode> state = encode(agenticScope.state());
+        store.append(workflowId, checkpoint(invocation, state));
+        lastCheckpointedState = state;
+
+        return deleteIfDone(delegate.nextAction(planningContext));
+    }
+
+    @Override
+    public AgenticSystemTopology topology() {
+        return delegate.topology();
+    }
+
+    private Action deleteIfDone(Action action) {
+        if (action.isDone()) {
+            store.delete(workflowId);
+        }
+        return action;
+    }
+
+    private String checkpoint(AgentInvocation invocation, Map<String, JsonNode> state) {
+        ObjectNode changed = OBJECT_MAPPER.createObjectNode();
+        for (Map.Entry<String, JsonNode> entry : state.entrySet()) {
+            if (!entry.getValue().equals(lastCheckpointedState.get(entry.getKey()))) {
+                changed.set(entry.getKey(), entry.getValue());
+            }
+        }
+        ArrayNode removed = OBJECT_MAPPER.createArrayNode();
+        for (String key : lastCheckpointedState.keySet()) {
+            if (!state.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+
+        ObjectNode checkpoint = OBJECT_MAPPER.createObjectNode();
+        checkpoint.put("sequence", ++sequence);
+        checkpoint.put("agentId", invocation.agentId());
+        checkpoint.put("agentName", invocation.agentName());
+        checkpoint.set("state", changed);
+        checkpoint.set("removed", removed);
+        return checkpoint.toString();
+    }
+
+    private static void restore(JsonNode checkpoint, AgenticScope agenticScope) {
+        checkpoint.get("state").properties().forEach(entry ->
+                agenticScope.writeState(entry.getKey(), decode(entry.getKey(), entry.getValue())));
+        checkpoint.get("removed").forEach(key -> agenticScope.state().remove(key.asText()));
+    }
+
+    private static Map<String, JsonNode> encode(Map<String, Object> state) {
+        Map<String, JsonNode> encoded = new HashMap<>();
+        state.forEach((key, value) -> encoded.put(key, encode(key, value)));
+        return encoded;
+    }
+
+    private static JsonNode encode(String key, Object value) {
+        ObjectNode node = OBJECT_MAPPER.createObjectNode();
+        node.put("type", typeName(value));
+        try {
+            node.set("value", OBJECT_MAPPER.valueToTree(value));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Cannot checkpoint key '" + key + "', its value of type " +
+                    value.getClass().getName() + " is not JSON-serializable", e);
+        }
+        return node;
+    }
+
+    private static String typeName(Object value) {
+        // collections are restored as generic collections, their implementation class may not be instantiable
+        // 集合被恢复为通用集合，因为其实现类不一定能被实例化
+        if (value instanceof Map<?, ?>) {
+            return Map.class.getName();
+        } else if (value instanceof List<?>) {
+            return List.class.getName();
+        } else if (value instanceof Set<?>) {
+            return Set.class.getName();
+        }
+        return value.getClass().getName();
+    }
+
+    private static Object decode(String key, JsonNode node) {
+        String type = node.get("type").asText();
+        try {
+            Class<?> valueClass = switch (type) {
+                case "java.util.Map" -> LinkedHashMap.class;
+                case "java.util.List" -> ArrayList.class;
+                case "java.util.Set" -> LinkedHashSet.class;
+                default -> Class.forName(type, false, Thread.currentThread().getContextClassLoader());
+            };
+            return OBJECT_MAPPER.treeToValue(node.get("value"), valueClass);
+        } catch (ClassNotFoundException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot restore key '" + key + "' of type " + type, e);
+        }
+    }
+
+    private static JsonNode readTree(String checkpoint) {
+        try {
+            return OBJECT_MAPPER.readTree(checkpoint);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Corrupt checkpoint: " + checkpoint, e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package util.checkpoint;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+// One append-only log file per workflow, one checkpoint per line, forced to disk on every append.
+// 每个工作流一个仅追加的日志文件，每行一个检查点，每次追加都强制落盘。
+// A crash in the middle of an append leaves a line without its trailing newline, which is ignored when loading.
+// 追加过程中崩溃会留下没有结尾换行符的一行，加载时会被忽略。
+public class FileCheckpointStore implements CheckpointStore {
+
+    private final Path directory;
+
+    public FileCheckpointStore(Path directory) {
+        try {
+            this.directory = Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void append(String workflowId, String checkpoint) {
+        if (checkpoint.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("A checkpoint must be a single line");
+        }
+        try (FileChannel log = FileChannel.open(file(workflowId), CREATE, WRITE, APPEND)) {
+            ByteBuffer line = ByteBuffer.wrap((checkpoint + "\n").getBytes(UTF_8));
+            while (line.hasRemaining()) {
+                log.write(line);
+            }
+            log.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized List<String> load(String workflowId) {
+        Path file = file(workflowId);
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        try {
+            String content = Files.readString(file, UTF_8);
+            List<String> checkpoints = new ArrayList<>();
+            int start = 0;
+            for (int end = content.indexOf('\n'); end >= 0; end = content.indexOf('\n', start)) {
+                checkpoints.add(content.substring(start, end));
+                start = end + 1;
+            }
+            // anything after the last newline is a torn write
+            // 最后一个换行符之后的内容是未写完的记录
+            return checkpoints;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void delete(String workflowId) {
+        try {
+            Files.deleteIfExists(file(workflowId));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path file(String workflowId) {
+        return directory.resolve(URLEncoder.encode(workflowId, UTF_8) + ".log");
+    }
+}
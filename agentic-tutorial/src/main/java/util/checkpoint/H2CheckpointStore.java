@@ -0,0 +1,85 @@
+package util.checkpoint;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+// Checkpoints in an embedded H2 database, e.g. "jdbc:h2:./checkpoints" for a file next to the application.
+// 将检查点保存在嵌入式 H2 数据库中，例如 "jdbc:h2:./checkpoints" 会在应用旁生成一个数据库文件。
+// Every append is its own auto-committed transaction, so it is durable when append returns.
+// 每次追加都是一个自动提交的事务，因此 append 返回时即已持久化。
+public class H2CheckpointStore implements CheckpointStore, AutoCloseable {
+
+    private final Connection connection;
+
+    public H2CheckpointStore(String jdbcUrl) {
+        try {
+            this.connection = DriverManager.getConnection(jdbcUrl);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("""
+                        CREATE TABLE IF NOT EXISTS checkpoints (
+                            sequence BIGINT AUTO_INCREMENT PRIMARY KEY,
+                            workflow_id VARCHAR(255) NOT NULL,
+                            checkpoint CLOB NOT NULL
+                        )""");
+                statement.execute("CREATE INDEX IF NOT EXISTS checkpoints_workflow_id ON checkpoints (workflow_id, sequence)");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to open checkpoint database " + jdbcUrl, e);
+        }
+    }
+
+    @Override
+    public synchronized void append(String workflowId, String checkpoint) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO checkpoints (workflow_id, checkpoint) VALUES (?, ?)")) {
+            statement.setString(1, workflowId);
+            statement.setString(2, checkpoint);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to append checkpoint of workflow " + workflowId, e);
+        }
+    }
+
+    @Override
+    public synchronized List<String> load(String workflowId) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT checkpoint FROM checkpoints WHERE workflow_id = ? ORDER BY sequence")) {
+            statement.setString(1, workflowId);
+            List<String> checkpoints = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    checkpoints.add(resultSet.getString(1));
+                }
+            }
+            return checkpoints;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to load checkpoints of workflow " + workflowId, e);
+        }
+    }
+
+    @Override
+    public synchronized void delete(String workflowId) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "DELETE FROM checkpoints WHERE workflow_id = ?")) {
+            statement.setString(1, workflowId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to delete checkpoints of workflow " + workflowId, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package util.context;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Keeps large documents (CVs, job descriptions, ...) out of the prompts that don't need their content.
+// 让大文档（简历、职位描述等）不出现在不需要其内容的提示词中。
+// A registered document is referred to by a short reference like [[doc:candidateCv]], which a supervisor can read
+// 注册过的文档通过类似 [[doc:candidateCv]] 的短引用来指代，supervisor 可以读取
+// and pass on as an argument. Only the chat models returned by expanding(chatModel) replace the references by the
+// 并将其作为参数传递。只有 expanding(chatModel) 返回的聊天模型才会在调用时把引用替换为
+// full text, at call time: give those to the sub-agents that actually work on the documents.
+// 完整文本：把它们交给真正处理这些文档的子智能体。
+// The token count of every document is estimated once, when it is registered.
+// 每个文档的 token 数只在注册时估算一次。
+public class DocumentReferences {
+
+    private static final Pattern REFERENCE = Pattern.compile("\\[\\[doc:([A-Za-z0-9_.-]+)]]");
+
+    private record Document(String text, int tokenCount) {
+    }
+
+    private final TokenCountEstimator tokenCountEstimator;
+    private final Map<String, Document> documents = new LinkedHashMap<>();
+
+    public DocumentReferences(TokenCountEstimator tokenCountEstimator) {
+        this.tokenCountEstimator = tokenCountEstimator;
+    }
+
+    // registers the document and returns its reference
+    // 注册文档并返回其引用
+    public synchronized String register(String name, String text) {
+        if (!REFERENCE.matcher(reference(name)).matches()) {
+            throw new IllegalArgumentException("Invalid document name: " + name);
+        }
+        documents.put(name, new Document(text, tokenCountEstimator.estimateTokenCountInText(text)));
+        return reference(name);
+    }
+
+    public static String reference(String name) {
+        return "[[doc:" + name + "]]";
+    }
+
+    // one line per document, e.g. "[[doc:candidateCv]] (~850 tokens)", to tell a supervisor what is available
+    // 每个文档一行，例如 "[[doc:candidateCv]] (~850 tokens)"，用于告诉 supervisor 有哪些文档可用
+    public synchronized String catalogue() {
+        StringBuilder catalogue = new StringBuilder();
+        documents.forEach((name, document) -> catalogue.append(reference(name))
+                .append(" (~").append(document.tokenCount()).append(" tokens)\n"));
+        return catalogue.toString();
+    }
+
+    // the tokens that are not sent every time a prompt only carries the reference
+    // 提示词只携带引用时，每次少发送的 token 数
+    public synchronized int tokenCount() {
+        return documents.values().stream().mapToInt(Document::tokenCount).sum();
+    }
+
+    public synchronized String expand(String text) {
+        if (text == null || text.indexOf("[[doc:") < 0) {
+            return text;
+        }
+        Matcher matcher = REFERENCE.matcher(text);
+        StringBuilder expanded = new StringBuilder();
+        while (matcher.find()) {
+            Document document = documents.get(matcher.group(1));
+            // unknown references stay as they are, so the model can report them
+            // 未知引用保持原样，以便模型能报告它们
+            matcher.appendReplacement(expanded, Matcher.quoteReplacement(document == null ? matcher.group() : document.text()));
+        }
+        matcher.appendTail(expanded);
+        return expanded.toString();
+    }
+
+    public ChatModel expanding(ChatModel chatModel) {
+        return new ChatModel() {
+
+            @Override
+            public ChatResponse chat(ChatRequest chatRequest) {
+                List<ChatMessage> messages = new ArrayList<>(chatRequest.messages().size());
+                for (ChatMessage message : chatRequest.messages()) {
+                    messages.add(expand(message));
+                }
+                return chatModel.chat(chatRequest.toBuilder().messages(messages).build());
+            }
+
+            @Override
+            public ChatRequestParameters defaultRequestParameters() {
+                return chatModel.defaultRequestParameters();
+            }
+
+            @Override
+            public Set<Capability> supportedCapabilities() {
+                return chatModel.supportedCapabilities();
+            }
+
+            @Override
+            public ModelProvider provider() {
+                return chatModel.provider();
+            }
+        };
+    }
+
+    private ChatMessage expand(ChatMessage message) {
+        if (message instanceof SystemMessage systemMessage) {
+            return SystemMessage.from(expand(systemMessage.text()));
+        }
+        if (message instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+            String text = userMessage.singleText();
+            String expanded = expand(text);
+            return expanded.equals(text) ? message : userMessage.toBuilder().contents(List.of(TextContent.from(expanded))).build();
+        }
+        return message;
+    }
+}
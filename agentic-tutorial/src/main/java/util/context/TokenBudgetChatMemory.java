@@ -0,0 +1,204 @@
+package util.context;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.chat.ChatModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A chat memory that stays within a token budget by summarizing incrementally.
+// 通过增量总结把 token 数保持在预算之内的聊天记忆。
+// The token count of every message is estimated once, when it is added, and kept as a running total.
+// 每条消息的 token 数只在加入时估算一次，并维护一个累计总数。
+// When the total exceeds maxTokens, the oldest messages are folded into a running summary until the total is back
+// 当总数超过 maxTokens 时，最早的消息会被并入一个滚动摘要，直到总数回到
+// at half the budget: the summarizer only sees the previous summary and the evicted messages, never the whole
+// 预算的一半：总结模型只会看到上一次的摘要和被移出的消息，而不是整段
+// history again, and halving the memory makes summarizing a rare event instead of one call per step.
+// 历史；并且把记忆减半可以让总结成为偶发事件，而不是每一步都调用一次。
+// An AI message that requested tools is only evicted together with its tool results, and the newest exchange is never
+// 请求工具的 AI 消息只会与其工具结果一起被移出，最新的一轮交互永远不会被移出：
+// evicted: when nothing else is left to evict, the memory stays over budget instead of summarizing in vain.
+// 当没有其他可移出的内容时，记忆会暂时超出预算，而不是徒劳地重复总结。
+// The system message is kept as is and does not count against the budget.
+// 系统消息保持不变，不计入预算。
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    private static final String SUMMARY_PREFIX = "Summary of the earlier conversation:\n";
+
+    private final Object id;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final int maxTokens;
+    private final ChatModel summarizer;
+
+    private SystemMessage systemMessage;
+    private String summary;
+    private int summaryTokens;
+    private final List<ChatMessage> messages = new ArrayList<>();
+    private final List<Integer> messageTokens = new ArrayList<>();
+    private int totalTokens;
+    private int summarizations;
+    private boolean compacting;
+    private int generation;
+
+    private record Compaction(int evict, String prompt, int generation) {
+    }
+
+    public TokenBudgetChatMemory(Object id, TokenCountEstimator tokenCountEstimator, int maxTokens, ChatModel summarizer) {
+        this.id = id;
+        this.tokenCountEstimator = tokenCountEstimator;
+        this.maxTokens = maxTokens;
+        this.summarizer = summarizer;
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        Compaction compaction;
+        synchronized (this) {
+            if (message instanceof SystemMessage newSystemMessage) {
+                systemMessage = newSystemMessage;
+                return;
+            }
+            int tokens = tokenCountEstimator.estimateTokenCountInMessage(message);
+            messages.add(message);
+            messageTokens.add(tokens);
+            totalTokens += tokens;
+            if (totalTokens <= maxTokens || compacting) {
+                return;
+            }
+            compaction = planCompaction();
+            if (compaction == null) {
+                return;
+            }
+            compacting = true;
+        }
+        // the summarizer is called without holding the lock, and the messages are only evicted once it succeeded:
+        // a failed call leaves the memory as it was, and the next add() tries again
+        // 调用总结模型时不持有锁，并且只有在调用成功后才移出消息：
+        // 调用失败时记忆保持原样，下一次 add() 会再次尝试
+        String newSummary;
+        try {
+            newSummary = summarizer.chat(compaction.prompt());
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                compacting = false;
+            }
+            throw e;
+        }
+        int newSummaryTokens = tokenCountEstimator.estimateTokenCountInText(SUMMARY_PREFIX + newSummary);
+        synchronized (this) {
+            compacting = false;
+            if (generation != compaction.generation()) {
+                // clear() was called meanwhile, the summary belongs to a conversation that no longer exists
+                // 期间调用了 clear()，这个摘要属于一段已不存在的对话
+                return;
+            }
+            // only compaction removes messages, so the evicted ones are still the oldest
+            // 只有压缩会移出消息，因此被移出的消息仍然是最早的那些
+            List<Integer> evictedTokens = messageTokens.subList(0, compaction.evict());
+            for (int tokens : evictedTokens) {
+                totalTokens -= tokens;
+            }
+            evictedTokens.clear();
+            messages.subList(0, compaction.evict()).clear();
+            totalTokens += newSummaryTokens - summaryTokens;
+            summary = newSummary;
+            summaryTokens = newSummaryTokens;
+            summarizations++;
+        }
+    }
+
+    @Override
+    public synchronized List<ChatMessage> messages() {
+        List<ChatMessage> result = new ArrayList<>(messages.size() + 2);
+        if (systemMessage != null) {
+            result.add(systemMessage);
+        }
+        if (summary != null) {
+            result.add(UserMessage.from(SUMMARY_PREFIX + summary));
+        }
+        result.addAll(messages);
+        return result;
+    }
+
+    @Override
+    public synchronized void clear() {
+        generation++;
+        systemMessage = null;
+        summary = null;
+        summaryTokens = 0;
+        messages.clear();
+        messageTokens.clear();
+        totalTokens = 0;
+    }
+
+    // the estimated number of tokens messages() currently sends, without the system message
+    // messages() 当前发送的估算 token 数，不含系统消息
+    public synchronized int tokenCount() {
+        return totalTokens;
+    }
+
+    public synchronized int summarizations() {
+        return summarizations;
+    }
+
+    // called with the lock held; returns null when nothing can be evicted
+    // 在持有锁时调用；没有可移出的消息时返回 null
+    private Compaction planCompaction() {
+        // never evict the newest message, it is the one the model has to answer, nor the tool results that come with it
+        // 永远不移出最新的消息（它是模型要回答的那条），也不移出与它一起的工具结果
+        int lastGroupStart = messages.size() - 1;
+        while (lastGroupStart > 0 && messages.get(lastGroupStart) instanceof ToolExecutionResultMessage) {
+            lastGroupStart--;
+        }
+        // evict whole groups: an AI message that requested tools goes together with the tool results answering it,
+        // so the history never starts with a tool result whose request is gone
+        // 按组移出：请求工具的 AI 消息与回应它的工具结果一起移出，
+        // 这样历史永远不会以一个请求已被移出的工具结果开头
+        int evict = 0;
+        int remainingTokens = totalTokens;
+        while (evict < lastGroupStart && remainingTokens > maxTokens / 2) {
+            do {
+                remainingTokens -= messageTokens.get(evict++);
+            } while (evict < lastGroupStart && messages.get(evict) instanceof ToolExecutionResultMessage);
+        }
+        if (evict == 0) {
+            // only the newest exchange is left: summarizing again would not free anything, so stay over budget for now
+            // 只剩最新的一轮交互：再次总结也释放不了任何空间，因此暂时超出预算
+            return null;
+        }
+
+        StringBuilder prompt = new StringBuilder("Update the summary of a conversation with the new messages below. ")
+                .append("Keep every decision, result and open question, drop repetitions. ")
+                // a summary that fills the budget would leave no room for new messages and trigger a summary on every add
+                // 占满预算的摘要不会给新消息留下空间，并会导致每次添加都触发总结
+                .append("Use at most ").append(maxTokens / 4).append(" tokens. Answer with the summary only.\n\n")
+                .append("Current summary:\n").append(summary == null ? "(none)" : summary).append("\n\nNew messages:\n");
+        for (ChatMessage message : messages.subList(0, evict)) {
+            prompt.append(message.type()).append(": ").append(text(message)).append('\n');
+        }
+        return new Compaction(evict, prompt.toString(), generation);
+    }
+
+    private static String text(ChatMessage message) {
+        if (message instanceof UserMessage userMessage) {
+            return userMessage.hasSingleText() ? userMessage.singleText() : userMessage.contents().toString();
+        } else if (message instanceof AiMessage aiMessage) {
+            return aiMessage.hasToolExecutionRequests() ? aiMessage.toolExecutionRequests().toString() : aiMessage.text();
+        } else if (message instanceof ToolExecutionResultMessage toolResult) {
+            return toolResult.toolName() + " -> " + toolResult.text();
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,120 @@
+package util.human;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Human-in-the-loop without waiting threads: questions for humans are parked here instead of blocking on System.in.
+// 不占用等待线程的人在回路：给人类的问题被存放在这里，而不是阻塞在 System.in 上。
+// Plug it into humanInTheLoopBuilder() and wrap the workflow planners in a CheckpointingPlanner:
+// 把它接入 humanInTheLoopBuilder()，并用 CheckpointingPlanner 包装工作流的规划器：
+//     .requestWriter(request -> queue.post(workflowId, request))
+//     .responseReader(() -> queue.answerOrSuspend(workflowId))
+// - without an answer, answerOrSuspend throws a WorkflowSuspendedException: the invocation ends and its thread is
+// - 没有回答时，answerOrSuspend 抛出 WorkflowSuspendedException：本次调用结束，其线程被
+//   released, the agents completed so far are kept in the checkpoints;
+//   释放，目前已完成的智能体保存在检查点中；
+// - answer() stores the answer and, if the workflow is suspended, calls the onAnswer callback, which invokes the
+// - answer() 保存回答，若工作流已挂起则调用 onAnswer 回调，由它以相同的 workflowId 再次调用工作流：
+//   workflow again with the same workflowId: the checkpoints are replayed and this time answerOrSuspend returns
+//   检查点被重放，这一次 answerOrSuspend 会返回该回答；
+//   the answer; an answer that arrives before the suspension is simply returned by answerOrSuspend.
+//   在挂起之前到达的回答则直接由 answerOrSuspend 返回。
+// So thousands of pending approvals cost a map entry each, not a thread each.
+// 因此成千上万个待审批请求各自只占用一个 map 条目，而不是一个线程。
+// This in-memory queue is a stand-in for a message broker or a REST endpoint (GET pending(), POST answer()):
+// 这个内存队列是消息代理或 REST 接口（GET pending()、POST answer()）的替身：
+// the workflow state itself is durable in the CheckpointStore, a real deployment would persist the questions as well.
+// 工作流状态本身已持久化在 CheckpointStore 中，实际部署时还应把问题也持久化。
+// A workflow has at most one open question at a time, so questions and answers are keyed by workflowId.
+// 一个工作流同一时间最多只有一个未决问题，因此问题和回答都以 workflowId 为键。
+public class HumanRequestQueue {
+
+    public record PendingRequest(String workflowId, Object request, Instant askedAt) {
+    }
+
+    // the state of a workflow's open question: asked, then suspended (no thread waits for it any more) and/or answered
+    // 工作流未决问题的状态：已提出，之后是已挂起（不再有线程等待它）和/或已回答
+    private record Question(PendingRequest request, boolean suspended, boolean answered, Object answer) {
+
+        Question suspend() {
+            return new Question(request, true, false, null);
+        }
+
+        Question answer(Object answer) {
+            return new Question(request, suspended, true, answer);
+        }
+    }
+
+    private final Map<String, Question> questions = new ConcurrentHashMap<>();
+    private volatile Consumer<String> onAnswer = workflowId -> { };
+
+    // called with the workflowId after an answer to a suspended workflow, typically to invoke it again on another thread
+    // 在已挂起的工作流得到回答后以 workflowId 调用，通常用于在另一个线程上再次调用该工作流
+    public void onAnswer(Consumer<String> onAnswer) {
+        this.onAnswer = onAnswer;
+    }
+
+    public void post(String workflowId, Object request) {
+        // a resumed workflow asks its question again while replaying: keep the answer that was given to it
+        // 恢复的工作流在重放时会再次提出同一个问题：保留已经给出的回答
+        questions.compute(workflowId, (id, question) ->
+                question != null && question.answered() && Objects.equals(question.request().request(), request)
+                        ? question
+                        : new Question(new PendingRequest(workflowId, request, Instant.now()), false, false, null));
+    }
+
+    public Object answerOrSuspend(String workflowId) {
+        // checking for the answer and marking the question as suspended is one atomic step,
+        // so answer() either sees the suspension and resumes the workflow, or its answer is returned here
+        // 检查回答与把问题标记为已挂起是一个原子步骤，
+        // 因此 answer() 要么看到挂起并恢复工作流，要么它的回答在这里被返回
+        Question question = questions.compute(workflowId, (id, current) ->
+                current == null || current.answered() ? current : current.suspend());
+        if (question == null || !question.answered()) {
+            throw new WorkflowSuspendedException(workflowId);
+        }
+        questions.remove(workflowId, question);
+        return question.answer();
+    }
+
+    public void answer(String workflowId, Object answer) {
+        Question question = questions.computeIfPresent(workflowId, (id, current) -> {
+            if (current.answered()) {
+                throw notWaiting(workflowId);
+            }
+            return current.answer(answer);
+        });
+        if (question == null) {
+            throw notWaiting(workflowId);
+        }
+        // an invocation still running between post() and answerOrSuspend() picks the answer up itself:
+        // only a suspended workflow is invoked again, so there is never a second invocation running alongside it
+        // 仍在 post() 与 answerOrSuspend() 之间运行的调用会自己取走回答：
+        // 只有已挂起的工作流才会被再次调用，因此绝不会有第二个调用与它同时运行
+        if (question.suspended()) {
+            onAnswer.accept(workflowId);
+        }
+    }
+
+    private static IllegalStateException notWaiting(String workflowId) {
+        return new IllegalStateException("Workflow '" + workflowId + "' is not waiting for an answer");
+    }
+
+    // the open questions, oldest first
+    // 未决问题，按提问时间从早到晚排列
+    public List<PendingRequest> pending() {
+        List<PendingRequest> requests = new ArrayList<>();
+        for (Question question : questions.values()) {
+            if (!question.answered()) {
+                requests.add(question.request());
+            }
+        }
+        requests.sort((a, b) -> a.askedAt().compareTo(b.askedAt()));
+        return requests;
+    }
+}
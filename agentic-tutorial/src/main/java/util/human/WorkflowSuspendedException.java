@@ -0,0 +1,32 @@
+package util.human;
+
+// Thrown by HumanRequestQueue.answerOrSuspend when the human did not answer yet: it ends the workflow invocation
+// 当人类尚未回答时由 HumanRequestQueue.answerOrSuspend 抛出：它会结束本次工作流调用，
+// so no thread is left waiting. The completed agents are in the checkpoints, the question is in the queue.
+// 因此不会留下任何等待中的线程。已完成的智能体保存在检查点中，问题保存在队列中。
+public class WorkflowSuspendedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String workflowId;
+
+    public WorkflowSuspendedException(String workflowId) {
+        super("Workflow '" + workflowId + "' is suspended until a human answers");
+        this.workflowId = workflowId;
+    }
+
+    public String workflowId() {
+        return workflowId;
+    }
+
+    // the agentic framework wraps exceptions of sub-agents, so look for the suspension in the whole cause chain
+    // agentic 框架会包装子智能体抛出的异常，因此要在整个异常链中查找挂起异常
+    public static boolean isSuspension(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WorkflowSuspendedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
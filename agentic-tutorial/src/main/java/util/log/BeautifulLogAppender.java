@@ -3,13 +3,12 @@ package util.log;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.AppenderBase;
 
+// Reconstructs the conversation from the logged HTTP bodies, which requires logRequests(true) and logResponses(true).
+// 从记录下来的 HTTP 请求体重建对话，因此需要 logRequests(true) 和 logResponses(true)。
+// Fine for learning, but too expensive for production: there, use util.tracing.AgentTracer with body logging turned off.
+// 适合学习，但对生产环境来说开销太大：生产环境请关闭请求体日志，改用 util.tracing.AgentTracer。
 public class BeautifulLogAppender extends AppenderBase<ILoggingEvent> {
     
-    private static final StringBuilder httpRequestBuffer = new StringBuilder();
-    private static final StringBuilder httpResponseBuffer = new StringBuilder();
-    private static boolean inHttpRequest = false;
-    private static boolean inHttpResponse = false;
-    
     @Override
     protected void append(ILoggingEvent event) {
         String message = event.getFormattedMessage();
@@ -0,0 +1,306 @@
+package util.tracing;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agentic.observability.AgentInvocationError;
+import dev.langchain4j.agentic.observability.AgentListener;
+import dev.langchain4j.agentic.observability.AgentRequest;
+import dev.langchain4j.agentic.observability.AgentResponse;
+import dev.langchain4j.agentic.planner.AgentInstance;
+import dev.langchain4j.agentic.scope.AgenticScope;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Traces agentic workflows without looking at HTTP logs: one span per agent invocation, per LLM call and per tool call.
+// 不依赖 HTTP 日志来追踪智能体工作流：每次智能体调用、每次 LLM 调用和每次工具调用各一个 span。
+// Register it with .listener(tracer) on the outermost agent (it is inherited by all sub-agents) and build the agents
+// 在最外层智能体上通过 .listener(tracer) 注册（所有子智能体都会继承），并用 tracer.traced(chatModel)
+// with tracer.traced(chatModel). Finished spans go to the SpanExporter.
+// 构建智能体。结束的 span 会交给 SpanExporter。
+// Only ids, names, timings and token counts are recorded, never message contents, so the model can be built with
+// 只记录 id、名称、耗时和 token 数，从不记录消息内容，因此模型可以关闭
+// logRequests(false) and logResponses(false): no request bodies are serialized, logged or parsed again.
+// logRequests(false) 和 logResponses(false)：请求体不会被序列化、记录或再次解析。
+// Agent spans carry the summed token usage of the LLM calls below them.
+// 智能体 span 上带有其下所有 LLM 调用的 token 用量之和。
+// Tool calls are executed by the agent between two LLM calls, so a tool span starts when an LLM call returns a tool
+// 工具调用由智能体在两次 LLM 调用之间执行，因此工具 span 从 LLM 调用返回工具执行请求时开始，
+// execution request and ends when the result is sent back to the model (or when the agent ends).
+// 到结果被发回给模型时（或智能体结束时）结束。
+public class AgentTracer implements AgentListener {
+
+    private static class OpenSpan {
+
+        final String traceId;
+        final String spanId = randomHex();
+        final String parentSpanId;
+        final String name;
+        final SpanData.Kind kind;
+        final long startEpochNanos = epochNanos();
+        final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        final AtomicLong inputTokens = new AtomicLong();
+        final AtomicLong outputTokens = new AtomicLong();
+        OpenSpan previousOnThread;
+
+        OpenSpan(OpenSpan parent, String name, SpanData.Kind kind) {
+            this.traceId = parent == null ? randomHex() + randomHex() : parent.traceId;
+            this.parentSpanId = parent == null ? null : parent.spanId;
+            this.name = name;
+            this.kind = kind;
+        }
+    }
+
+    // epoch-based timestamps with nanoTime precision
+    // 基于纪元的时间戳，精度来自 nanoTime
+    private static final long EPOCH_NANOS_AT_START = System.currentTimeMillis() * 1_000_000;
+    private static final long NANO_TIME_AT_START = System.nanoTime();
+
+    private final SpanExporter exporter;
+
+    // open agent spans by AgenticScope and agentId, to find the parent of sub-agents running on other threads
+    // 按 AgenticScope 和 agentId 保存打开的智能体 span，用于为在其他线程上运行的子智能体找到父 span
+    private final Map<AgenticScope, Map<String, OpenSpan>> agentSpans = Collections.synchronizedMap(new IdentityHashMap<>());
+    private final ThreadLocal<OpenSpan> currentAgentSpan = new ThreadLocal<>();
+    private final ThreadLocal<Map<String, OpenSpan>> pendingToolSpans = ThreadLocal.withInitial(HashMap::new);
+
+    public AgentTracer(SpanExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    // Agent spans
+    // 智能体 span
+
+    @Override
+    public void beforeAgentInvocation(AgentRequest agentRequest) {
+        AgentInstance agent = agentRequest.agent();
+        OpenSpan parent = agent.parent() == null ? null : openAgentSpans(agentRequest.agenticScope()).get(agent.parent().agentId());
+        if (parent == null) {
+            parent = currentAgentSpan.get();
+        }
+        OpenSpan span = new OpenSpan(parent, "invoke_agent " + agent.name(), SpanData.Kind.INTERNAL);
+        span.attributes.put("gen_ai.operation.name", "invoke_agent");
+        span.attributes.put("gen_ai.agent.name", agent.name());
+        span.attributes.put("gen_ai.agent.id", agent.agentId());
+        span.attributes.put("agentic.topology", agent.topology().name());
+
+        openAgentSpans(agentRequest.agenticScope()).put(agent.agentId(), span);
+        span.previousOnThread = currentAgentSpan.get();
+        currentAgentSpan.set(span);
+    }
+
+    @Override
+    public void afterAgentInvocation(AgentResponse agentResponse) {
+        endAgentSpan(agentResponse.agenticScope(), agentResponse.agentId(), null);
+    }
+
+    @Override
+    public void onAgentInvocationError(AgentInvocationError agentInvocationError) {
+        endAgentSpan(agentInvocationError.agenticScope(), agentInvocationError.agentId(), agentInvocationError.error());
+    }
+
+    @Override
+    public void beforeAgenticScopeDestroyed(AgenticScope agenticScope) {
+        agentSpans.remove(agenticScope);
+    }
+
+    @Override
+    public boolean inheritedBySubagents() {
+        return true;
+    }
+
+    private void endAgentSpan(AgenticScope agenticScope, String agentId, Throwable error) {
+        OpenSpan span = openAgentSpans(agenticScope).remove(agentId);
+        if (span == null) {
+            return;
+        }
+        if (currentAgentSpan.get() == span) {
+            // tool calls that never reported back to the model, e.g. tools with an immediate return
+            // 从未回报给模型的工具调用，例如立即返回的工具
+            endToolSpans(span, null);
+            if (span.previousOnThread == null) {
+                currentAgentSpan.remove();
+            } else {
+                currentAgentSpan.set(span.previousOnThread);
+            }
+        }
+        if (span.inputTokens.get() > 0 || span.outputTokens.get() > 0) {
+            span.attributes.put("gen_ai.usage.input_tokens", span.inputTokens.get());
+            span.attributes.put("gen_ai.usage.output_tokens", span.outputTokens.get());
+        }
+        if (span.parentSpanId != null) {
+            OpenSpan parent = findOpenAgentSpan(agenticScope, span.parentSpanId);
+            if (parent != null) {
+                parent.inputTokens.addAndGet(span.inputTokens.get());
+                parent.outputTokens.addAndGet(span.outputTokens.get());
+            }
+        }
+        if (span.parentSpanId == null) {
+            agentSpans.remove(agenticScope);
+        }
+        end(span, error);
+    }
+
+    private Map<String, OpenSpan> openAgentSpans(AgenticScope agenticScope) {
+        return agentSpans.computeIfAbsent(agenticScope, scope -> new ConcurrentHashMap<>());
+    }
+
+    private OpenSpan findOpenAgentSpan(AgenticScope agenticScope, String spanId) {
+        for (OpenSpan span : openAgentSpans(agenticScope).values()) {
+            if (span.spanId.equals(spanId)) {
+                return span;
+            }
+        }
+        return null;
+    }
+
+    // LLM call and tool spans
+    // LLM 调用与工具 span
+
+    public ChatModel traced(ChatModel chatModel) {
+        return new ChatModel() {
+
+            @Override
+            public ChatResponse chat(ChatRequest chatRequest) {
+                return tracedChat(chatModel, chatRequest);
+            }
+
+            @Override
+            public ChatRequestParameters defaultRequestParameters() {
+                return chatModel.defaultRequestParameters();
+            }
+
+            @Override
+            public Set<Capability> supportedCapabilities() {
+                return chatModel.supportedCapabilities();
+            }
+
+            @Override
+            public ModelProvider provider() {
+                return chatModel.provider();
+            }
+        };
+    }
+
+    private ChatResponse tracedChat(ChatModel chatModel, ChatRequest chatRequest) {
+        OpenSpan agentSpan = currentAgentSpan.get();
+        endToolSpans(agentSpan, chatRequest.messages());
+
+        String model = chatRequest.modelName() != null ? chatRequest.modelName()
+                : chatModel.defaultRequestParameters() == null ? null : chatModel.defaultRequestParameters().modelName();
+        OpenSpan span = new OpenSpan(agentSpan, model == null ? "chat" : "chat " + model, SpanData.Kind.CLIENT);
+        span.attributes.put("gen_ai.operation.name", "chat");
+        span.attributes.put("gen_ai.provider.name", chatModel.provider().name().toLowerCase());
+        if (model != null) {
+            span.attributes.put("gen_ai.request.model", model);
+        }
+
+        ChatResponse response;
+        try {
+            response = chatModel.chat(chatRequest);
+        } catch (RuntimeException e) {
+            end(span, e);
+            throw e;
+        }
+
+        if (response.id() != null) {
+            span.attributes.put("gen_ai.response.id", response.id());
+        }
+        if (response.modelName() != null) {
+            span.attributes.put("gen_ai.response.model", response.modelName());
+        }
+        if (response.finishReason() != null) {
+            span.attributes.put("gen_ai.response.finish_reasons", List.of(response.finishReason().name().toLowerCase()));
+        }
+        TokenUsage tokenUsage = response.tokenUsage();
+        if (tokenUsage != null) {
+            long inputTokens = tokenUsage.inputTokenCount() == null ? 0 : tokenUsage.inputTokenCount();
+            long outputTokens = tokenUsage.outputTokenCount() == null ? 0 : tokenUsage.outputTokenCount();
+            span.attributes.put("gen_ai.usage.input_tokens", inputTokens);
+            span.attributes.put("gen_ai.usage.output_tokens", outputTokens);
+            if (agentSpan != null) {
+                agentSpan.inputTokens.addAndGet(inputTokens);
+                agentSpan.outputTokens.addAndGet(outputTokens);
+            }
+        }
+        end(span, null);
+
+        AiMessage aiMessage = response.aiMessage();
+        if (aiMessage != null && aiMessage.hasToolExecutionRequests()) {
+            for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                OpenSpan toolSpan = new OpenSpan(agentSpan, "execute_tool " + request.name(), SpanData.Kind.INTERNAL);
+                toolSpan.attributes.put("gen_ai.operation.name", "execute_tool");
+                toolSpan.attributes.put("gen_ai.tool.name", request.name());
+                if (request.id() != null) {
+                    toolSpan.attributes.put("gen_ai.tool.call.id", request.id());
+                }
+                pendingToolSpans.get().put(request.id() == null ? request.name() : request.id(), toolSpan);
+            }
+        }
+        return response;
+    }
+
+    private void endToolSpans(OpenSpan agentSpan, List<ChatMessage> messages) {
+        Map<String, OpenSpan> pending = pendingToolSpans.get();
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (messages == null) {
+            // the agent ended: end all of its remaining tool spans
+            // 智能体已结束：结束其余下的所有工具 span
+            for (Iterator<OpenSpan> it = pending.values().iterator(); it.hasNext(); ) {
+                OpenSpan toolSpan = it.next();
+                if (agentSpan == null || agentSpan.spanId.equals(toolSpan.parentSpanId)) {
+                    it.remove();
+                    end(toolSpan, null);
+                }
+            }
+            return;
+        }
+        // tool results are appended after the last AI message, so only the tail of the conversation has to be checked
+        // 工具结果追加在最后一条 AI 消息之后，因此只需检查对话的末尾
+        for (int i = messages.size() - 1; i >= 0 && !(messages.get(i) instanceof AiMessage); i--) {
+            if (messages.get(i) instanceof ToolExecutionResultMessage result) {
+                OpenSpan toolSpan = pending.remove(result.id() == null ? result.toolName() : result.id());
+                if (toolSpan != null) {
+                    end(toolSpan, null);
+                }
+            }
+        }
+    }
+
+    private void end(OpenSpan span, Throwable error) {
+        exporter.export(new SpanData(span.traceId, span.spanId, span.parentSpanId, span.name, span.kind,
+                span.startEpochNanos, epochNanos(), Map.copyOf(span.attributes),
+                error == null ? SpanData.Status.OK : SpanData.Status.ERROR,
+                error == null ? null : String.valueOf(error.getMessage())));
+    }
+
+    private static long epochNanos() {
+        return EPOCH_NANOS_AT_START + (System.nanoTime() - NANO_TIME_AT_START);
+    }
+
+    // 8 random bytes as 16 hex chars: a span id, or half of a trace id
+    // 8 个随机字节，即 16 个十六进制字符：一个 span id，或半个 trace id
+    private static String randomHex() {
+        return HexFormat.of().toHexDigits(ThreadLocalRandom.current().nextLong());
+    }
+}
@@ -0,0 +1,55 @@
+package util.tracing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Prints every trace as a tree once its root span has ended, e.g.
+// 在根 span 结束后把整个 trace 打印成一棵树，例如
+//   invoke_agent Conditional  2314 ms  tokens 1212/96
+//     invoke_agent organize  2310 ms  tokens 1212/96
+//       chat gpt-4o-mini  812 ms  tokens 402/41
+//       execute_tool sendEmail  3 ms
+//       chat gpt-4o-mini  640 ms  tokens 810/55
+// Spans are buffered per trace until then, so the output of concurrent traces does not interleave.
+// 在此之前 span 按 trace 缓冲，因此并发 trace 的输出不会交错。
+public class ConsoleSpanExporter implements SpanExporter {
+
+    private final Map<String, List<SpanData>> pendingTraces = new HashMap<>();
+
+    @Override
+    public void export(SpanData span) {
+        List<SpanData> trace;
+        synchronized (pendingTraces) {
+            trace = pendingTraces.computeIfAbsent(span.traceId(), traceId -> new ArrayList<>());
+            trace.add(span);
+            if (!span.isRoot()) {
+                return;
+            }
+            pendingTraces.remove(span.traceId());
+        }
+        StringBuilder out = new StringBuilder();
+        print(span, trace, 0, out);
+        System.out.print(out);
+    }
+
+    private static void print(SpanData span, List<SpanData> trace, int depth, StringBuilder out) {
+        out.append("  ".repeat(depth)).append(span.name())
+                .append("  ").append(span.duration().toMillis()).append(" ms");
+        Object inputTokens = span.attributes().get("gen_ai.usage.input_tokens");
+        Object outputTokens = span.attributes().get("gen_ai.usage.output_tokens");
+        if (inputTokens != null || outputTokens != null) {
+            out.append("  tokens ").append(inputTokens).append('/').append(outputTokens);
+        }
+        if (span.status() == SpanData.Status.ERROR) {
+            out.append("  ERROR ").append(span.statusMessage());
+        }
+        out.append('\n');
+        trace.stream()
+                .filter(child -> span.spanId().equals(child.parentSpanId()))
+                .sorted(Comparator.comparingLong(SpanData::startEpochNanos))
+                .forEach(child -> print(child, trace, depth + 1, out));
+    }
+}
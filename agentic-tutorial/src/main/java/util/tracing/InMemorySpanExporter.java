@@ -0,0 +1,24 @@
+package util.tracing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps all finished spans in memory, to inspect them after a run.
+// 把所有已结束的 span 保存在内存中，便于运行后检查。
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final List<SpanData> spans = new ArrayList<>();
+
+    @Override
+    public synchronized void export(SpanData span) {
+        spans.add(span);
+    }
+
+    public synchronized List<SpanData> spans() {
+        return List.copyOf(spans);
+    }
+
+    public synchronized void reset() {
+        spans.clear();
+    }
+}
@@ -0,0 +1,31 @@
+package util.tracing;
+
+import java.time.Duration;
+import java.util.Map;
+
+// A finished span, shaped like an OpenTelemetry span: W3C trace and span ids (32 and 16 hex chars),
+// 一个已结束的 span，结构与 OpenTelemetry span 一致：W3C 格式的 trace id 和 span id（32 和 16 个十六进制字符），
+// epoch nanos timestamps and attributes named after the OpenTelemetry GenAI semantic conventions (gen_ai.*).
+// 纪元纳秒时间戳，属性名遵循 OpenTelemetry GenAI 语义约定（gen_ai.*）。
+// parentSpanId is null for the root span of a trace.
+// 对于 trace 的根 span，parentSpanId 为 null。
+public record SpanData(String traceId, String spanId, String parentSpanId, String name, Kind kind,
+                       long startEpochNanos, long endEpochNanos, Map<String, Object> attributes,
+                       Status status, String statusMessage) {
+
+    public enum Kind {
+        INTERNAL, CLIENT
+    }
+
+    public enum Status {
+        OK, ERROR
+    }
+
+    public Duration duration() {
+        return Duration.ofNanos(endEpochNanos - startEpochNanos);
+    }
+
+    public boolean isRoot() {
+        return parentSpanId == null;
+    }
+}
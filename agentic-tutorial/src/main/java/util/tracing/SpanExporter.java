@@ -0,0 +1,10 @@
+package util.tracing;
+
+// Receives every span when it ends, on the thread that ended it, so implementations must be thread-safe and fast.
+// 每个 span 结束时都会在结束它的线程上交给导出器，因此实现必须线程安全且足够快。
+// Plug in an adapter to forward spans to an OpenTelemetry SDK or an OTLP collector.
+// 可以接入一个适配器，把 span 转发给 OpenTelemetry SDK 或 OTLP 收集器。
+public interface SpanExporter {
+
+    void export(SpanData span);
+}
@@ -0,0 +1,92 @@
+package dev.langchain4j.benchmarks;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.bgesmallenv15q.BgeSmallEnV15QuantizedEmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import shared.ingest.ParallelIngestionPipeline;
+import shared.store.OffHeapEmbeddingStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link EmbeddingStoreContentRetriever} end to end: embedding the query with a local ONNX model
+ * 端到端测量 {@link EmbeddingStoreContentRetriever}：使用本地 ONNX 模型对查询做嵌入，
+ * and searching a store that was filled by the same model, as in the RAG examples.
+ * 并在由同一模型填充的存储中搜索，与 RAG 示例中的做法一致。
+ * <p>
+ * Run with: {@code java -jar target/benchmarks.jar ContentRetrieverBenchmark}
+ * 运行方式：{@code java -jar target/benchmarks.jar ContentRetrieverBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ContentRetrieverBenchmark {
+
+    @Param({"50", "500"})
+    int documents;
+
+    @Param({"2", "10"})
+    int maxResults;
+
+    private ContentRetriever contentRetriever;
+    private List<Query> queries;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticCorpus corpus = new SyntheticCorpus(42);
+        EmbeddingModel embeddingModel = new BgeSmallEnV15QuantizedEmbeddingModel();
+        EmbeddingStore<TextSegment> embeddingStore = new OffHeapEmbeddingStore();
+
+        List<Document> corpusDocuments = new ArrayList<>(documents);
+        for (int i = 0; i < documents; i++) {
+            corpusDocuments.add(Document.from(corpus.paragraphs(400, 80)));
+        }
+        ParallelIngestionPipeline.builder()
+                .documentSplitter(DocumentSplitters.recursive(300, 0))
+                .embeddingModel(embeddingModel)
+                .embeddingStore(embeddingStore)
+                .build()
+                .ingest(corpusDocuments);
+
+        contentRetriever = EmbeddingStoreContentRetriever.builder()
+                .embeddingStore(embeddingStore)
+                .embeddingModel(embeddingModel)
+                .maxResults(maxResults)
+                .build();
+
+        queries = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            queries.add(Query.from(corpus.sentence(10)));
+        }
+    }
+
+    @Benchmark
+    public List<Content> retrieve() {
+        return contentRetriever.retrieve(queries.get(nextQuery++ & (queries.size() - 1)));
+    }
+}
@@ -0,0 +1,60 @@
+package dev.langchain4j.benchmarks;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many documents per second {@link DocumentSplitters#recursive(int, int)} can split.
+ * 测量 {@link DocumentSplitters#recursive(int, int)} 每秒能切分多少个文档。
+ * <p>
+ * Run with: {@code java -jar target/benchmarks.jar DocumentSplitterBenchmark -prof gc}
+ * 运行方式：{@code java -jar target/benchmarks.jar DocumentSplitterBenchmark -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentSplitterBenchmark {
+
+    @Param({"1000", "20000"})
+    int documentWords;
+
+    @Param({"300"})
+    int maxSegmentSizeInChars;
+
+    @Param({"0", "30"})
+    int maxOverlapSizeInChars;
+
+    private DocumentSplitter splitter;
+    private Document document;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        splitter = DocumentSplitters.recursive(maxSegmentSizeInChars, maxOverlapSizeInChars);
+        document = Document.from(new SyntheticCorpus(42).paragraphs(documentWords, 80));
+    }
+
+    @Benchmark
+    public List<TextSegment> recursive() {
+        return splitter.split(document);
+    }
+}
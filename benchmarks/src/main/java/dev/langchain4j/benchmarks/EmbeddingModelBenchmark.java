@@ -0,0 +1,73 @@
+package dev.langchain4j.benchmarks;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.bgesmallenv15q.BgeSmallEnV15QuantizedEmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures local ONNX embedding throughput ({@link BgeSmallEnV15QuantizedEmbeddingModel}) by batch size.
+ * 按批大小测量本地 ONNX 嵌入（{@link BgeSmallEnV15QuantizedEmbeddingModel}）的吞吐量。
+ * <p>
+ * The primary score is {@code embedAll} calls per second; the {@code segments} secondary score
+ * 主分数是每秒 {@code embedAll} 调用次数；次要分数 {@code segments}
+ * is the number of embedded segments per second, which is the one to compare across batch sizes.
+ * 是每秒嵌入的片段数，用于在不同批大小之间进行比较。
+ * <p>
+ * Run with: {@code java -jar target/benchmarks.jar EmbeddingModelBenchmark}
+ * 运行方式：{@code java -jar target/benchmarks.jar EmbeddingModelBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EmbeddingModelBenchmark {
+
+    @Param({"1", "8", "32", "128"})
+    int batchSize;
+
+    @Param({"60"})
+    int wordsPerSegment;
+
+    private EmbeddingModel embeddingModel;
+    private List<TextSegment> batch;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+
+        public long segments;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        embeddingModel = new BgeSmallEnV15QuantizedEmbeddingModel();
+        batch = new SyntheticCorpus(42).segments(batchSize, wordsPerSegment);
+    }
+
+    @Benchmark
+    public Response<List<Embedding>> embedAll(Counters counters) {
+        Response<List<Embedding>> response = embeddingModel.embedAll(batch);
+        counters.segments += batch.size();
+        return response;
+    }
+}
@@ -0,0 +1,114 @@
+package dev.langchain4j.benchmarks;
+
+import dev.langchain4j.community.store.embedding.jvector.JVectorEmbeddingStore;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import shared.store.OffHeapEmbeddingStore;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares search latency of {@link InMemoryEmbeddingStore}, {@link OffHeapEmbeddingStore}
+ * 在相同的合成语料上比较 {@link InMemoryEmbeddingStore}、{@link OffHeapEmbeddingStore}
+ * and {@link JVectorEmbeddingStore} on the same synthetic corpus, by corpus size and {@code maxResults}.
+ * 与 {@link JVectorEmbeddingStore} 的搜索延迟，按语料规模与 {@code maxResults} 分组。
+ * <p>
+ * The first two scan every vector, JVector searches an approximate (HNSW/DiskANN) graph index,
+ * 前两者会扫描所有向量，JVector 则在近似（HNSW/DiskANN）图索引上搜索，
+ * so its results may differ slightly from the exact ones.
+ * 因此其结果可能与精确结果略有差异。
+ * <p>
+ * Run with: {@code java -jar target/benchmarks.jar EmbeddingStoreSearchBenchmark -prof gc}
+ * 运行方式：{@code java -jar target/benchmarks.jar EmbeddingStoreSearchBenchmark -prof gc}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class EmbeddingStoreSearchBenchmark {
+
+    @Param({"10000", "100000"})
+    int corpusSize;
+
+    @Param({"384"})
+    int dimension;
+
+    @Param({"5", "20"})
+    int maxResults;
+
+    @Param({"16"})
+    int jVectorMaxDegree;
+
+    private EmbeddingStore<TextSegment> inMemoryStore;
+    private EmbeddingStore<TextSegment> offHeapStore;
+    private EmbeddingStore<TextSegment> jVectorStore;
+    private List<Embedding> queries;
+    private int nextQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticCorpus corpus = new SyntheticCorpus(42);
+        List<Embedding> embeddings = corpus.embeddings(corpusSize, dimension);
+        List<TextSegment> segments = corpus.segments(corpusSize, 40);
+
+        inMemoryStore = new InMemoryEmbeddingStore<>();
+        inMemoryStore.addAll(embeddings, segments);
+
+        offHeapStore = new OffHeapEmbeddingStore(corpusSize);
+        offHeapStore.addAll(embeddings, segments);
+
+        jVectorStore = JVectorEmbeddingStore.builder()
+                .dimension(dimension)
+                .maxDegree(jVectorMaxDegree)
+                .build();
+        jVectorStore.addAll(embeddings, segments);
+
+        queries = corpus.embeddings(64, dimension);
+
+        // make sure any deferred index building happens before the measurement starts
+        // 确保任何延迟的索引构建都在测量开始前完成
+        jVectorStore.search(request());
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> inMemory() {
+        return inMemoryStore.search(request());
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> offHeap() {
+        return offHeapStore.search(request());
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> jVector() {
+        return jVectorStore.search(request());
+    }
+
+    private EmbeddingSearchRequest request() {
+        Embedding query = queries.get(nextQuery++ & (queries.size() - 1));
+        return EmbeddingSearchRequest.builder()
+                .queryEmbedding(query)
+                .maxResults(maxResults)
+                .build();
+    }
+}
@@ -0,0 +1,160 @@
+package dev.langchain4j.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.cohere.CohereScoringModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import shared.scoring.OnnxCrossEncoderScoringModel;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency of re-ranking the candidates of one query in-process ({@link OnnxCrossEncoderScoringModel})
+ * 比较在进程内（{@link OnnxCrossEncoderScoringModel}）与通过远程评分模型
+ * and with a remote scorer ({@link CohereScoringModel}), as used by {@code ReRankingContentAggregator}.
+ * （{@link CohereScoringModel}）对一个查询的候选结果进行重排序的延迟，二者都可用于 {@code ReRankingContentAggregator}。
+ * <p>
+ * The remote scorer talks to a local HTTP stub of the Cohere rerank API, so the {@code remote} score is the cost of
+ * 远程评分模型访问的是本地的 Cohere rerank API 桩服务，因此 {@code remote} 分数是
+ * the HTTP client and JSON mapping alone; add the network round trip with {@code -p stubLatencyMillis=30}.
+ * 仅 HTTP 客户端与 JSON 映射的开销；可通过 {@code -p stubLatencyMillis=30} 加上网络往返时间。
+ * <p>
+ * The {@code local} scorer needs an ONNX cross-encoder in {@code crossEncoderDir} ({@code model.onnx} and
+ * {@code local} 评分模型需要 {@code crossEncoderDir} 中的 ONNX 交叉编码器（{@code model.onnx} 和
+ * {@code tokenizer.json}), see the README.
+ * {@code tokenizer.json}），参见 README。
+ * <p>
+ * Run with: {@code java -jar target/benchmarks.jar ReRankingBenchmark}
+ * 运行方式：{@code java -jar target/benchmarks.jar ReRankingBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReRankingBenchmark {
+
+    @Param({"local", "remote"})
+    String scorer;
+
+    @Param({"5", "20"})
+    int candidates;
+
+    @Param({"60"})
+    int wordsPerSegment;
+
+    @Param({"0"})
+    int stubLatencyMillis;
+
+    @Param({"models/ms-marco-MiniLM-L6-v2"})
+    String crossEncoderDir;
+
+    private HttpServer stub;
+    private ScoringModel scoringModel;
+    private List<TextSegment> segments;
+    private String query;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SyntheticCorpus corpus = new SyntheticCorpus(42);
+        segments = corpus.segments(candidates, wordsPerSegment);
+        query = corpus.sentence(8);
+
+        if (scorer.equals("local")) {
+            Path model = Path.of(crossEncoderDir, "model.onnx");
+            Path tokenizer = Path.of(crossEncoderDir, "tokenizer.json");
+            if (!Files.exists(model) || !Files.exists(tokenizer)) {
+                throw new IllegalStateException("No cross-encoder found in " + Path.of(crossEncoderDir).toAbsolutePath()
+                        + ", download model.onnx and tokenizer.json as described in the README");
+            }
+            scoringModel = new OnnxCrossEncoderScoringModel(model, tokenizer);
+        } else {
+            stub = startRerankStub(stubLatencyMillis);
+            scoringModel = CohereScoringModel.builder()
+                    .baseUrl("http://localhost:" + stub.getAddress().getPort() + "/v1/")
+                    .apiKey("stub")
+                    .modelName("rerank-multilingual-v3.0")
+                    .build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (stub != null) {
+            stub.stop(0);
+        }
+    }
+
+    @Benchmark
+    public Response<List<Double>> scoreAll() {
+        return scoringModel.scoreAll(segments, query);
+    }
+
+    // answers POST /v1/rerank like Cohere does, with a made-up score per document
+    // 像 Cohere 一样响应 POST /v1/rerank，为每个文档返回一个虚构的分数
+    private static HttpServer startRerankStub(int latencyMillis) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/v1/rerank", exchange -> {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            ObjectNode response = objectMapper.createObjectNode();
+            ArrayNode results = response.putArray("results");
+            int documents = request.get("documents").size();
+            for (int i = 0; i < documents; i++) {
+                results.addObject()
+                        .put("index", i)
+                        .put("relevance_score", 1.0 / (i + 1));
+            }
+            response.putObject("meta").putObject("billed_units").put("search_units", 1);
+            sleep(latencyMillis);
+            respond(exchange, objectMapper.writeValueAsBytes(response));
+        });
+        server.start();
+        return server;
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sleep(int millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package dev.langchain4j.benchmarks;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic data, so benchmarks never need a network connection or external files.
+ * 确定性的合成数据，使基准测试无需网络连接或外部文件。
+ */
+public class SyntheticCorpus {
+
+    private static final String[] WORDS = {
+            "booking", "cancel", "refund", "vehicle", "insurance", "accident", "driver", "rental",
+            "period", "fee", "notice", "damage", "policy", "customer", "payment", "reservation",
+            "mileage", "return", "deposit", "license", "terms", "agreement", "liability", "coverage"
+    };
+
+    private final Random random;
+
+    public SyntheticCorpus(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public List<Embedding> embeddings(int count, int dimension) {
+        List<Embedding> embeddings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            embeddings.add(embedding(dimension));
+        }
+        return embeddings;
+    }
+
+    public Embedding embedding(int dimension) {
+        float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        Embedding embedding = Embedding.from(vector);
+        embedding.normalize();
+        return embedding;
+    }
+
+    public List<TextSegment> segments(int count, int wordsPerSegment) {
+        List<TextSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            segments.add(TextSegment.from(sentence(wordsPerSegment), Metadata.from("index", String.valueOf(i))));
+        }
+        return segments;
+    }
+
+    /**
+     * Text of the given length split into paragraphs separated by blank lines, like a typical plain text document.
+     * 指定长度、以空行分隔段落的文本，类似典型的纯文本文档。
+     */
+    public String paragraphs(int words, int wordsPerParagraph) {
+        StringBuilder sb = new StringBuilder();
+        for (int written = 0; written < words; written += wordsPerParagraph) {
+            if (written > 0) {
+                sb.append("\n\n");
+            }
+            sb.append(sentence(Math.min(wordsPerParagraph, words - written)));
+        }
+        return sb.toString();
+    }
+
+    public String sentence(int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(i % 12 == 0 ? ". " : " ");
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.append('.').toString();
+    }
+}
@@ -6,7 +6,15 @@ import dev.langchain4j.service.SystemMessage;
 import dev.langchain4j.service.UserMessage;
 import dev.langchain4j.service.spring.AiService;
 
-@AiService
+import static dev.langchain4j.service.spring.AiServiceWiringMode.EXPLICIT;
+
+@AiService(
+        wiringMode = EXPLICIT,
+        chatModel = "semanticCachingChatModel",
+        chatMemoryProvider = "chatMemoryProvider",
+        contentRetriever = "contentRetriever",
+        tools = "bookingTools"
+)
 public interface CustomerSupportAgent {
 
     @SystemMessage("""
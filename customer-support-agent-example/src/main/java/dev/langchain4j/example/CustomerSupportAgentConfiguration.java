@@ -5,9 +5,12 @@ import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.document.parser.TextDocumentParser;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.example.cache.SemanticCachingChatModel;
+import dev.langchain4j.example.embedding.MappedEmbeddingIndex;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.memory.chat.TokenWindowChatMemory;
 import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
@@ -15,13 +18,15 @@ import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 
 import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.loadDocument;
 import static dev.langchain4j.model.openai.OpenAiChatModelName.GPT_4_O_MINI;
@@ -37,6 +42,26 @@ public class CustomerSupportAgentConfiguration {
                 .build();
     }
 
+    // Not a candidate for autowiring by type, so everything else (e.g. the judge model in tests)
+    // keeps getting the plain OpenAI model; CustomerSupportAgent refers to this bean by name
+    @Bean(autowireCandidate = false)
+    ChatModel semanticCachingChatModel(ChatModel chatModel,
+                                       EmbeddingModel embeddingModel,
+                                       @Value("${customer-support.semantic-cache.similarity-threshold}") double similarityThreshold,
+                                       @Value("${customer-support.semantic-cache.ttl}") Duration ttl,
+                                       @Value("${customer-support.semantic-cache.max-entries}") int maxEntries) {
+
+        // Repeated FAQ-style questions ("Can I cancel my booking?") are answered from the cache
+        // instead of calling the LLM again, as long as the conversation is in the same state
+        return SemanticCachingChatModel.builder()
+                .delegate(chatModel)
+                .embeddingModel(embeddingModel)
+                .similarityThreshold(similarityThreshold)
+                .ttl(ttl)
+                .maxEntries(maxEntries)
+                .build();
+    }
+
     @Bean
     EmbeddingModel embeddingModel() {
         // Not the best embedding model, but good enough for this demo
@@ -44,31 +69,41 @@ public class CustomerSupportAgentConfiguration {
     }
 
     @Bean
-    EmbeddingStore<TextSegment> embeddingStore(EmbeddingModel embeddingModel, ResourceLoader resourceLoader, TokenCountEstimator tokenizer) throws IOException {
+    EmbeddingStore<TextSegment> embeddingStore(EmbeddingModel embeddingModel,
+                                               ResourceLoader resourceLoader,
+                                               TokenCountEstimator tokenizer,
+                                               @Value("${customer-support.embedding-index.path}") Path indexPath) throws IOException {
 
         // Normally, you would already have your embedding store filled with your data.
         // However, for the purpose of this demonstration, we will:
 
-        // 1. Create an in-memory embedding store
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
-
-        // 2. Load an example document ("Miles of Smiles" terms of use)
+        // 1. Load an example document ("Miles of Smiles" terms of use)
         Resource resource = resourceLoader.getResource("classpath:miles-of-smiles-terms-of-use.txt");
         Document document = loadDocument(resource.getFile().toPath(), new TextDocumentParser());
 
+        // 2. Describe what the index is built from: if the document, the splitter settings or the model change,
+        // the memory-mapped index on disk is detected as stale and rebuilt, otherwise it is opened as-is
+        // without re-embedding anything
+        // (in-process models such as AllMiniLmL6V2EmbeddingModel report "unknown" as modelName(), so the class identifies them)
+        String splitterSettings = "recursive(100, 0, " + tokenizer.getClass().getName() + ")";
+        MappedEmbeddingIndex.Header header = new MappedEmbeddingIndex.Header(
+                embeddingModel.getClass().getName() + ":" + embeddingModel.modelName(),
+                embeddingModel.dimension(),
+                MappedEmbeddingIndex.contentHash(document.text(), splitterSettings));
+
         // 3. Split the document into segments 100 tokens each
         // 4. Convert segments into embeddings
-        // 5. Store embeddings into embedding store
+        // 5. Store embeddings into the index file
         // All this can be done manually, but we will use EmbeddingStoreIngestor to automate this:
-        DocumentSplitter documentSplitter = DocumentSplitters.recursive(100, 0, tokenizer);
-        EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
-                .documentSplitter(documentSplitter)
-                .embeddingModel(embeddingModel)
-                .embeddingStore(embeddingStore)
-                .build();
-        ingestor.ingest(document);
-
-        return embeddingStore;
+        return MappedEmbeddingIndex.openOrBuild(indexPath, header, writer -> {
+            DocumentSplitter documentSplitter = DocumentSplitters.recursive(100, 0, tokenizer);
+            EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
+                    .documentSplitter(documentSplitter)
+                    .embeddingModel(embeddingModel)
+                    .embeddingStore(writer)
+                    .build();
+            ingestor.ingest(document);
+        });
     }
 
     @Bean
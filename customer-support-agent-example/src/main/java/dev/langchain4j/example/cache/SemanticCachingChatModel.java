@@ -0,0 +1,315 @@
+package dev.langchain4j.example.cache;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.TokenUsage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A {@link ChatModel} decorator that answers a user message from a cache when a semantically similar message
+ * was answered before in the same scope, e.g. "Can I cancel my booking?" vs "Is it possible to cancel a booking?".
+ * <p>
+ * The scope is a hash of everything the answer depends on besides the last user message: the request parameters
+ * (including tool specifications), the system message and the whole conversation so far.
+ * Within a scope, the last user message is embedded and compared with the embeddings of previously answered messages.
+ * This way an answer is only reused for a conversation in exactly the same state, so answers personalised
+ * through memory or tool results never leak into other conversations.
+ * <p>
+ * Responses that request tool executions are never cached, since executing tools has side effects.
+ * Entries expire after a TTL, and the least recently used entries are evicted when the cache is full.
+ * Entries are bucketed by scope, and a lookup does an exact scan over the normalized vectors of its own scope only,
+ * which is small, so no ANN index is needed.
+ */
+public class SemanticCachingChatModel implements ChatModel {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticCachingChatModel.class);
+
+    private final ChatModel delegate;
+    private final EmbeddingModel embeddingModel;
+    private final double similarityThreshold;
+    private final Duration ttl;
+    private final int maxEntries;
+
+    // entries are bucketed by scope, so a lookup only scans the answers given in the same conversation state;
+    // a read-write lock (instead of a monitor) lets lookups run concurrently and does not pin virtual threads
+    private final Map<String, List<Entry>> entriesByScope = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong clock = new AtomicLong();
+    private int size;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public record Stats(long hits, long misses, int entries) {
+    }
+
+    private static final class Entry {
+
+        private final String scope;
+        private final float[] vector;
+        private final ChatResponse response;
+        private final long expiresAtMillis;
+        private volatile long lastUsed;
+
+        private Entry(String scope, float[] vector, ChatResponse response, long expiresAtMillis, long lastUsed) {
+            this.scope = scope;
+            this.vector = vector;
+            this.response = response;
+            this.expiresAtMillis = expiresAtMillis;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private SemanticCachingChatModel(Builder builder) {
+        this.delegate = builder.delegate;
+        this.embeddingModel = builder.embeddingModel;
+        this.similarityThreshold = builder.similarityThreshold;
+        this.ttl = builder.ttl;
+        this.maxEntries = builder.maxEntries;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        List<ChatMessage> messages = chatRequest.messages();
+        if (!(messages.get(messages.size() - 1) instanceof UserMessage userMessage) || !userMessage.hasSingleText()) {
+            return delegate.chat(chatRequest);
+        }
+
+        String scope = scope(chatRequest);
+        float[] vector = embed(userMessage.singleText());
+
+        ChatResponse cached = lookup(scope, vector);
+        if (cached != null) {
+            hits.increment();
+            log.debug("Answering from the semantic cache: '{}'", userMessage.singleText());
+            return ChatResponse.builder()
+                    .aiMessage(cached.aiMessage())
+                    .modelName(cached.modelName())
+                    .finishReason(cached.finishReason())
+                    .tokenUsage(new TokenUsage(0, 0))
+                    .build();
+        }
+
+        misses.increment();
+        ChatResponse response = delegate.chat(chatRequest);
+        if (!response.aiMessage().hasToolExecutionRequests()) {
+            store(new Entry(scope, vector, response, System.currentTimeMillis() + ttl.toMillis(), clock.incrementAndGet()));
+        }
+        return response;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            return new Stats(hits.sum(), misses.sum(), size);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private ChatResponse lookup(String scope, float[] vector) {
+        long now = System.currentTimeMillis();
+        lock.readLock().lock();
+        try {
+            List<Entry> candidates = entriesByScope.get(scope);
+            if (candidates == null) {
+                return null;
+            }
+            Entry best = null;
+            double bestSimilarity = similarityThreshold;
+            for (Entry entry : candidates) {
+                // expired entries are removed by the next store(), lookups only skip them
+                if (entry.expiresAtMillis <= now) {
+                    continue;
+                }
+                double similarity = dot(vector, entry.vector);
+                if (similarity >= bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = entry;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            best.lastUsed = clock.incrementAndGet();
+            return best.response;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void store(Entry entry) {
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            List<Entry> bucket = entriesByScope.computeIfAbsent(entry.scope, scope -> new ArrayList<>());
+            size -= removeExpired(bucket, now);
+            bucket.add(entry);
+            size++;
+            if (size > maxEntries) {
+                evict(now);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Called with the write lock held when the cache is full: drops all expired entries and,
+     * if that is not enough, the least recently used one. Only misses pay for this scan, and they call the model anyway.
+     */
+    private void evict(long now) {
+        Entry eldest = null;
+        for (Iterator<List<Entry>> it = entriesByScope.values().iterator(); it.hasNext(); ) {
+            List<Entry> bucket = it.next();
+            size -= removeExpired(bucket, now);
+            if (bucket.isEmpty()) {
+                it.remove();
+                continue;
+            }
+            for (Entry candidate : bucket) {
+                if (eldest == null || candidate.lastUsed < eldest.lastUsed) {
+                    eldest = candidate;
+                }
+            }
+        }
+        if (size > maxEntries && eldest != null) {
+            List<Entry> bucket = entriesByScope.get(eldest.scope);
+            bucket.remove(eldest);
+            if (bucket.isEmpty()) {
+                entriesByScope.remove(eldest.scope);
+            }
+            size--;
+        }
+    }
+
+    private static int removeExpired(List<Entry> bucket, long now) {
+        int before = bucket.size();
+        bucket.removeIf(entry -> entry.expiresAtMillis <= now);
+        return before - bucket.size();
+    }
+
+    private float[] embed(String text) {
+        Embedding embedding = embeddingModel.embed(text).content();
+        embedding.normalize();
+        return embedding.vector();
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static String scope(ChatRequest chatRequest) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(chatRequest.parameters()).getBytes(UTF_8));
+            List<ChatMessage> messages = chatRequest.messages();
+            for (int i = 0; i < messages.size() - 1; i++) {
+                digest.update((byte) 0);
+                digest.update(messages.get(i).toString().getBytes(UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class Builder {
+
+        private ChatModel delegate;
+        private EmbeddingModel embeddingModel;
+        private double similarityThreshold = 0.95;
+        private Duration ttl = Duration.ofHours(1);
+        private int maxEntries = 1000;
+
+        public Builder delegate(ChatModel delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        /**
+         * Minimum cosine similarity between two user messages for the cached answer to be reused.
+         * Too low a value returns answers to different questions, so start high and lower it carefully.
+         */
+        public Builder similarityThreshold(double similarityThreshold) {
+            this.similarityThreshold = similarityThreshold;
+            return this;
+        }
+
+        public Builder ttl(Duration ttl) {
+            this.ttl = ttl;
+            return this;
+        }
+
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public SemanticCachingChatModel build() {
+            if (delegate == null || embeddingModel == null) {
+                throw new IllegalArgumentException("delegate and embeddingModel must be set");
+            }
+            if (similarityThreshold <= 0 || similarityThreshold > 1) {
+                throw new IllegalArgumentException("similarityThreshold must be in (0, 1], but was " + similarityThreshold);
+            }
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("maxEntries must be at least 1, but was " + maxEntries);
+            }
+            return new SemanticCachingChatModel(this);
+        }
+    }
+}
@@ -0,0 +1,587 @@
+package dev.langchain4j.example.embedding;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A read-only {@link EmbeddingStore} backed by a memory-mapped index file.
+ * <p>
+ * The index is written once (by a build step, or lazily on first start) and then opened in milliseconds
+ * by every service instance, instead of re-splitting and re-embedding the source documents on each start.
+ * The file header records the embedding model name, the dimension and a hash of the indexed content,
+ * so {@link #openOrBuild(Path, Header, Consumer)} detects a stale index and rebuilds it.
+ * <p>
+ * File layout (little-endian):
+ * <pre>
+ * magic "L4JEIDX1" | version | dimension | count | model name | content hash
+ * | vectors (count * dimension floats) | inverse norms (count floats)
+ * | row table (count * [payload offset, id length, text length, metadata length])
+ * | payloads (id, text, metadata per row)
+ * </pre>
+ */
+public class MappedEmbeddingIndex implements EmbeddingStore<TextSegment> {
+
+    private static final Logger log = LoggerFactory.getLogger(MappedEmbeddingIndex.class);
+
+    private static final byte[] MAGIC = "L4JEIDX1".getBytes(UTF_8);
+    private static final int VERSION = 1;
+    private static final int ROW_BYTES = Long.BYTES + 3 * Integer.BYTES;
+    private static final int NO_TEXT = -1;
+
+    /**
+     * Identifies what an index was built from. An index whose header differs from the expected one is stale.
+     */
+    public record Header(String modelName, int dimension, String contentHash) {
+    }
+
+    private final Header header;
+    private final int count;
+    private final FloatBuffer[] vectorChunks;
+    private final int rowsPerChunk;
+    private final FloatBuffer inverseNorms;
+    private final ByteBuffer rows;
+    private final ByteBuffer payloads;
+
+    private MappedEmbeddingIndex(Header header, int count, FloatBuffer[] vectorChunks, int rowsPerChunk,
+                                 FloatBuffer inverseNorms, ByteBuffer rows, ByteBuffer payloads) {
+        this.header = header;
+        this.count = count;
+        this.vectorChunks = vectorChunks;
+        this.rowsPerChunk = rowsPerChunk;
+        this.inverseNorms = inverseNorms;
+        this.rows = rows;
+        this.payloads = payloads;
+    }
+
+    /**
+     * Opens the index at {@code path} if its header matches {@code expected};
+     * otherwise lets {@code builder} fill a fresh {@link Writer}, writes it to {@code path} and opens the result.
+     */
+    public static MappedEmbeddingIndex openOrBuild(Path path, Header expected, Consumer<Writer> builder) {
+        if (Files.exists(path)) {
+            Header actual = readHeader(path);
+            if (expected.equals(actual)) {
+                return open(path);
+            }
+            log.info("Embedding index {} is stale (found {}, expected {}), rebuilding", path, actual, expected);
+        } else {
+            log.info("Embedding index {} does not exist, building", path);
+        }
+        Writer writer = new Writer(expected);
+        builder.accept(writer);
+        writer.writeTo(path);
+        return open(path);
+    }
+
+    public static MappedEmbeddingIndex open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            MappedByteBuffer headerBuffer = map(channel, 0, Math.min(channel.size(), 64 * 1024));
+            Header header = parseHeader(headerBuffer, path);
+            int count = headerBuffer.getInt(MAGIC.length + Integer.BYTES * 2);
+            long position = headerBuffer.position();
+
+            int dimension = header.dimension();
+            int rowsPerChunk = Math.max(1, Integer.MAX_VALUE / (dimension * Float.BYTES));
+            int chunks = count == 0 ? 0 : (count + rowsPerChunk - 1) / rowsPerChunk;
+            FloatBuffer[] vectorChunks = new FloatBuffer[chunks];
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int rowsInChunk = Math.min(rowsPerChunk, count - chunk * rowsPerChunk);
+                long size = (long) rowsInChunk * dimension * Float.BYTES;
+                vectorChunks[chunk] = map(channel, position, size).asFloatBuffer();
+                position += size;
+            }
+
+            FloatBuffer inverseNorms = map(channel, position, (long) count * Float.BYTES).asFloatBuffer();
+            position += (long) count * Float.BYTES;
+
+            ByteBuffer rows = map(channel, position, (long) count * ROW_BYTES);
+            position += (long) count * ROW_BYTES;
+
+            ByteBuffer payloads = map(channel, position, channel.size() - position);
+
+            return new MappedEmbeddingIndex(header, count, vectorChunks, rowsPerChunk, inverseNorms, rows, payloads);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open embedding index " + path, e);
+        }
+    }
+
+    /**
+     * Returns the header of the index at {@code path}, or {@code null} if it is not a readable index file.
+     */
+    public static Header readHeader(Path path) {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            return parseHeader(map(channel, 0, Math.min(channel.size(), 64 * 1024)), path);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot read embedding index header from {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Hex-encoded SHA-256 over all {@code parts}, meant to fingerprint the indexed content and ingestion settings.
+     */
+    public static String contentHash(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                byte[] bytes = part.getBytes(UTF_8);
+                digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+                digest.update(bytes);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public Header header() {
+        return header;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = request.queryEmbedding().vector();
+        if (query.length != header.dimension()) {
+            throw new IllegalArgumentException("Expected dimension " + header.dimension() + " but got " + query.length);
+        }
+        double queryNorm = 0;
+        for (float v : query) {
+            queryNorm += v * v;
+        }
+        double inverseQueryNorm = queryNorm == 0 ? 0 : 1 / Math.sqrt(queryNorm);
+
+        Filter filter = request.filter();
+        PriorityQueue<ScoredRow> topK = new PriorityQueue<>(Comparator.comparingDouble(ScoredRow::score));
+        for (int row = 0; row < count; row++) {
+            if (filter != null && !filter.test(metadataAt(row))) {
+                continue;
+            }
+            double cosine = dot(row, query) * inverseNorms.get(row) * inverseQueryNorm;
+            double score = RelevanceScore.fromCosineSimilarity(cosine);
+            if (score < request.minScore()) {
+                continue;
+            }
+            if (topK.size() < request.maxResults()) {
+                topK.add(new ScoredRow(row, score));
+            } else if (!topK.isEmpty() && score > topK.peek().score()) {
+                topK.poll();
+                topK.add(new ScoredRow(row, score));
+            }
+        }
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(topK.size());
+        while (!topK.isEmpty()) {
+            ScoredRow scored = topK.poll();
+            matches.add(0, new EmbeddingMatch<>(scored.score(), idAt(scored.row()), Embedding.from(vectorAt(scored.row())), segmentAt(scored.row())));
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        throw readOnly();
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        throw readOnly();
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("MappedEmbeddingIndex is read-only, rebuild it with MappedEmbeddingIndex.Writer");
+    }
+
+    private float dot(int row, float[] query) {
+        FloatBuffer chunk = vectorChunks[row / rowsPerChunk];
+        int offset = (row % rowsPerChunk) * query.length;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        int upperBound = query.length & ~3;
+        for (; i < upperBound; i += 4) {
+            s0 += chunk.get(offset + i) * query[i];
+            s1 += chunk.get(offset + i + 1) * query[i + 1];
+            s2 += chunk.get(offset + i + 2) * query[i + 2];
+            s3 += chunk.get(offset + i + 3) * query[i + 3];
+        }
+        for (; i < query.length; i++) {
+            s0 += chunk.get(offset + i) * query[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private float[] vectorAt(int row) {
+        float[] vector = new float[header.dimension()];
+        vectorChunks[row / rowsPerChunk].get((row % rowsPerChunk) * vector.length, vector);
+        return vector;
+    }
+
+    private String idAt(int row) {
+        int base = row * ROW_BYTES;
+        return readString(rows.getLong(base), rows.getInt(base + Long.BYTES));
+    }
+
+    private TextSegment segmentAt(int row) {
+        int base = row * ROW_BYTES;
+        int textLength = rows.getInt(base + Long.BYTES + Integer.BYTES);
+        if (textLength == NO_TEXT) {
+            return null;
+        }
+        long textOffset = rows.getLong(base) + rows.getInt(base + Long.BYTES);
+        return TextSegment.from(readString(textOffset, textLength), metadataAt(row));
+    }
+
+    private Metadata metadataAt(int row) {
+        int base = row * ROW_BYTES;
+        int idLength = rows.getInt(base + Long.BYTES);
+        int textLength = Math.max(0, rows.getInt(base + Long.BYTES + Integer.BYTES));
+        int metadataLength = rows.getInt(base + Long.BYTES + 2 * Integer.BYTES);
+        Metadata metadata = new Metadata();
+        if (metadataLength == 0) {
+            return metadata;
+        }
+        ByteBuffer entries = payloads.slice((int) (rows.getLong(base) + idLength + textLength), metadataLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int entryCount = entries.getInt();
+        for (int i = 0; i < entryCount; i++) {
+            String key = readString(entries);
+            char type = (char) entries.get();
+            switch (type) {
+                case 'S' -> metadata.put(key, readString(entries));
+                case 'U' -> metadata.put(key, UUID.fromString(readString(entries)));
+                case 'I' -> metadata.put(key, entries.getInt());
+                case 'L' -> metadata.put(key, entries.getLong());
+                case 'F' -> metadata.put(key, entries.getFloat());
+                case 'D' -> metadata.put(key, entries.getDouble());
+                default -> throw new IllegalStateException("Unknown metadata type '" + type + "' for key " + key);
+            }
+        }
+        return metadata;
+    }
+
+    private String readString(long offset, int length) {
+        byte[] bytes = new byte[length];
+        payloads.get((int) offset, bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static Header parseHeader(ByteBuffer buffer, Path path) {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IllegalStateException(path + " is not an embedding index file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalStateException(path + " has unsupported index version " + version);
+        }
+        int dimension = buffer.getInt();
+        buffer.getInt(); // count, read separately by open()
+        String modelName = readString(buffer);
+        String contentHash = readString(buffer);
+        return new Header(modelName, dimension, contentHash);
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private record ScoredRow(int row, double score) {
+    }
+
+    /**
+     * Collects embeddings like any other {@link EmbeddingStore} (so it can be used with {@code EmbeddingStoreIngestor})
+     * and writes them as an index file. The file is written to a temporary sibling and atomically moved into place,
+     * so readers never observe a half-written index.
+     */
+    public static class Writer implements EmbeddingStore<TextSegment> {
+
+        private final Header header;
+        private final List<String> ids = new ArrayList<>();
+        private final List<Embedding> embeddings = new ArrayList<>();
+        private final List<TextSegment> segments = new ArrayList<>();
+
+        public Writer(Header header) {
+            this.header = header;
+        }
+
+        @Override
+        public String add(Embedding embedding) {
+            return add(embedding, null);
+        }
+
+        @Override
+        public void add(String id, Embedding embedding) {
+            addAll(List.of(id), List.of(embedding), null);
+        }
+
+        @Override
+        public String add(Embedding embedding, TextSegment textSegment) {
+            String id = UUID.randomUUID().toString();
+            ids.add(id);
+            embeddings.add(checkDimension(embedding));
+            segments.add(textSegment);
+            return id;
+        }
+
+        @Override
+        public List<String> addAll(List<Embedding> embeddings) {
+            List<String> ids = generateIds(embeddings.size());
+            addAll(ids, embeddings, null);
+            return ids;
+        }
+
+        @Override
+        public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+            for (int i = 0; i < embeddings.size(); i++) {
+                this.ids.add(ids.get(i));
+                this.embeddings.add(checkDimension(embeddings.get(i)));
+                this.segments.add(embedded == null ? null : embedded.get(i));
+            }
+        }
+
+        @Override
+        public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+            throw new UnsupportedOperationException("Open the written index with MappedEmbeddingIndex.open() to search it");
+        }
+
+        public void writeTo(Path path) {
+            try {
+                Path parent = path.toAbsolutePath().getParent();
+                Files.createDirectories(parent);
+                Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+                try (FileChannel channel = FileChannel.open(temp, WRITE, CREATE, TRUNCATE_EXISTING)) {
+                    write(channel);
+                    channel.force(true);
+                }
+                Files.move(temp, path, REPLACE_EXISTING, ATOMIC_MOVE);
+                log.info("Wrote embedding index {} with {} embeddings", path, embeddings.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write embedding index " + path, e);
+            }
+        }
+
+        private void write(FileChannel channel) throws IOException {
+            int count = embeddings.size();
+            ChannelWriter out = new ChannelWriter(channel);
+
+            out.bytes(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(header.dimension());
+            out.putInt(count);
+            out.string(header.modelName());
+            out.string(header.contentHash());
+
+            for (Embedding embedding : embeddings) {
+                for (float v : embedding.vector()) {
+                    out.putFloat(v);
+                }
+            }
+            for (Embedding embedding : embeddings) {
+                double sum = 0;
+                for (float v : embedding.vector()) {
+                    sum += v * v;
+                }
+                out.putFloat(sum == 0 ? 0f : (float) (1 / Math.sqrt(sum)));
+            }
+
+            List<byte[]> encodedMetadata = new ArrayList<>(count);
+            long payloadOffset = 0;
+            for (int row = 0; row < count; row++) {
+                TextSegment segment = segments.get(row);
+                byte[] metadata = segment == null ? new byte[0] : encode(segment.metadata());
+                encodedMetadata.add(metadata);
+                int idLength = ids.get(row).getBytes(UTF_8).length;
+                int textLength = segment == null ? NO_TEXT : segment.text().getBytes(UTF_8).length;
+                out.putLong(payloadOffset);
+                out.putInt(idLength);
+                out.putInt(textLength);
+                out.putInt(metadata.length);
+                payloadOffset += idLength + Math.max(textLength, 0) + metadata.length;
+            }
+            if (payloadOffset > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Segment texts exceed 2 GB, split the corpus into several indexes");
+            }
+
+            for (int row = 0; row < count; row++) {
+                TextSegment segment = segments.get(row);
+                out.bytes(ids.get(row).getBytes(UTF_8));
+                if (segment != null) {
+                    out.bytes(segment.text().getBytes(UTF_8));
+                }
+                out.bytes(encodedMetadata.get(row));
+            }
+            out.flush();
+        }
+
+        private Embedding checkDimension(Embedding embedding) {
+            if (embedding.dimension() != header.dimension()) {
+                throw new IllegalArgumentException("Expected dimension " + header.dimension() + " but got " + embedding.dimension());
+            }
+            return embedding;
+        }
+
+        private static byte[] encode(Metadata metadata) {
+            Map<String, Object> entries = metadata.toMap();
+            if (entries.isEmpty()) {
+                return new byte[0];
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + entries.size() * 64).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(entries.size());
+            for (Map.Entry<String, Object> entry : entries.entrySet()) {
+                byte[] key = entry.getKey().getBytes(UTF_8);
+                Object value = entry.getValue();
+                byte[] text = value instanceof String || value instanceof UUID ? value.toString().getBytes(UTF_8) : new byte[0];
+                buffer = ensureRemaining(buffer, 2 * Integer.BYTES + key.length + 1 + Long.BYTES + text.length);
+                buffer.putInt(key.length).put(key);
+                if (value instanceof String) {
+                    buffer.put((byte) 'S').putInt(text.length).put(text);
+                } else if (value instanceof UUID) {
+                    buffer.put((byte) 'U').putInt(text.length).put(text);
+                } else if (value instanceof Integer i) {
+                    buffer.put((byte) 'I').putInt(i);
+                } else if (value instanceof Long l) {
+                    buffer.put((byte) 'L').putLong(l);
+                } else if (value instanceof Float f) {
+                    buffer.put((byte) 'F').putFloat(f);
+                } else if (value instanceof Double d) {
+                    buffer.put((byte) 'D').putDouble(d);
+                } else {
+                    throw new IllegalArgumentException("Unsupported metadata type " + value.getClass() + " for key " + entry.getKey());
+                }
+            }
+            byte[] bytes = new byte[buffer.position()];
+            buffer.flip().get(bytes);
+            return bytes;
+        }
+
+        private static ByteBuffer ensureRemaining(ByteBuffer buffer, int required) {
+            if (buffer.remaining() >= required) {
+                return buffer;
+            }
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + required))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            return grown.put(buffer);
+        }
+    }
+
+    private static class ChannelWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putFloat(float value) throws IOException {
+            ensure(Float.BYTES);
+            buffer.putFloat(value);
+        }
+
+        void string(String value) throws IOException {
+            byte[] bytes = value.getBytes(UTF_8);
+            putInt(bytes.length);
+            bytes(bytes);
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            int written = 0;
+            while (written < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, length);
+                written += length;
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
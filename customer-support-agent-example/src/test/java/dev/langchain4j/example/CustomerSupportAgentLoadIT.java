@@ -0,0 +1,137 @@
+package dev.langchain4j.example;
+
+import dev.langchain4j.example.utils.StubOpenAiServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+/**
+ * Fires many concurrent sessions at the REST endpoint while the LLM is a local stub with a fixed latency,
+ * once with request handling on virtual threads (the application's configuration)
+ * and once with the classic thread-per-request setup (200 Tomcat platform threads).
+ * <p>
+ * Each session makes two LLM round trips and executes one tool, all on the request thread.
+ * The peak number of LLM calls in flight shows how many sessions one instance holds at once.
+ * <p>
+ * Tune with {@code -Dload.sessions=...} and {@code -Dload.llm-latency=PT...}.
+ */
+class CustomerSupportAgentLoadIT {
+
+    private static final int SESSIONS = Integer.getInteger("load.sessions", 1000);
+    private static final Duration LLM_LATENCY = Duration.parse(System.getProperty("load.llm-latency", "PT1S"));
+    private static final int PLATFORM_THREADS = 200;
+
+    private static final StubOpenAiServer STUB_LLM = startStubLlm();
+
+    @DynamicPropertySource
+    static void pointToStubLlm(DynamicPropertyRegistry registry) {
+        registry.add("langchain4j.open-ai.chat-model.base-url", STUB_LLM::baseUrl);
+        registry.add("langchain4j.open-ai.chat-model.api-key", () -> "stub");
+        registry.add("logging.level.dev.langchain4j", () -> "INFO");
+    }
+
+    @AfterAll
+    static void stopStubLlm() {
+        STUB_LLM.close();
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = RANDOM_PORT, properties = "spring.threads.virtual.enabled=true")
+    class VirtualThreads {
+
+        @LocalServerPort
+        int port;
+
+        @Test
+        void should_hold_all_sessions_at_once() throws Exception {
+
+            LoadResult result = runSessions(port);
+
+            assertThat(result.failures()).isZero();
+            assertThat(result.peakInFlight()).isGreaterThan(PLATFORM_THREADS);
+        }
+    }
+
+    @Nested
+    @SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+            "spring.threads.virtual.enabled=false",
+            "server.tomcat.threads.max=" + PLATFORM_THREADS
+    })
+    class PlatformThreads {
+
+        @LocalServerPort
+        int port;
+
+        @Test
+        void should_be_limited_by_the_servlet_thread_pool() throws Exception {
+
+            LoadResult result = runSessions(port);
+
+            assertThat(result.failures()).isZero();
+            assertThat(result.peakInFlight()).isLessThanOrEqualTo(PLATFORM_THREADS);
+        }
+    }
+
+    record LoadResult(int failures, int peakInFlight, Duration elapsed) {
+    }
+
+    static LoadResult runSessions(int port) throws Exception {
+        STUB_LLM.resetCounters();
+        String userMessage = URLEncoder.encode("Hi, I am John Doe. When does my booking MS-777 start?", UTF_8);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        long start = System.nanoTime();
+        List<Future<Integer>> statuses = new ArrayList<>();
+        try (ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < SESSIONS; i++) {
+                URI uri = URI.create("http://localhost:%d/customerSupportAgent?sessionId=load-%d&userMessage=%s"
+                        .formatted(port, i, userMessage));
+                statuses.add(sessions.submit(() -> client.send(HttpRequest.newBuilder(uri).build(),
+                        HttpResponse.BodyHandlers.discarding()).statusCode()));
+            }
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        int failures = 0;
+        for (Future<Integer> status : statuses) {
+            if (status.get() != 200) {
+                failures++;
+            }
+        }
+        LoadResult result = new LoadResult(failures, STUB_LLM.peakInFlight(), elapsed);
+        System.out.printf("%d sessions, LLM latency %s: %d failed, peak %d LLM calls in flight, %d LLM calls, took %s (%.1f sessions/s)%n",
+                SESSIONS, LLM_LATENCY, failures, result.peakInFlight(), STUB_LLM.requests(), elapsed,
+                SESSIONS * 1000.0 / elapsed.toMillis());
+        return result;
+    }
+
+    private static StubOpenAiServer startStubLlm() {
+        try {
+            return new StubOpenAiServer(LLM_LATENCY);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package dev.langchain4j.example.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A local stand-in for the OpenAI chat completions endpoint with a fixed response latency.
+ * <p>
+ * The first call of a conversation asks for the {@code getBookingDetails} tool, and the call that carries
+ * the tool result gets a final answer, so every user message makes two LLM round trips and one tool execution.
+ * It records the peak number of requests in flight, which is the number of sessions the application holds at once.
+ */
+public class StubOpenAiServer implements AutoCloseable {
+
+    private static final String TOOL_CALL = """
+            {"id":"chatcmpl-stub","object":"chat.completion","created":0,"model":"gpt-4o-mini",
+             "choices":[{"index":0,"finish_reason":"tool_calls","message":{"role":"assistant","content":null,
+               "tool_calls":[{"id":"call_stub","type":"function","function":{"name":"getBookingDetails",
+                 "arguments":"{\\"bookingNumber\\":\\"MS-777\\",\\"customerName\\":\\"John\\",\\"customerSurname\\":\\"Doe\\"}"}}]}}],
+             "usage":{"prompt_tokens":100,"completion_tokens":20,"total_tokens":120}}
+            """;
+
+    private static final String ANSWER = """
+            {"id":"chatcmpl-stub","object":"chat.completion","created":0,"model":"gpt-4o-mini",
+             "choices":[{"index":0,"finish_reason":"stop","message":{"role":"assistant",
+               "content":"Your booking MS-777 starts on 2025-12-13."}}],
+             "usage":{"prompt_tokens":150,"completion_tokens":15,"total_tokens":165}}
+            """;
+
+    private static final Pattern TOOL_RESULT = Pattern.compile("\"role\"\\s*:\\s*\"tool\"");
+
+    private final HttpServer server;
+    private final Duration latency;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+
+    public StubOpenAiServer(Duration latency) throws IOException {
+        this.latency = latency;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/v1/chat/completions", this::handle);
+        this.server.start();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1";
+    }
+
+    public int peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    public void resetCounters() {
+        peakInFlight.set(0);
+        requests.set(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+        requests.incrementAndGet();
+        try {
+            String request = new String(exchange.getRequestBody().readAllBytes(), UTF_8);
+            Thread.sleep(latency.toMillis());
+            byte[] response = (TOOL_RESULT.matcher(request).find() ? ANSWER : TOOL_CALL).getBytes(UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(response);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -10,6 +10,7 @@ import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.*;
 
@@ -22,6 +23,7 @@ public class DocumentLoaderExamples {
         loadMultipleDocuments();
         loadMultipleDocumentsWithGlob();
         loadMultipleDocumentsRecursively();
+        loadMultipleDocumentsAsStream();
         loadUsingParserFromSPI();
     }
 
@@ -58,6 +60,17 @@ public class DocumentLoaderExamples {
         log.info("");
     }
 
+    private static void loadMultipleDocumentsAsStream() {
+        Path directoryPath = toPath("example-files/");
+        log.info("Streaming documents recursively from: {}", directoryPath);
+        // documents are parsed on 2 threads and handed over one at a time instead of being collected into a List
+        StreamingDocumentLoader loader = new StreamingDocumentLoader(new ApacheTikaDocumentParser(), 2);
+        try (Stream<Document> documents = loader.loadDocumentsRecursively(directoryPath)) {
+            documents.forEach(DocumentLoaderExamples::log);
+        }
+        log.info("");
+    }
+
     private static void loadUsingParserFromSPI() {
         Path documentPath = toPath("example-files/story-about-happy-carrot.pdf");
         log.info("Loading using parser imported through SPI: {}", documentPath);
@@ -1,4 +1,3 @@
-import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.memory.chat.ChatMemoryProvider;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
@@ -6,18 +5,10 @@ import dev.langchain4j.model.openai.OpenAiChatModel;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.MemoryId;
 import dev.langchain4j.service.UserMessage;
-import dev.langchain4j.store.memory.chat.ChatMemoryStore;
-import org.mapdb.DB;
-import org.mapdb.DBMaker;
 
-import java.util.List;
-import java.util.Map;
+import java.nio.file.Path;
 
-import static dev.langchain4j.data.message.ChatMessageDeserializer.messagesFromJson;
-import static dev.langchain4j.data.message.ChatMessageSerializer.messagesToJson;
 import static dev.langchain4j.model.openai.OpenAiChatModelName.GPT_4_O_MINI;
-import static org.mapdb.Serializer.INTEGER;
-import static org.mapdb.Serializer.STRING;
 
 public class ServiceWithPersistentMemoryForEachUserExample {
 
@@ -28,7 +19,12 @@ public class ServiceWithPersistentMemoryForEachUserExample {
 
     public static void main(String[] args) {
 
-        PersistentChatMemoryStore store = new PersistentChatMemoryStore();
+        // You can create your own implementation of ChatMemoryStore and store chat memory whenever you'd like.
+        // ShardedChatMemoryStore keeps each user's messages in MapDB, appending only new messages
+        // and committing the updates of many users together.
+        ShardedChatMemoryStore store = ShardedChatMemoryStore.builder()
+                .directory(Path.of("multi-user-chat-memory"))
+                .build();
 
         ChatMemoryProvider chatMemoryProvider = memoryId -> MessageWindowChatMemory.builder()
                 .id(memoryId)
@@ -53,31 +49,7 @@ public class ServiceWithPersistentMemoryForEachUserExample {
 
         // System.out.println(assistant.chat(1, "What is my name?"));
         // System.out.println(assistant.chat(2, "What is my name?"));
-    }
-
-    // You can create your own implementation of ChatMemoryStore and store chat memory whenever you'd like
-    static class PersistentChatMemoryStore implements ChatMemoryStore {
-
-        private final DB db = DBMaker.fileDB("multi-user-chat-memory.db").transactionEnable().make();
-        private final Map<Integer, String> map = db.hashMap("messages", INTEGER, STRING).createOrOpen();
-
-        @Override
-        public List<ChatMessage> getMessages(Object memoryId) {
-            String json = map.get((int) memoryId);
-            return messagesFromJson(json);
-        }
-
-        @Override
-        public void updateMessages(Object memoryId, List<ChatMessage> messages) {
-            String json = messagesToJson(messages);
-            map.put((int) memoryId, json);
-            db.commit();
-        }
 
-        @Override
-        public void deleteMessages(Object memoryId) {
-            map.remove((int) memoryId);
-            db.commit();
-        }
+        store.close();
     }
-}
\ No newline at end of file
+}
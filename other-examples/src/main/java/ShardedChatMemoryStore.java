@@ -0,0 +1,364 @@
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import org.mapdb.BTreeMap;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Serializer;
+import org.mapdb.serializer.SerializerArrayTuple;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static dev.langchain4j.data.message.ChatMessageDeserializer.messageFromJson;
+import static dev.langchain4j.data.message.ChatMessageSerializer.messageToJson;
+
+/**
+ * A persistent {@link ChatMemoryStore} for many concurrent chat sessions.
+ * <p>
+ * Compared to serializing the whole message list and committing on every update
+ * (see {@link ServiceWithPersistentMemoryExample}):
+ * <ul>
+ *     <li>memory ids are spread over several MapDB files (shards), each with its own lock and write-ahead log;</li>
+ *     <li>every message is stored under its own (memory id, sequence number) key, so an update only appends
+ *     the new messages and removes the ones evicted from the chat memory window;</li>
+ *     <li>updates are group-committed: a shard is committed every {@code commitInterval}, or as soon as
+ *     {@code maxUncommittedUpdates} updates are pending, and {@link #updateMessages} returns once the commit
+ *     that covers its update is durable, so one fsync serves many sessions;</li>
+ *     <li>recently used message lists are kept deserialized in an LRU, so reads skip the JSON round trip.</li>
+ * </ul>
+ */
+public class ShardedChatMemoryStore implements ChatMemoryStore, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedChatMemoryStore.class);
+
+    private final Shard[] shards;
+    private final int maxUncommittedUpdates;
+    private final ScheduledExecutorService committer;
+
+    private ShardedChatMemoryStore(Builder builder) {
+        try {
+            Files.createDirectories(builder.directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.maxUncommittedUpdates = builder.maxUncommittedUpdates;
+        this.shards = new Shard[builder.shards];
+        int cachedMemoriesPerShard = Math.max(1, builder.maxCachedMemories / builder.shards);
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(builder.directory.resolve("chat-memory-" + i + ".db"), cachedMemoriesPerShard);
+        }
+        this.committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-memory-committer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = builder.commitInterval.toNanos();
+        committer.scheduleWithFixedDelay(this::commitAll, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        String key = String.valueOf(memoryId);
+        Shard shard = shardFor(key);
+        shard.lock.lock();
+        try {
+            shard.ensureOpen();
+            return new ArrayList<>(shard.load(key).messages);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        String key = String.valueOf(memoryId);
+        Shard shard = shardFor(key);
+        CompletableFuture<Void> commit;
+        boolean commitNow;
+        shard.lock.lock();
+        try {
+            shard.ensureOpen();
+            shard.update(key, messages);
+            commit = shard.nextCommit;
+            commitNow = ++shard.uncommittedUpdates >= maxUncommittedUpdates;
+        } finally {
+            shard.lock.unlock();
+        }
+        awaitCommit(shard, commit, commitNow);
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        String key = String.valueOf(memoryId);
+        Shard shard = shardFor(key);
+        CompletableFuture<Void> commit;
+        boolean commitNow;
+        shard.lock.lock();
+        try {
+            shard.ensureOpen();
+            shard.delete(key);
+            commit = shard.nextCommit;
+            commitNow = ++shard.uncommittedUpdates >= maxUncommittedUpdates;
+        } finally {
+            shard.lock.unlock();
+        }
+        awaitCommit(shard, commit, commitNow);
+    }
+
+    /**
+     * Commits the pending updates and closes the shards. Any later call fails with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        committer.shutdown();
+        for (Shard shard : shards) {
+            shard.close();
+        }
+    }
+
+    private void awaitCommit(Shard shard, CompletableFuture<Void> commit, boolean commitNow) {
+        if (commitNow) {
+            try {
+                committer.execute(shard::commit);
+            } catch (RejectedExecutionException e) {
+                // closing: the update was registered before close() locked the shard, so its final commit covers it
+            }
+        }
+        try {
+            commit.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Failed to persist chat memory", e.getCause());
+        }
+    }
+
+    private void commitAll() {
+        for (Shard shard : shards) {
+            shard.commit();
+        }
+    }
+
+    private Shard shardFor(String key) {
+        return shards[Math.floorMod(key.hashCode(), shards.length)];
+    }
+
+    /**
+     * Deserialized messages of one memory id, together with the sequence number each of them is stored under.
+     */
+    private static class Memory {
+
+        final List<ChatMessage> messages = new ArrayList<>();
+        final List<Long> sequences = new ArrayList<>();
+        long nextSequence;
+    }
+
+    private static class Shard {
+
+        final DB db;
+        final BTreeMap<Object[], String> messages;
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<String, Memory> cache;
+
+        CompletableFuture<Void> nextCommit = new CompletableFuture<>();
+        int uncommittedUpdates;
+        boolean closed;
+
+        Shard(Path file, int maxCachedMemories) {
+            this.db = DBMaker.fileDB(file.toFile()).transactionEnable().make();
+            this.messages = db.treeMap("messages")
+                    .keySerializer(new SerializerArrayTuple(Serializer.STRING, Serializer.LONG))
+                    .valueSerializer(Serializer.STRING)
+                    .createOrOpen();
+            this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Memory> eldest) {
+                    return size() > maxCachedMemories;
+                }
+            };
+        }
+
+        Memory load(String key) {
+            Memory memory = cache.get(key);
+            if (memory == null) {
+                memory = new Memory();
+                for (Map.Entry<Object[], String> entry : messages.prefixSubMap(new Object[]{key}).entrySet()) {
+                    long sequence = (Long) entry.getKey()[1];
+                    memory.messages.add(messageFromJson(entry.getValue()));
+                    memory.sequences.add(sequence);
+                    memory.nextSequence = sequence + 1;
+                }
+                cache.put(key, memory);
+            }
+            return memory;
+        }
+
+        void update(String key, List<ChatMessage> updated) {
+            Memory memory = load(key);
+            List<ChatMessage> current = memory.messages;
+
+            // Chat memories append new messages at the end and evict old ones right after the kept prefix
+            // (e.g. the system message), so find: common prefix, then evicted messages, then appended messages
+            int prefix = 0;
+            while (prefix < current.size() && prefix < updated.size() && current.get(prefix).equals(updated.get(prefix))) {
+                prefix++;
+            }
+            int evicted = 0;
+            while (!continues(current, prefix + evicted, updated, prefix)) {
+                evicted++;
+            }
+            int kept = current.size() - prefix - evicted;
+
+            for (int i = prefix + evicted - 1; i >= prefix; i--) {
+                messages.remove(new Object[]{key, memory.sequences.get(i)});
+                memory.messages.remove(i);
+                memory.sequences.remove(i);
+            }
+            for (ChatMessage message : updated.subList(prefix + kept, updated.size())) {
+                long sequence = memory.nextSequence++;
+                messages.put(new Object[]{key, sequence}, messageToJson(message));
+                memory.messages.add(message);
+                memory.sequences.add(sequence);
+            }
+        }
+
+        /**
+         * Whether {@code current[from..]} continues as {@code updated[at..]}, i.e. it is a prefix of it.
+         */
+        private static boolean continues(List<ChatMessage> current, int from, List<ChatMessage> updated, int at) {
+            int length = current.size() - from;
+            if (length > updated.size() - at) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (!current.get(from + i).equals(updated.get(at + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void delete(String key) {
+            Memory memory = load(key);
+            for (Long sequence : memory.sequences) {
+                messages.remove(new Object[]{key, sequence});
+            }
+            cache.remove(key);
+        }
+
+        void ensureOpen() {
+            if (closed) {
+                throw new IllegalStateException("The chat memory store is closed");
+            }
+        }
+
+        void commit() {
+            lock.lock();
+            try {
+                // a scheduled commit may still run while, or after, the store is closed
+                if (closed || uncommittedUpdates == 0) {
+                    return;
+                }
+                CompletableFuture<Void> committed = nextCommit;
+                nextCommit = new CompletableFuture<>();
+                uncommittedUpdates = 0;
+                try {
+                    db.commit();
+                    committed.complete(null);
+                } catch (RuntimeException e) {
+                    log.error("Chat memory commit failed, rolling back", e);
+                    db.rollback();
+                    cache.clear();
+                    committed.completeExceptionally(e);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                commit();
+                closed = true;
+                db.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private Path directory = Path.of("chat-memory");
+        private int shards = 8;
+        private Duration commitInterval = Duration.ofMillis(20);
+        private int maxUncommittedUpdates = 256;
+        private int maxCachedMemories = 10_000;
+
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * Number of MapDB files the memory ids are spread over. Each has its own commit lock.
+         */
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * How long an update may wait for the next group commit of its shard.
+         */
+        public Builder commitInterval(Duration commitInterval) {
+            this.commitInterval = commitInterval;
+            return this;
+        }
+
+        /**
+         * Number of pending updates after which a shard is committed without waiting for the interval.
+         */
+        public Builder maxUncommittedUpdates(int maxUncommittedUpdates) {
+            this.maxUncommittedUpdates = maxUncommittedUpdates;
+            return this;
+        }
+
+        /**
+         * Number of deserialized message lists kept in memory, across all shards.
+         */
+        public Builder maxCachedMemories(int maxCachedMemories) {
+            this.maxCachedMemories = maxCachedMemories;
+            return this;
+        }
+
+        public ShardedChatMemoryStore build() {
+            if (shards < 1 || maxUncommittedUpdates < 1 || maxCachedMemories < 1) {
+                throw new IllegalArgumentException("shards, maxUncommittedUpdates and maxCachedMemories must be positive");
+            }
+            return new ShardedChatMemoryStore(this);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.loadDocument;
+
+/**
+ * A lazy alternative to {@code FileSystemDocumentLoader.loadDocuments(...)}, which parses every file
+ * into one {@code List<Document>} before returning.
+ * <p>
+ * The directory is walked lazily and files are parsed on a pool of {@code parallelism} threads.
+ * At most {@code parallelism} files are being parsed or waiting to be consumed at any time,
+ * so peak heap depends on the concurrency level and the largest files, not on the size of the directory.
+ * Documents are returned in completion order, not in directory order.
+ * <p>
+ * The returned stream holds threads and an open directory handle, close it (e.g. with try-with-resources) when done.
+ * Files that cannot be parsed are logged and skipped, the same way {@code FileSystemDocumentLoader} does.
+ */
+public class StreamingDocumentLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamingDocumentLoader.class);
+
+    private static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    private final DocumentParser documentParser;
+    private final int parallelism;
+
+    public StreamingDocumentLoader(DocumentParser documentParser) {
+        this(documentParser, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StreamingDocumentLoader(DocumentParser documentParser, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, but was " + parallelism);
+        }
+        this.documentParser = documentParser;
+        this.parallelism = parallelism;
+    }
+
+    public Stream<Document> loadDocuments(Path directoryPath) {
+        return loadDocuments(directoryPath, path -> true);
+    }
+
+    /**
+     * @param pathMatcher matched against the file name, like {@code FileSystemDocumentLoader.loadDocuments}
+     */
+    public Stream<Document> loadDocuments(Path directoryPath, PathMatcher pathMatcher) {
+        return load(list(directoryPath).filter(path -> pathMatcher.matches(path.getFileName())));
+    }
+
+    public Stream<Document> loadDocumentsRecursively(Path directoryPath) {
+        return loadDocumentsRecursively(directoryPath, path -> true);
+    }
+
+    /**
+     * @param pathMatcher matched against the path relative to {@code directoryPath},
+     *                    like {@code FileSystemDocumentLoader.loadDocumentsRecursively}
+     */
+    public Stream<Document> loadDocumentsRecursively(Path directoryPath, PathMatcher pathMatcher) {
+        return load(walk(directoryPath).filter(path -> pathMatcher.matches(directoryPath.relativize(path))));
+    }
+
+    private Stream<Document> load(Stream<Path> paths) {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, daemonThreads());
+        ParsingIterator documents = new ParsingIterator(paths.iterator(), executor);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(documents, Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    executor.shutdownNow();
+                    paths.close();
+                });
+    }
+
+    /**
+     * Keeps up to {@code parallelism} files in flight and hands out parsed documents one at a time.
+     */
+    private class ParsingIterator implements Iterator<Document> {
+
+        private final Iterator<Path> paths;
+        private final CompletionService<Document> parsing;
+        private int inFlight;
+        private Document next;
+
+        ParsingIterator(Iterator<Path> paths, ExecutorService executor) {
+            this.paths = paths;
+            this.parsing = new ExecutorCompletionService<>(executor);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                while (inFlight < parallelism && paths.hasNext()) {
+                    Path path = paths.next();
+                    parsing.submit(() -> parse(path));
+                    inFlight++;
+                }
+                if (inFlight == 0) {
+                    return false;
+                }
+                next = take();
+            }
+            return true;
+        }
+
+        @Override
+        public Document next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Document document = next;
+            next = null;
+            return document;
+        }
+
+        private Document take() {
+            try {
+                Future<Document> parsed = parsing.take();
+                inFlight--;
+                return parsed.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+    }
+
+    private Document parse(Path path) {
+        try {
+            return loadDocument(path, documentParser);
+        } catch (Exception e) {
+            log.warn("Failed to load document from {}, skipping it", path, e);
+            return null;
+        }
+    }
+
+    private static Stream<Path> list(Path directoryPath) {
+        try {
+            return Files.list(directoryPath).filter(Files::isRegularFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Stream<Path> walk(Path directoryPath) {
+        try {
+            return Files.walk(directoryPath).filter(Files::isRegularFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        int pool = POOL_COUNTER.incrementAndGet();
+        AtomicInteger thread = new AtomicInteger();
+        return runnable -> {
+            Thread t = new Thread(runnable, "document-loader-" + pool + "-" + thread.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -14,12 +14,16 @@ import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.bgesmallenv15q.BgeSmallEnV15QuantizedEmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
-import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import shared.Assistant;
+import shared.embedding.CachingEmbeddingModel;
+import shared.retrieval.HybridContentRetriever;
+import shared.store.Bm25Index;
+import shared.store.Bm25IndexingEmbeddingStore;
+import shared.store.OffHeapEmbeddingStore;
 
+import java.nio.file.Path;
 import java.util.List;
 
 import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.loadDocument;
@@ -132,7 +136,14 @@ public class Naive_RAG_Example {
         // 本例将使用本地进程内嵌入模型，但你可以选择任何受支持的模型。
         // Langchain4j currently supports more than 10 popular embedding model providers.
         // Langchain4j 目前支持超过 10 家主流嵌入模型提供方。
-        EmbeddingModel embeddingModel = new BgeSmallEnV15QuantizedEmbeddingModel();
+        // The model is wrapped in a CachingEmbeddingModel, so restarting the example (or re-ingesting a mostly
+        // 模型被包装在 CachingEmbeddingModel 中，因此重启示例（或重新导入大部分
+        // unchanged document) only embeds the segments whose text has changed.
+        // 未变化的文档）时，只会对文本发生变化的片段做嵌入。
+        EmbeddingModel embeddingModel = CachingEmbeddingModel.builder()
+                .delegate(new BgeSmallEnV15QuantizedEmbeddingModel())
+                .cacheDirectory(Path.of(System.getProperty("java.io.tmpdir"), "rag-examples", "embedding-cache"))
+                .build();
         List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
 
 
@@ -142,15 +153,22 @@ public class Naive_RAG_Example {
         // 在每次与 LLM 交互时，该存储将用于搜索相关片段。
         // For simplicity, this example uses an in-memory embedding store, but you can choose from any supported store.
         // 为简单起见，本例使用内存嵌入存储，但你可以选择任何受支持的存储。
+        // OffHeapEmbeddingStore is a drop-in replacement for InMemoryEmbeddingStore that keeps vectors and texts
+        // OffHeapEmbeddingStore 可直接替换 InMemoryEmbeddingStore，它把向量和文本保存在
+        // off-heap, so large corpora don't put pressure on the garbage collector.
+        // 堆外内存中，因此大型语料不会给垃圾回收器带来压力。
         // Langchain4j currently supports more than 15 popular embedding stores.
         // Langchain4j 目前支持超过 15 种主流嵌入存储。
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        // Segments added to the store are also added to a BM25 keyword index, see the content retriever below.
+        // 添加到存储中的片段也会被添加到 BM25 关键词索引中，参见下面的内容检索器。
+        Bm25Index keywordIndex = new Bm25Index();
+        EmbeddingStore<TextSegment> embeddingStore = new Bm25IndexingEmbeddingStore(new OffHeapEmbeddingStore(), keywordIndex);
         embeddingStore.addAll(embeddings, segments);
 
         // We could also use EmbeddingStoreIngestor to hide manual steps above behind a simpler API.
         // 我们也可以使用 EmbeddingStoreIngestor 将上述手动步骤封装在更简单的 API 背后。
-        // See an example of using EmbeddingStoreIngestor in _01_Advanced_RAG_with_Query_Compression_Example.
-        // 在 _01_Advanced_RAG_with_Query_Compression_Example 中可以看到使用 EmbeddingStoreIngestor 的示例。
+        // See an example of using EmbeddingStoreIngestor in _03_Advanced_RAG_with_ReRanking_Example.
+        // 在 _03_Advanced_RAG_with_ReRanking_Example 中可以看到使用 EmbeddingStoreIngestor 的示例。
 
 
         // The content retriever is responsible for retrieving relevant content based on a user query.
@@ -159,13 +177,18 @@ public class Naive_RAG_Example {
         // 目前它可以检索文本片段，但未来会支持
         // additional modalities like images, audio, and more.
         // 图像、音频等更多模态。
-        ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
+        // Vector search alone scores exact tokens such as booking numbers poorly, so this retriever also searches
+        // 仅靠向量检索对预订号等精确词元的评分很差，因此该检索器还会检索
+        // the keyword index, in parallel, and fuses both result lists.
+        // 关键词索引（并行进行），并融合两个结果列表。
+        ContentRetriever contentRetriever = HybridContentRetriever.builder()
                 .embeddingStore(embeddingStore)
                 .embeddingModel(embeddingModel)
+                .keywordIndex(keywordIndex)
                 .maxResults(2) // on each interaction we will retrieve the 2 most relevant segments
                 // 每次交互将检索最相关的 2 个片段
-                .minScore(0.5) // we want to retrieve segments at least somewhat similar to user query
-                // 我们希望检索至少与用户查询有一定相似度的片段
+                .minScore(0.5) // we want to retrieve segments at least somewhat similar to user query (keyword matches are kept)
+                // 我们希望检索至少与用户查询有一定相似度的片段（关键词匹配会被保留）
                 .build();
 
 
@@ -1,7 +1,6 @@
 package _3_advanced;
 
 import _2_naive.Naive_RAG_Example;
-import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.parser.TextDocumentParser;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.segment.TextSegment;
@@ -18,11 +17,12 @@ import dev.langchain4j.rag.query.transformer.CompressingQueryTransformer;
 import dev.langchain4j.rag.query.transformer.QueryTransformer;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import shared.Assistant;
+import shared.ingest.ParallelIngestionPipeline;
+import shared.store.OffHeapEmbeddingStore;
+
+import java.util.stream.Stream;
 
-import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.loadDocument;
 import static dev.langchain4j.model.openai.OpenAiChatModelName.GPT_4_O_MINI;
 import static shared.Utils.*;
 
@@ -89,19 +89,21 @@ public class _01_Advanced_RAG_with_Query_Compression_Example {
 
     private static Assistant createAssistant(String documentPath) {
 
-        Document document = loadDocument(toPath(documentPath), new TextDocumentParser());
-
         EmbeddingModel embeddingModel = new BgeSmallEnV15QuantizedEmbeddingModel();
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = new OffHeapEmbeddingStore();
 
-        EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
+        // ParallelIngestionPipeline parses and splits on a fork-join pool and embeds in micro-batches,
+        // ParallelIngestionPipeline 在 fork-join 线程池上解析与切分，并以微批次做嵌入，
+        // which pays off once there are many documents to ingest instead of just one.
+        // 当需要导入大量文档而不只是一个时，这样做的收益会很明显。
+        ParallelIngestionPipeline ingestionPipeline = ParallelIngestionPipeline.builder()
                 .documentSplitter(DocumentSplitters.recursive(300, 0))
                 .embeddingModel(embeddingModel)
                 .embeddingStore(embeddingStore)
                 .build();
 
-        ingestor.ingest(document);
+        ingestionPipeline.ingestFiles(Stream.of(toPath(documentPath)), new TextDocumentParser());
 
         ChatModel chatModel = OpenAiChatModel.builder()
                 .apiKey(OPENAI_API_KEY)
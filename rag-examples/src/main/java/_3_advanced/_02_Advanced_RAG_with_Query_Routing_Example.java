@@ -21,8 +21,10 @@ import dev.langchain4j.rag.query.router.LanguageModelQueryRouter;
 import dev.langchain4j.rag.query.router.QueryRouter;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import shared.Assistant;
+import shared.embedding.CachingEmbeddingModel;
+import shared.retrieval.EmbeddingQueryRouter;
+import shared.store.OffHeapEmbeddingStore;
 
 import java.nio.file.Path;
 import java.util.HashMap;
@@ -77,8 +79,10 @@ public class _02_Advanced_RAG_with_Query_Routing_Example {
      * <p>
      * For scenarios 1, 2, and 3, you can implement a custom {@link QueryRouter}.
      * 对于场景 1、2、3，你可以实现自定义 {@link QueryRouter}。
-     * For scenario 4, this example will demonstrate how to use a {@link LanguageModelQueryRouter}.
-     * 对于场景 4，本示例将演示如何使用 {@link LanguageModelQueryRouter}。
+     * For scenario 4, this example will demonstrate how to use a {@link LanguageModelQueryRouter},
+     * 对于场景 4，本示例将演示如何使用 {@link LanguageModelQueryRouter}，
+     * as the fallback of a router that uses semantic similarity (scenario 3) for the clear cases.
+     * 它作为一个路由器的后备，该路由器对明确的情况使用语义相似度（场景 3）。
      */
 
     public static void main(String[] args) {
@@ -96,7 +100,12 @@ public class _02_Advanced_RAG_with_Query_Routing_Example {
 
     private static Assistant createAssistant() {
 
-        EmbeddingModel embeddingModel = new BgeSmallEnV15QuantizedEmbeddingModel();
+        // Both documents are re-embedded on every start, so cache the embeddings by text (see Naive_RAG_Example).
+        // 每次启动都会重新嵌入两个文档，因此按文本缓存嵌入结果（参见 Naive_RAG_Example）。
+        EmbeddingModel embeddingModel = CachingEmbeddingModel.builder()
+                .delegate(new BgeSmallEnV15QuantizedEmbeddingModel())
+                .cacheDirectory(Path.of(System.getProperty("java.io.tmpdir"), "rag-examples", "embedding-cache"))
+                .build();
 
         // Let's create a separate embedding store specifically for biographies.
         // 为人物传记专门创建一个独立的嵌入存储。
@@ -130,7 +139,29 @@ public class _02_Advanced_RAG_with_Query_Routing_Example {
         Map<ContentRetriever, String> retrieverToDescription = new HashMap<>();
         retrieverToDescription.put(biographyContentRetriever, "biography of John Doe");
         retrieverToDescription.put(termsOfUseContentRetriever, "terms of use of car rental company");
-        QueryRouter queryRouter = new LanguageModelQueryRouter(chatModel, retrieverToDescription);
+        QueryRouter languageModelQueryRouter = new LanguageModelQueryRouter(chatModel, retrieverToDescription);
+
+        // The LanguageModelQueryRouter makes an LLM call for every query before retrieval can start.
+        // LanguageModelQueryRouter 会在检索开始前为每个查询调用一次 LLM。
+        // Most queries are clearly about one source, so route by semantic similarity first: the query is embedded
+        // 大多数查询显然只与一个来源有关，所以先按语义相似度路由：用本地模型嵌入查询，
+        // with the local model and compared to the same descriptions plus a few sample queries per retriever.
+        // 并与相同的描述以及每个检索器的几个示例查询进行比较。
+        // The LLM is only asked when the query is about as close to both retrievers.
+        // 只有当查询与两个检索器的接近程度差不多时，才会询问 LLM。
+        QueryRouter queryRouter = EmbeddingQueryRouter.builder()
+                .embeddingModel(embeddingModel)
+                .route(biographyContentRetriever, retrieverToDescription.get(biographyContentRetriever),
+                        "Who is John Doe?",
+                        "Where was John Doe born?",
+                        "What did John Doe achieve in his life?")
+                .route(termsOfUseContentRetriever, retrieverToDescription.get(termsOfUseContentRetriever),
+                        "Can I cancel my booking?",
+                        "What happens if I damage the car?",
+                        "Who may drive the rental car?")
+                .ambiguityMargin(0.05)
+                .fallback(languageModelQueryRouter)
+                .build();
 
         RetrievalAugmentor retrievalAugmentor = DefaultRetrievalAugmentor.builder()
                 .queryRouter(queryRouter)
@@ -152,7 +183,7 @@ public class _02_Advanced_RAG_with_Query_Routing_Example {
 
         List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = new OffHeapEmbeddingStore();
         embeddingStore.addAll(embeddings, segments);
         return embeddingStore;
     }
@@ -17,12 +17,17 @@ import dev.langchain4j.rag.RetrievalAugmentor;
 import dev.langchain4j.rag.content.aggregator.ContentAggregator;
 import dev.langchain4j.rag.content.aggregator.ReRankingContentAggregator;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
-import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import shared.Assistant;
+import shared.scoring.OnnxCrossEncoderScoringModel;
+import shared.retrieval.HybridContentRetriever;
+import shared.store.Bm25Index;
+import shared.store.Bm25IndexingEmbeddingStore;
+import shared.store.OffHeapEmbeddingStore;
+
+import java.nio.file.Path;
 
 import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.loadDocument;
 import static dev.langchain4j.model.openai.OpenAiChatModelName.GPT_4_O_MINI;
@@ -57,8 +62,10 @@ public class _03_Advanced_RAG_with_ReRanking_Example {
      * and eliminate irrelevant results using a more advanced model (e.g., Cohere Rerank).
      * 并使用更高级的模型（如 Cohere Rerank）剔除无关结果。
      * <p>
-     * This example requires "langchain4j-cohere" dependency.
-     * 本示例需要 "langchain4j-cohere" 依赖。
+     * This example requires "langchain4j-cohere" dependency,
+     * 本示例需要 "langchain4j-cohere" 依赖，
+     * or a local ONNX cross-encoder (see {@link OnnxCrossEncoderScoringModel}).
+     * 或者本地 ONNX 交叉编码器（参见 {@link OnnxCrossEncoderScoringModel}）。
      */
 
     public static void main(String[] args) {
@@ -78,7 +85,10 @@ public class _03_Advanced_RAG_with_ReRanking_Example {
 
         EmbeddingModel embeddingModel = new BgeSmallEnV15QuantizedEmbeddingModel();
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        // The ingestor fills the BM25 keyword index too, alongside the vectors.
+        // 导入器也会在写入向量的同时填充 BM25 关键词索引。
+        Bm25Index keywordIndex = new Bm25Index();
+        EmbeddingStore<TextSegment> embeddingStore = new Bm25IndexingEmbeddingStore(new OffHeapEmbeddingStore(), keywordIndex);
 
         EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
                 .documentSplitter(DocumentSplitters.recursive(300, 0))
@@ -88,21 +98,15 @@ public class _03_Advanced_RAG_with_ReRanking_Example {
 
         ingestor.ingest(document);
 
-        ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
+        ContentRetriever contentRetriever = HybridContentRetriever.builder()
                 .embeddingStore(embeddingStore)
                 .embeddingModel(embeddingModel)
+                .keywordIndex(keywordIndex)
                 .maxResults(5) // let's get more results
                 // 让我们获取更多结果
                 .build();
 
-        // To register and get a free API key for Cohere, please visit the following link:
-        // 注册并获取 Cohere 的免费 API key，请访问以下链接：
-        // https://dashboard.cohere.com/welcome/register
-        // Cohere 注册链接
-        ScoringModel scoringModel = CohereScoringModel.builder()
-                .apiKey(System.getenv("COHERE_API_KEY"))
-                .modelName("rerank-multilingual-v3.0")
-                .build();
+        ScoringModel scoringModel = createScoringModel();
 
         ContentAggregator contentAggregator = ReRankingContentAggregator.builder()
                 .scoringModel(scoringModel)
@@ -126,4 +130,31 @@ public class _03_Advanced_RAG_with_ReRanking_Example {
                 .chatMemory(MessageWindowChatMemory.withMaxMessages(10))
                 .build();
     }
+
+    private static ScoringModel createScoringModel() {
+
+        // Re-ranking with a remote model costs a network round trip for every query and needs internet access.
+        // 使用远程模型重排序时，每次查询都要付出一次网络往返，并且需要访问互联网。
+        // To re-rank in-process instead, download an ONNX cross-encoder into one directory, e.g. onnx/model.onnx
+        // 如需改为在进程内重排序，请把 ONNX 交叉编码器下载到同一个目录，例如从
+        // and tokenizer.json from https://huggingface.co/cross-encoder/ms-marco-MiniLM-L6-v2,
+        // https://huggingface.co/cross-encoder/ms-marco-MiniLM-L6-v2 下载 onnx/model.onnx 和 tokenizer.json，
+        // and point CROSS_ENCODER_DIR to it. Its scores are mapped to 0..1, so the same minScore applies.
+        // 并让 CROSS_ENCODER_DIR 指向该目录。其分数会被映射到 0..1，因此同样的 minScore 依然适用。
+        String crossEncoderDir = System.getenv("CROSS_ENCODER_DIR");
+        if (crossEncoderDir != null) {
+            return new OnnxCrossEncoderScoringModel(
+                    Path.of(crossEncoderDir, "model.onnx"),
+                    Path.of(crossEncoderDir, "tokenizer.json"));
+        }
+
+        // To register and get a free API key for Cohere, please visit the following link:
+        // 注册并获取 Cohere 的免费 API key，请访问以下链接：
+        // https://dashboard.cohere.com/welcome/register
+        // Cohere 注册链接
+        return CohereScoringModel.builder()
+                .apiKey(System.getenv("COHERE_API_KEY"))
+                .modelName("rerank-multilingual-v3.0")
+                .build();
+    }
 }
@@ -16,12 +16,14 @@ import dev.langchain4j.rag.RetrievalAugmentor;
 import dev.langchain4j.rag.content.injector.ContentInjector;
 import dev.langchain4j.rag.content.injector.DefaultContentInjector;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
-import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import shared.Assistant;
+import shared.retrieval.HybridContentRetriever;
+import shared.store.Bm25Index;
+import shared.store.Bm25IndexingEmbeddingStore;
+import shared.store.OffHeapEmbeddingStore;
 
 import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.loadDocument;
 import static dev.langchain4j.model.openai.OpenAiChatModelName.GPT_4_O_MINI;
@@ -58,7 +60,10 @@ public class _04_Advanced_RAG_with_Metadata_Example {
 
         EmbeddingModel embeddingModel = new BgeSmallEnV15QuantizedEmbeddingModel();
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        // The ingestor fills the BM25 keyword index too, alongside the vectors.
+        // 导入器也会在写入向量的同时填充 BM25 关键词索引。
+        Bm25Index keywordIndex = new Bm25Index();
+        EmbeddingStore<TextSegment> embeddingStore = new Bm25IndexingEmbeddingStore(new OffHeapEmbeddingStore(), keywordIndex);
 
         EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
                 .documentSplitter(DocumentSplitters.recursive(300, 0))
@@ -68,9 +73,10 @@ public class _04_Advanced_RAG_with_Metadata_Example {
 
         ingestor.ingest(document);
 
-        ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
+        ContentRetriever contentRetriever = HybridContentRetriever.builder()
                 .embeddingStore(embeddingStore)
                 .embeddingModel(embeddingModel)
+                .keywordIndex(keywordIndex)
                 .build();
 
         // Each retrieved segment should include "file_name" and "index" metadata values in the prompt
@@ -15,9 +15,9 @@ import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.filter.Filter;
 import dev.langchain4j.store.embedding.filter.builder.sql.LanguageModelSqlFilterBuilder;
 import dev.langchain4j.store.embedding.filter.builder.sql.TableDefinition;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import org.junit.jupiter.api.Test;
 import shared.Assistant;
+import shared.store.OffHeapEmbeddingStore;
 import shared.Utils;
 
 import java.util.function.Function;
@@ -51,7 +51,7 @@ class _05_Advanced_RAG_with_Metadata_Filtering_Examples {
         TextSegment dogsSegment = TextSegment.from("Article about dogs ...", metadata("animal", "dog"));
         TextSegment birdsSegment = TextSegment.from("Article about birds ...", metadata("animal", "bird"));
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = new OffHeapEmbeddingStore();
         embeddingStore.add(embeddingModel.embed(dogsSegment).content(), dogsSegment);
         embeddingStore.add(embeddingModel.embed(birdsSegment).content(), birdsSegment);
         // embeddingStore contains segments about both dogs and birds
@@ -96,7 +96,7 @@ class _05_Advanced_RAG_with_Metadata_Filtering_Examples {
         TextSegment user1Info = TextSegment.from("My favorite color is green", metadata("userId", "1"));
         TextSegment user2Info = TextSegment.from("My favorite color is red", metadata("userId", "2"));
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = new OffHeapEmbeddingStore();
         embeddingStore.add(embeddingModel.embed(user1Info).content(), user1Info);
         embeddingStore.add(embeddingModel.embed(user2Info).content(), user2Info);
         // embeddingStore contains information about both first and second user
@@ -158,7 +158,7 @@ class _05_Advanced_RAG_with_Metadata_Filtering_Examples {
 
         LanguageModelSqlFilterBuilder sqlFilterBuilder = new LanguageModelSqlFilterBuilder(chatModel, tableDefinition);
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = new OffHeapEmbeddingStore();
         embeddingStore.add(embeddingModel.embed(forrestGump).content(), forrestGump);
         embeddingStore.add(embeddingModel.embed(groundhogDay).content(), groundhogDay);
         embeddingStore.add(embeddingModel.embed(dieHard).content(), dieHard);
@@ -24,8 +24,10 @@ import dev.langchain4j.rag.query.Query;
 import dev.langchain4j.rag.query.router.QueryRouter;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import shared.Assistant;
+import shared.embedding.QueryEmbeddingMemo;
+import shared.retrieval.EmbeddingQueryRouter;
+import shared.store.OffHeapEmbeddingStore;
 
 import java.nio.file.Path;
 import java.util.Collection;
@@ -70,8 +72,10 @@ public class _06_Advanced_RAG_Skip_Retrieval_Example {
      * - Using an LLM to make a decision.
      * - 使用 LLM 做决策。
      * <p>
-     * In this example, we will use an LLM to decide whether a user query should do retrieval or not.
-     * 本示例将使用 LLM 来判断用户查询是否需要检索。
+     * In this example, we will use semantic similarity to decide whether a user query should do retrieval or not,
+     * 本示例将使用语义相似度来判断用户查询是否需要检索，
+     * and ask an LLM only when the similarity is not conclusive.
+     * 只有在相似度无法给出明确结论时才询问 LLM。
      */
 
     public static void main(String[] args) {
@@ -94,12 +98,16 @@ public class _06_Advanced_RAG_Skip_Retrieval_Example {
 
         EmbeddingModel embeddingModel = new BgeSmallEnV15QuantizedEmbeddingModel();
 
+        // The router and the retriever below embed the same query, so let them share one embedding per query.
+        // 下面的路由器和检索器嵌入的是同一个查询，所以让它们共享每个查询的同一个嵌入。
+        EmbeddingModel queryEmbeddingModel = new QueryEmbeddingMemo(embeddingModel);
+
         EmbeddingStore<TextSegment> embeddingStore =
                 embed(toPath("documents/miles-of-smiles-terms-of-use.txt"), embeddingModel);
 
         ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
                 .embeddingStore(embeddingStore)
-                .embeddingModel(embeddingModel)
+                .embeddingModel(queryEmbeddingModel)
                 .maxResults(2)
                 .minScore(0.6)
                 .build();
@@ -109,9 +117,9 @@ public class _06_Advanced_RAG_Skip_Retrieval_Example {
                 .modelName(GPT_4_O_MINI)
                 .build();
 
-        // Let's create a query router.
-        // 创建一个查询路由器。
-        QueryRouter queryRouter = new QueryRouter() {
+        // Let's create a query router that asks the LLM.
+        // 创建一个询问 LLM 的查询路由器。
+        QueryRouter languageModelQueryRouter = new QueryRouter() {
 
             private final PromptTemplate PROMPT_TEMPLATE = PromptTemplate.from(
                     "Is the following query related to the business of the car rental company? " +
@@ -135,6 +143,28 @@ public class _06_Advanced_RAG_Skip_Retrieval_Example {
             }
         };
 
+        // Asking the LLM adds a whole round trip before retrieval even starts, so let's decide by similarity first:
+        // 询问 LLM 会在检索开始之前增加一次完整的往返，所以先按相似度来决定：
+        // the query is embedded with the local model and compared to examples of both kinds of queries.
+        // 用本地模型嵌入查询，并与两类查询的示例进行比较。
+        // Only when it is about as close to both, the LLM above decides.
+        // 只有当它与两者的接近程度差不多时，才由上面的 LLM 决定。
+        QueryRouter queryRouter = EmbeddingQueryRouter.builder()
+                .embeddingModel(queryEmbeddingModel)
+                .route(contentRetriever,
+                        "business of the car rental company: reservations, cancellations, payments, vehicles, drivers, insurance",
+                        "Can I cancel my reservation?",
+                        "What happens if I return the car late?",
+                        "Which documents do I need to rent a car?")
+                .noRetrieval("greetings, small talk and questions unrelated to the car rental company",
+                        "Hi",
+                        "Thanks!",
+                        "What is the capital of France?",
+                        "Tell me a joke")
+                .ambiguityMargin(0.05)
+                .fallback(languageModelQueryRouter)
+                .build();
+
         RetrievalAugmentor retrievalAugmentor = DefaultRetrievalAugmentor.builder()
                 .queryRouter(queryRouter)
                 .build();
@@ -155,7 +185,7 @@ public class _06_Advanced_RAG_Skip_Retrieval_Example {
 
         List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = new OffHeapEmbeddingStore();
         embeddingStore.addAll(embeddings, segments);
         return embeddingStore;
     }
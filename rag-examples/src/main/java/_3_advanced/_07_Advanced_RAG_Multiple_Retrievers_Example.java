@@ -21,8 +21,9 @@ import dev.langchain4j.rag.query.router.DefaultQueryRouter;
 import dev.langchain4j.rag.query.router.QueryRouter;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import shared.Assistant;
+import shared.embedding.QueryEmbeddingMemo;
+import shared.store.OffHeapEmbeddingStore;
 
 import java.nio.file.Path;
 import java.util.List;
@@ -56,13 +57,17 @@ public class _07_Advanced_RAG_Multiple_Retrievers_Example {
 
         EmbeddingModel embeddingModel = new BgeSmallEnV15QuantizedEmbeddingModel();
 
+        // Both retrievers embed the same query, so let them share one embedding per query.
+        // 两个检索器嵌入的是同一个查询，所以让它们共享每个查询的同一个嵌入。
+        EmbeddingModel queryEmbeddingModel = new QueryEmbeddingMemo(embeddingModel);
+
         // Let's create our first content retriever.
         // 创建第一个内容检索器。
         EmbeddingStore<TextSegment> embeddingStore1 =
                 embed(toPath("documents/miles-of-smiles-terms-of-use.txt"), embeddingModel);
         ContentRetriever contentRetriever1 = EmbeddingStoreContentRetriever.builder()
                 .embeddingStore(embeddingStore1)
-                .embeddingModel(embeddingModel)
+                .embeddingModel(queryEmbeddingModel)
                 .maxResults(2)
                 .minScore(0.6)
                 .build();
@@ -73,7 +78,7 @@ public class _07_Advanced_RAG_Multiple_Retrievers_Example {
                 embed(toPath("documents/biography-of-john-doe.txt"), embeddingModel);
         ContentRetriever contentRetriever2 = EmbeddingStoreContentRetriever.builder()
                 .embeddingStore(embeddingStore2)
-                .embeddingModel(embeddingModel)
+                .embeddingModel(queryEmbeddingModel)
                 .maxResults(2)
                 .minScore(0.6)
                 .build();
@@ -107,7 +112,7 @@ public class _07_Advanced_RAG_Multiple_Retrievers_Example {
 
         List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = new OffHeapEmbeddingStore();
         embeddingStore.addAll(embeddings, segments);
         return embeddingStore;
     }
@@ -18,16 +18,17 @@ import dev.langchain4j.rag.RetrievalAugmentor;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.rag.content.retriever.WebSearchContentRetriever;
-import dev.langchain4j.rag.query.router.DefaultQueryRouter;
 import dev.langchain4j.rag.query.router.QueryRouter;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import dev.langchain4j.web.search.WebSearchEngine;
 import dev.langchain4j.web.search.tavily.TavilyWebSearchEngine;
 import shared.Assistant;
+import shared.retrieval.FanOutQueryRouter;
+import shared.store.OffHeapEmbeddingStore;
 
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.loadDocument;
@@ -88,7 +89,18 @@ public class _08_Advanced_RAG_Web_Search_Example {
 
         // Let's create a query router that will route each query to both retrievers.
         // 创建查询路由器，将每个查询路由到两个检索器。
-        QueryRouter queryRouter = new DefaultQueryRouter(embeddingStoreContentRetriever, webSearchContentRetriever);
+        // Both are queried concurrently, but the web search takes seconds while the embedding store takes milliseconds:
+        // 两者会被并发查询，但网页搜索需要几秒，而嵌入存储只需几毫秒：
+        // with a DefaultQueryRouter every answer would wait for the slowest one. Here each retriever has a deadline,
+        // 使用 DefaultQueryRouter 时每个回答都要等待最慢的那个。这里每个检索器都有一个截止时间，
+        // a retriever that misses it is dropped for that query and the answer uses whatever arrived in time.
+        // 错过截止时间的检索器会在该查询中被丢弃，回答使用按时到达的内容。
+        // With a second search endpoint, use hedgedRetriever(...) to also ask the replica when the first one is slow.
+        // 如果有第二个搜索端点，可使用 hedgedRetriever(...)，在第一个变慢时同时询问副本。
+        QueryRouter queryRouter = FanOutQueryRouter.builder()
+                .retriever("terms-of-use", embeddingStoreContentRetriever, Duration.ofSeconds(1))
+                .retriever("web-search", webSearchContentRetriever, Duration.ofSeconds(3))
+                .build();
 
         RetrievalAugmentor retrievalAugmentor = DefaultRetrievalAugmentor.builder()
                 .queryRouter(queryRouter)
@@ -115,7 +127,7 @@ public class _08_Advanced_RAG_Web_Search_Example {
 
         List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = new OffHeapEmbeddingStore();
         embeddingStore.addAll(embeddings, segments);
         return embeddingStore;
     }
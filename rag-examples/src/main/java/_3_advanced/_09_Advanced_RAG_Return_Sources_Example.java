@@ -15,11 +15,13 @@ import dev.langchain4j.model.embedding.onnx.bgesmallenv15q.BgeSmallEnV15Quantize
 import dev.langchain4j.model.openai.OpenAiChatModel;
 import dev.langchain4j.rag.content.Content;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
-import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.service.Result;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import shared.retrieval.HybridContentRetriever;
+import shared.store.Bm25Index;
+import shared.store.Bm25IndexingEmbeddingStore;
+import shared.store.OffHeapEmbeddingStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,12 +86,16 @@ public class _09_Advanced_RAG_Return_Sources_Example {
         // 创建嵌入存储内容检索器。
         EmbeddingModel embeddingModel = new BgeSmallEnV15QuantizedEmbeddingModel();
 
+        // Vector search and BM25 keyword search, fused: the sources also show segments found by exact tokens only.
+        // 向量检索与 BM25 关键词检索融合：来源中也会显示仅通过精确词元找到的片段。
+        Bm25Index keywordIndex = new Bm25Index();
         EmbeddingStore<TextSegment> embeddingStore =
-                embed(toPath("documents/miles-of-smiles-terms-of-use.txt"), embeddingModel);
+                embed(toPath("documents/miles-of-smiles-terms-of-use.txt"), embeddingModel, keywordIndex);
 
-        ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
+        ContentRetriever contentRetriever = HybridContentRetriever.builder()
                 .embeddingStore(embeddingStore)
                 .embeddingModel(embeddingModel)
+                .keywordIndex(keywordIndex)
                 .maxResults(2)
                 .minScore(0.6)
                 .build();
@@ -106,7 +112,7 @@ public class _09_Advanced_RAG_Return_Sources_Example {
                 .build();
     }
 
-    private static EmbeddingStore<TextSegment> embed(Path documentPath, EmbeddingModel embeddingModel) {
+    private static EmbeddingStore<TextSegment> embed(Path documentPath, EmbeddingModel embeddingModel, Bm25Index keywordIndex) {
         DocumentParser documentParser = new TextDocumentParser();
         Document document = loadDocument(documentPath, documentParser);
 
@@ -115,7 +121,7 @@ public class _09_Advanced_RAG_Return_Sources_Example {
 
         List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = new Bm25IndexingEmbeddingStore(new OffHeapEmbeddingStore(), keywordIndex);
         embeddingStore.addAll(embeddings, segments);
         return embeddingStore;
     }
@@ -18,7 +18,7 @@ import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import shared.store.OffHeapEmbeddingStore;
 
 import java.time.Duration;
 import java.util.HashMap;
@@ -63,7 +63,7 @@ public class _01_Low_Level_Naive_RAG_Example {
 
         // Store embeddings into embedding store for further search / retrieval
         // 将嵌入存入嵌入存储，便于后续搜索/检索
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = new OffHeapEmbeddingStore();
         embeddingStore.addAll(embeddings, segments);
 
         // Specify the question you want to ask the model
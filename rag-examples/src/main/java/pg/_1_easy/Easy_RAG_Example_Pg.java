@@ -1,6 +1,5 @@
 package pg._1_easy;
 
-import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
@@ -11,14 +10,16 @@ import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
 import dev.langchain4j.store.embedding.pgvector.PgVectorEmbeddingStore;
+import org.postgresql.ds.PGSimpleDataSource;
 import pg._2_naive.Naive_RAG_Example_Pg;
 import shared.Assistant;
+import shared.ingest.IncrementalIngestor;
+import shared.ingest.JdbcManifestStore;
 
-import java.util.List;
+import javax.sql.DataSource;
+import java.nio.file.Path;
 
-import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.loadDocuments;
 import static shared.Utils.DASHSCOPE_API_KEY;
 import static shared.Utils.DASHSCOPE_CHAT_MODEL;
 import static shared.Utils.glob;
@@ -30,6 +31,8 @@ import static shared.Utils.toPath;
  */
 public class Easy_RAG_Example_Pg {
 
+    private static final String PG_TABLE = "rag_examples_pg";
+
     /**
      * 百炼聊天模型，用于回答用户问题。
      */
@@ -53,10 +56,6 @@ public class Easy_RAG_Example_Pg {
      */
     public static void main(String[] args) {
 
-        // First, let's load documents that we want to use for RAG
-        // 首先，加载我们要用于 RAG 的文档
-        List<Document> documents = loadDocuments(toPath("documents/"), glob("*.txt"));
-
         // Second, let's create an assistant that will have access to our documents
         // 其次，创建一个可以访问我们文档的助手
         Assistant assistant = AiServices.builder(Assistant.class)
@@ -64,7 +63,7 @@ public class Easy_RAG_Example_Pg {
                 // 它应使用百炼 LLM
                 .chatMemory(MessageWindowChatMemory.withMaxMessages(10)) // it should remember 10 latest messages
                 // 它应记住最近的 10 条消息
-                .contentRetriever(createContentRetriever(documents)) // it should have access to our documents
+                .contentRetriever(createContentRetriever(toPath("documents/"))) // it should have access to our documents
                 // 它应能够访问我们的文档
                 .build();
 
@@ -80,23 +79,33 @@ public class Easy_RAG_Example_Pg {
     /**
      * 创建内容检索器，负责文档入库与相似度检索。
      *
-     * @param documents 待摄取的文档列表
+     * @param documentsDirectory 待摄取的文档目录
      * @return 内容检索器
      */
-    private static ContentRetriever createContentRetriever(List<Document> documents) {
+    private static ContentRetriever createContentRetriever(Path documentsDirectory) {
 
         EmbeddingModel embeddingModel = new BgeSmallEnV15QuantizedEmbeddingModel();
-        EmbeddingStore<TextSegment> embeddingStore = createEmbeddingStore(embeddingModel);
+        DataSource dataSource = createDataSource();
+        EmbeddingStore<TextSegment> embeddingStore = createEmbeddingStore(dataSource, embeddingModel);
 
         // Here, we are ingesting our documents into the store.
         // 这里我们将文档摄取到存储中。
         // Under the hood, a lot of "magic" is happening, but we can ignore it for now.
         // 在底层发生了很多“魔法”，但现在可以先忽略它们。
-        EmbeddingStoreIngestor.builder()
+        // The PGVector table outlives this process, so only files that were added, modified or deleted
+        // PGVector 表的生命周期长于本进程，因此只有自上次运行以来新增、修改或删除的文件
+        // since the previous run are (re-)embedded; the manifest remembers which segments came from which file.
+        // 才会被（重新）嵌入；清单记录了每个片段来自哪个文件。
+        // It is kept in the same database, next to the table, so it is shared by everyone who uses that table,
+        // 清单保存在同一个数据库中、紧挨着该表，因此所有使用该表的人共享它，
+        // and it is ignored once the table was dropped and recreated empty.
+        // 并且当该表被删除并重建为空表后，清单会被忽略。
+        IncrementalIngestor.builder()
                 .embeddingStore(embeddingStore)
                 .embeddingModel(embeddingModel)
+                .manifestStore(new JdbcManifestStore(dataSource, PG_TABLE))
                 .build()
-                .ingest(documents);
+                .ingest(documentsDirectory, glob("*.txt"));
 
         // Lastly, let's create a content retriever from an embedding store.
         // 最后，从嵌入存储创建一个内容检索器。
@@ -106,26 +115,32 @@ public class Easy_RAG_Example_Pg {
                 .build();
     }
 
+    /**
+     * 创建连接 PostgreSQL 的数据源，嵌入存储与清单共用它。
+     *
+     * @return 数据源
+     */
+    private static DataSource createDataSource() {
+        PGSimpleDataSource dataSource = new PGSimpleDataSource();
+        dataSource.setServerNames(new String[]{envOrDefault("PGHOST", "localhost")});
+        dataSource.setPortNumbers(new int[]{Integer.parseInt(envOrDefault("PGPORT", "5434"))});
+        dataSource.setDatabaseName(envOrDefault("PGDATABASE", "postgres"));
+        dataSource.setUser(envOrDefault("PGUSER", "postgres"));
+        dataSource.setPassword(envOrDefault("PGPASSWORD", "postgres"));
+        return dataSource;
+    }
+
     /**
      * 创建 PGVector 嵌入存储。
      *
+     * @param dataSource 数据源
      * @param embeddingModel 嵌入模型，用于确定向量维度
      * @return 嵌入存储
      */
-    private static EmbeddingStore<TextSegment> createEmbeddingStore(EmbeddingModel embeddingModel) {
-        String host = envOrDefault("PGHOST", "localhost");
-        int port = Integer.parseInt(envOrDefault("PGPORT", "5434"));
-        String database = envOrDefault("PGDATABASE", "postgres");
-        String user = envOrDefault("PGUSER", "postgres");
-        String password = envOrDefault("PGPASSWORD", "postgres");
-
-        return PgVectorEmbeddingStore.builder()
-                .host(host)
-                .port(port)
-                .database(database)
-                .user(user)
-                .password(password)
-                .table("rag_examples_pg")
+    private static EmbeddingStore<TextSegment> createEmbeddingStore(DataSource dataSource, EmbeddingModel embeddingModel) {
+        return PgVectorEmbeddingStore.datasourceBuilder()
+                .datasource(dataSource)
+                .table(PG_TABLE)
                 .dimension(embeddingModel.dimension())
                 .build();
     }
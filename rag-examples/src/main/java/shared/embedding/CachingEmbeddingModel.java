@@ -0,0 +1,275 @@
+package shared.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static dev.langchain4j.internal.Utils.getOrDefault;
+import static dev.langchain4j.internal.ValidationUtils.ensureGreaterThanZero;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * An {@link EmbeddingModel} decorator that caches embeddings by (model id, normalized text hash).
+ * 一个按（模型 id，规范化文本哈希）缓存嵌入的 {@link EmbeddingModel} 装饰器。
+ * <p>
+ * Lookups go to a bounded in-memory LRU tier first and then to an optional on-disk tier,
+ * 查找先访问有界的内存 LRU 层，再访问可选的磁盘层，
+ * so re-ingesting a mostly unchanged corpus only embeds the changed segments.
+ * 因此重新导入大部分未变化的语料时，只会对变化的片段做嵌入。
+ * Only texts that miss both tiers are sent to the delegate, in a single {@code embedAll} call.
+ * 只有两层都未命中的文本才会通过一次 {@code embedAll} 调用发送给被装饰的模型。
+ * <p>
+ * Use {@link #stats()} to see hit/miss/eviction counters when sizing the cache.
+ * 调整缓存大小时，可通过 {@link #stats()} 查看命中/未命中/淘汰计数。
+ */
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingEmbeddingModel.class);
+
+    private final EmbeddingModel delegate;
+    private final String modelId;
+    private final Path cacheDirectory;
+    private final LinkedHashMap<String, float[]> memory;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Snapshot of the cache counters.
+     * 缓存计数器的快照。
+     */
+    public record Stats(long memoryHits, long diskHits, long misses, long evictions, int memoryEntries) {
+
+        public double hitRate() {
+            long lookups = memoryHits + diskHits + misses;
+            return lookups == 0 ? 0 : (double) (memoryHits + diskHits) / lookups;
+        }
+    }
+
+    private CachingEmbeddingModel(Builder builder) {
+        this.delegate = ensureNotNull(builder.delegate, "delegate");
+        this.modelId = getOrDefault(builder.modelId, () -> delegate.getClass().getName() + ":" + delegate.modelName());
+        this.cacheDirectory = builder.cacheDirectory;
+        int maxEntries = ensureGreaterThanZero(getOrDefault(builder.maxEntries, 10_000), "maxEntries");
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        Embedding[] embeddings = new Embedding[textSegments.size()];
+        String[] keys = new String[textSegments.size()];
+        List<TextSegment> missingSegments = new ArrayList<>();
+        List<Integer> missingPositions = new ArrayList<>();
+
+        for (int i = 0; i < textSegments.size(); i++) {
+            keys[i] = key(textSegments.get(i).text());
+            float[] cached = lookup(keys[i]);
+            if (cached != null) {
+                embeddings[i] = Embedding.from(cached.clone());
+            } else {
+                missingSegments.add(textSegments.get(i));
+                missingPositions.add(i);
+            }
+        }
+
+        if (missingSegments.isEmpty()) {
+            return Response.from(List.of(embeddings));
+        }
+
+        misses.add(missingSegments.size());
+        Response<List<Embedding>> response = delegate.embedAll(missingSegments);
+        List<Embedding> computed = response.content();
+        for (int i = 0; i < computed.size(); i++) {
+            int position = missingPositions.get(i);
+            embeddings[position] = computed.get(i);
+            store(keys[position], computed.get(i).vector());
+        }
+        return Response.from(List.of(embeddings), response.tokenUsage(), response.finishReason());
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public String modelName() {
+        return delegate.modelName();
+    }
+
+    public Stats stats() {
+        synchronized (memory) {
+            return new Stats(memoryHits.sum(), diskHits.sum(), misses.sum(), evictions.sum(), memory.size());
+        }
+    }
+
+    private float[] lookup(String key) {
+        float[] vector;
+        synchronized (memory) {
+            vector = memory.get(key);
+        }
+        if (vector != null) {
+            memoryHits.increment();
+            return vector;
+        }
+        vector = readFromDisk(key);
+        if (vector != null) {
+            diskHits.increment();
+            synchronized (memory) {
+                memory.put(key, vector);
+            }
+        }
+        return vector;
+    }
+
+    private void store(String key, float[] vector) {
+        float[] copy = vector.clone();
+        synchronized (memory) {
+            memory.put(key, copy);
+        }
+        writeToDisk(key, copy);
+    }
+
+    private float[] readFromDisk(String key) {
+        if (cacheDirectory == null) {
+            return null;
+        }
+        Path file = fileFor(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            float[] vector = new float[buffer.remaining() / Float.BYTES];
+            buffer.asFloatBuffer().get(vector);
+            return vector;
+        } catch (IOException e) {
+            log.warn("Cannot read cached embedding {}, treating it as a miss", file, e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, float[] vector) {
+        if (cacheDirectory == null) {
+            return;
+        }
+        Path file = fileFor(key);
+        try {
+            Files.createDirectories(file.getParent());
+            ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+            buffer.asFloatBuffer().put(vector);
+            Path temp = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.write(temp, buffer.array());
+            Files.move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Cannot write cached embedding {}", file, e);
+        }
+    }
+
+    private Path fileFor(String key) {
+        // shard by the first two hex characters to keep directories small
+        // 按前两个十六进制字符分片，避免单个目录过大
+        return cacheDirectory.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    private String key(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(modelId.getBytes(UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalize(text).getBytes(UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String normalize(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFC).strip().replaceAll("\\s+", " ");
+    }
+
+    public static class Builder {
+
+        private EmbeddingModel delegate;
+        private String modelId;
+        private Integer maxEntries;
+        private Path cacheDirectory;
+
+        /**
+         * The model whose embeddings are cached.
+         * 需要缓存其嵌入结果的模型。
+         */
+        public Builder delegate(EmbeddingModel delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * Part of every cache key, so caches of different models never mix.
+         * 作为每个缓存键的一部分，确保不同模型的缓存不会混用。
+         * Defaults to the delegate's class and model name.
+         * 默认使用被装饰模型的类名与模型名。
+         */
+        public Builder modelId(String modelId) {
+            this.modelId = modelId;
+            return this;
+        }
+
+        /**
+         * Maximum number of embeddings kept in the in-memory LRU tier. Defaults to 10 000.
+         * 内存 LRU 层保存的最大嵌入数量，默认 10 000。
+         */
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Enables the on-disk tier in the given directory. Disabled by default.
+         * 在指定目录启用磁盘缓存层，默认关闭。
+         */
+        public Builder cacheDirectory(Path cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+            return this;
+        }
+
+        public CachingEmbeddingModel build() {
+            return new CachingEmbeddingModel(this);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package shared.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+/**
+ * An {@link EmbeddingModel} decorator that embeds the query of a RAG turn once, however many components need it.
+ * 一个 {@link EmbeddingModel} 装饰器：无论有多少组件需要，一轮 RAG 中的查询只嵌入一次。
+ * <p>
+ * In one turn, the same query text is embedded by every {@code EmbeddingStoreContentRetriever},
+ * 在一轮中，同一个查询文本会被每个 {@code EmbeddingStoreContentRetriever}、
+ * by an {@code EmbeddingQueryRouter} and by an {@code EmbeddingModelTextClassifier}. They only pass the text to the model,
+ * {@code EmbeddingQueryRouter} 和 {@code EmbeddingModelTextClassifier} 各嵌入一次。它们只把文本交给模型，
+ * so the memo sits here: give all of them this model instead of the delegate.
+ * 因此备忘放在这里：把本模型而不是被装饰的模型交给它们所有组件。
+ * The first call for a text computes the embedding; calls that arrive meanwhile (e.g. retrievers that
+ * 对某个文本的第一次调用计算嵌入；在此期间到达的调用（例如 {@code DefaultRetrievalAugmentor}
+ * {@code DefaultRetrievalAugmentor} runs concurrently) wait for it, and calls within {@code retainFor} reuse it.
+ * 并发运行的检索器）会等待它，而在 {@code retainFor} 内到达的调用会复用它。
+ * <p>
+ * Unlike {@link CachingEmbeddingModel}, it keeps no embedding longer than {@code retainFor} (a turn, 10 seconds by default),
+ * 与 {@link CachingEmbeddingModel} 不同，它保留嵌入的时间不超过 {@code retainFor}（一轮，默认 10 秒），
+ * so it does not grow with the number of distinct queries. {@code embedAll} (ingestion) is not memoized.
+ * 因此不会随不同查询的数量而增长。{@code embedAll}（导入）不做备忘。
+ */
+public class QueryEmbeddingMemo implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final long retainForNanos;
+    private final Map<String, Memo> memos = new ConcurrentHashMap<>();
+
+    private final LongAdder computed = new LongAdder();
+    private final LongAdder reused = new LongAdder();
+
+    private record Memo(CompletableFuture<Embedding> embedding, long expiresAtNanos) {
+
+        boolean isExpired(long nowNanos) {
+            return nowNanos - expiresAtNanos > 0;
+        }
+    }
+
+    public QueryEmbeddingMemo(EmbeddingModel delegate) {
+        this(delegate, Duration.ofSeconds(10));
+    }
+
+    public QueryEmbeddingMemo(EmbeddingModel delegate, Duration retainFor) {
+        this.delegate = ensureNotNull(delegate, "delegate");
+        this.retainForNanos = ensureNotNull(retainFor, "retainFor").toNanos();
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        long now = System.nanoTime();
+        Memo mine = new Memo(new CompletableFuture<>(), now + retainForNanos);
+        Memo memo = memos.merge(text, mine, (existing, fresh) -> existing.isExpired(now) ? fresh : existing);
+        if (memo != mine) {
+            reused.increment();
+            return Response.from(await(memo.embedding()));
+        }
+
+        computed.increment();
+        // a miss costs a model call anyway, so this is when expired memos are dropped
+        // 未命中本来就要调用一次模型，因此在这时清理过期的备忘
+        memos.values().removeIf(other -> other.isExpired(now));
+        try {
+            Response<Embedding> response = delegate.embed(text);
+            mine.embedding().complete(response.content());
+            return response;
+        } catch (Throwable e) {
+            // the callers waiting for it fail too, the next one tries again; an Error too, or they would wait forever
+            // 等待它的调用方同样失败，下一个调用方会重新尝试；Error 也要处理，否则它们会永远等待
+            memos.remove(text, mine);
+            mine.embedding().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return embed(textSegment.text());
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return delegate.embedAll(textSegments);
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    @Override
+    public String modelName() {
+        return delegate.modelName();
+    }
+
+    /**
+     * Number of embeddings computed by the delegate, and reused from the memo.
+     * 由被装饰模型计算的嵌入数，以及从备忘中复用的嵌入数。
+     */
+    public long computed() {
+        return computed.sum();
+    }
+
+    public long reused() {
+        return reused.sum();
+    }
+
+    private static Embedding await(CompletableFuture<Embedding> embedding) {
+        try {
+            return embedding.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package shared.ingest;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A {@link ManifestStore} that keeps the manifest in a local file, as an append-only journal.
+ * 把清单以只追加日志的形式保存在本地文件中的 {@link ManifestStore}。
+ * <p>
+ * Every {@link #put} and {@link #remove} appends one line and syncs it, so a change costs O(1) whatever the size of
+ * 每次 {@link #put} 与 {@link #remove} 都会追加并同步一行，因此无论清单多大，一次变更的开销都是 O(1)。
+ * the manifest. {@link #load} replays the journal and compacts it into one line per file, through a temporary file
+ * {@link #load} 会重放日志，并通过临时文件把它原子地压缩为每个文件一行，
+ * that atomically replaces it; a line torn by a crash at the end of the journal is ignored.
+ * 日志末尾因崩溃而写了一半的行会被忽略。
+ * <p>
+ * The file does not know about the embedding store: delete it whenever that store is dropped or recreated.
+ * 该文件并不了解嵌入存储：每当该存储被删除或重建时，都要删除它。
+ */
+public class FileManifestStore implements ManifestStore {
+
+    private static final String HEADER = "# incremental ingestion manifest v2";
+    private static final String PUT = "put";
+    private static final String REMOVE = "remove";
+
+    private final Path file;
+
+    public FileManifestStore(Path file) {
+        this.file = ensureNotNull(file, "file");
+    }
+
+    @Override
+    public Map<String, Entry> load() {
+        Map<String, Entry> entries = new TreeMap<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read ingestion manifest " + file, e);
+        }
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                replay(line, entries);
+            } catch (RuntimeException e) {
+                if (i == lines.size() - 1) {
+                    // the last append was interrupted: its file is ingested again
+                    // 最后一次追加被中断：它对应的文件会被重新导入
+                    break;
+                }
+                throw new IllegalStateException("Cannot read ingestion manifest " + file
+                        + ", delete it together with the embedding store to start over", e);
+            }
+        }
+        compact(entries);
+        return entries;
+    }
+
+    @Override
+    public void put(String path, Entry entry) {
+        append(putLine(path, entry));
+    }
+
+    @Override
+    public void remove(String path) {
+        append(REMOVE + "\t" + path);
+    }
+
+    private static String putLine(String path, Entry entry) {
+        return PUT + "\t" + path + "\t" + entry.size() + "\t" + entry.lastModified() + "\t"
+                + entry.contentHash() + "\t" + String.join(",", entry.segmentIds());
+    }
+
+    private static void replay(String line, Map<String, Entry> entries) {
+        String[] columns = line.split("\t", -1);
+        switch (columns[0]) {
+            case PUT -> {
+                List<String> ids = columns[5].isEmpty() ? List.of() : List.of(columns[5].split(","));
+                entries.put(columns[1], new Entry(Long.parseLong(columns[2]), Long.parseLong(columns[3]), columns[4], ids));
+            }
+            case REMOVE -> entries.remove(columns[1]);
+            default -> throw new IllegalArgumentException("Unknown manifest line: " + line);
+        }
+    }
+
+    private void compact(Map<String, Entry> entries) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    writer.write(putLine(entry.getKey(), entry.getValue()));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot compact ingestion manifest " + file, e);
+        }
+    }
+
+    private void append(String line) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            boolean created = !Files.exists(file);
+            try (FileChannel channel = FileChannel.open(file, CREATE, WRITE, APPEND)) {
+                ByteBuffer bytes = UTF_8.encode((created ? HEADER + "\n" : "") + line + "\n");
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write ingestion manifest " + file, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+}
@@ -0,0 +1,278 @@
+package shared.ingest;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentParser;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.spi.data.document.splitter.DocumentSplitterFactory;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import shared.ingest.ManifestStore.Entry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.loadDocument;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+import static dev.langchain4j.spi.ServiceHelper.loadFactories;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Keeps an embedding store in sync with a directory, re-embedding only files that were added or modified.
+ * 让嵌入存储与目录保持同步，只对新增或修改过的文件重新做嵌入。
+ * <p>
+ * A manifest records, for every ingested file, its size, modification time, content hash
+ * 清单为每个已导入的文件记录其大小、修改时间、内容哈希，
+ * and the ids of the segments it produced. On each run:
+ * 以及它产生的片段 id。每次运行时：
+ * <ul>
+ *     <li>unchanged files (same size and modification time, or same content hash) are skipped;
+ *     未变化的文件（大小与修改时间相同，或内容哈希相同）被跳过；</li>
+ *     <li>added and modified files are split and embedded, and the segments of the old version are removed;
+ *     新增与修改的文件会被切分并嵌入，旧版本的片段会被删除；</li>
+ *     <li>segments of deleted files are removed with {@link EmbeddingStore#removeAll(java.util.Collection)}.
+ *     已删除文件的片段通过 {@link EmbeddingStore#removeAll(java.util.Collection)} 删除。</li>
+ * </ul>
+ * The manifest describes the contents of one particular store, so it only makes sense with a persistent store
+ * 清单描述的是某个特定存储的内容，因此只适用于持久化存储（例如 PGVector），
+ * (e.g. PGVector), and it must live and die with that store, see {@link ManifestStore}.
+ * 并且必须与该存储同生共死，参见 {@link ManifestStore}。
+ */
+public class IncrementalIngestor {
+
+    private static final Logger log = LoggerFactory.getLogger(IncrementalIngestor.class);
+
+    private final DocumentParser documentParser;
+    private final DocumentSplitter documentSplitter;
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final ManifestStore manifestStore;
+
+    /**
+     * Summary of one {@link #ingest(Path, PathMatcher)} call.
+     * 单次 {@link #ingest(Path, PathMatcher)} 调用的汇总信息。
+     */
+    public record Result(int added, int modified, int unchanged, int deleted,
+                         int segmentsAdded, int segmentsRemoved, TokenUsage tokenUsage) {
+    }
+
+    private IncrementalIngestor(Builder builder) {
+        this.documentParser = builder.documentParser;
+        this.documentSplitter = builder.documentSplitter != null ? builder.documentSplitter : loadDocumentSplitter();
+        this.embeddingModel = ensureNotNull(builder.embeddingModel, "embeddingModel");
+        this.embeddingStore = ensureNotNull(builder.embeddingStore, "embeddingStore");
+        this.manifestStore = ensureNotNull(builder.manifestStore, "manifestStore");
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Result ingest(Path directory) {
+        return ingest(directory, path -> true);
+    }
+
+    /**
+     * @param pathMatcher matched against the path of each file relative to {@code directory}
+     *                    与每个文件相对于 {@code directory} 的路径进行匹配
+     */
+    public Result ingest(Path directory, PathMatcher pathMatcher) {
+        Map<String, Entry> manifest = new TreeMap<>(manifestStore.load());
+        Set<String> seen = new HashSet<>();
+        int added = 0, modified = 0, unchanged = 0, deleted = 0, segmentsAdded = 0, segmentsRemoved = 0;
+        TokenUsage tokenUsage = null;
+
+        for (Path file : listFiles(directory, pathMatcher)) {
+            String key = directory.relativize(file).toString().replace('\\', '/');
+            seen.add(key);
+            BasicFileAttributes attributes = readAttributes(file);
+            Entry previous = manifest.get(key);
+
+            if (previous != null
+                    && previous.size() == attributes.size()
+                    && previous.lastModified() == attributes.lastModifiedTime().toMillis()) {
+                unchanged++;
+                continue;
+            }
+
+            String contentHash = contentHash(file);
+            if (previous != null && previous.contentHash().equals(contentHash)) {
+                // touched but not changed, only refresh the cheap change markers
+                // 文件被触碰但内容未变，只更新廉价的变更标记
+                Entry touched = new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), contentHash, previous.segmentIds());
+                manifest.put(key, touched);
+                manifestStore.put(key, touched);
+                unchanged++;
+                continue;
+            }
+
+            // add the new version before removing the old one, so a failure never leaves the file without segments
+            // 先添加新版本再删除旧版本，这样失败时该文件也不会没有片段
+            List<TextSegment> segments = documentSplitter.split(load(file));
+            List<String> ids = List.of();
+            if (!segments.isEmpty()) {
+                Response<List<Embedding>> response = embeddingModel.embedAll(segments);
+                tokenUsage = TokenUsage.sum(tokenUsage, response.tokenUsage());
+                ids = embeddingStore.addAll(response.content(), segments);
+            }
+            if (previous != null) {
+                remove(previous.segmentIds());
+                segmentsRemoved += previous.segmentIds().size();
+                modified++;
+            } else {
+                added++;
+            }
+            segmentsAdded += ids.size();
+            // persisted per file: a crash never re-embeds more than the file being ingested
+            // 按文件持久化：崩溃时最多只会重新嵌入正在导入的那个文件
+            Entry ingested = new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), contentHash, ids);
+            manifest.put(key, ingested);
+            manifestStore.put(key, ingested);
+        }
+
+        for (String key : new ArrayList<>(manifest.keySet())) {
+            if (!seen.contains(key)) {
+                List<String> ids = manifest.remove(key).segmentIds();
+                remove(ids);
+                segmentsRemoved += ids.size();
+                deleted++;
+                manifestStore.remove(key);
+            }
+        }
+
+        Result result = new Result(added, modified, unchanged, deleted, segmentsAdded, segmentsRemoved, tokenUsage);
+        log.info("Incremental ingestion of {}: {}", directory, result);
+        return result;
+    }
+
+    private Document load(Path file) {
+        return documentParser == null ? loadDocument(file) : loadDocument(file, documentParser);
+    }
+
+    private void remove(List<String> ids) {
+        if (!ids.isEmpty()) {
+            embeddingStore.removeAll(ids);
+        }
+    }
+
+    private static List<Path> listFiles(Path directory, PathMatcher pathMatcher) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> pathMatcher.matches(directory.relativize(path)))
+                    .sorted()
+                    .collect(toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String contentHash(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static DocumentSplitter loadDocumentSplitter() {
+        // same fallback as EmbeddingStoreIngestor: the splitter provided by langchain4j-easy-rag through SPI
+        // 与 EmbeddingStoreIngestor 相同的回退：由 langchain4j-easy-rag 通过 SPI 提供的切分器
+        for (DocumentSplitterFactory factory : loadFactories(DocumentSplitterFactory.class)) {
+            return factory.create();
+        }
+        throw new IllegalStateException("No documentSplitter was configured and none was found through SPI");
+    }
+
+    public static class Builder {
+
+        private DocumentParser documentParser;
+        private DocumentSplitter documentSplitter;
+        private EmbeddingModel embeddingModel;
+        private EmbeddingStore<TextSegment> embeddingStore;
+        private ManifestStore manifestStore;
+
+        /**
+         * Optional. When not set, the parser is loaded through SPI, like {@code FileSystemDocumentLoader} does.
+         * 可选。未设置时，像 {@code FileSystemDocumentLoader} 一样通过 SPI 加载解析器。
+         */
+        public Builder documentParser(DocumentParser documentParser) {
+            this.documentParser = documentParser;
+            return this;
+        }
+
+        /**
+         * Optional. When not set, the splitter is loaded through SPI, like {@code EmbeddingStoreIngestor} does.
+         * 可选。未设置时，像 {@code EmbeddingStoreIngestor} 一样通过 SPI 加载切分器。
+         */
+        public Builder documentSplitter(DocumentSplitter documentSplitter) {
+            this.documentSplitter = documentSplitter;
+            return this;
+        }
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder embeddingStore(EmbeddingStore<TextSegment> embeddingStore) {
+            this.embeddingStore = embeddingStore;
+            return this;
+        }
+
+        /**
+         * Where the manifest of the given embedding store is kept.
+         * 该嵌入存储对应的清单保存位置。
+         */
+        public Builder manifestStore(ManifestStore manifestStore) {
+            this.manifestStore = manifestStore;
+            return this;
+        }
+
+        /**
+         * Keeps the manifest in a local file, see {@link FileManifestStore}.
+         * 把清单保存在本地文件中，参见 {@link FileManifestStore}。
+         */
+        public Builder manifestFile(Path manifestFile) {
+            return manifestStore(new FileManifestStore(manifestFile));
+        }
+
+        public IncrementalIngestor build() {
+            return new IncrementalIngestor(this);
+        }
+    }
+}
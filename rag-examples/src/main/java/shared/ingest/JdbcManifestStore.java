@@ -0,0 +1,142 @@
+package shared.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+/**
+ * A {@link ManifestStore} that keeps the manifest in the database of the embedding table it describes,
+ * 把清单保存在它所描述的嵌入表所在数据库中的 {@link ManifestStore}，
+ * in a table named {@code <embedding table>_manifest} next to it (created when missing), one row per file,
+ * 即保存在其旁边名为 {@code <嵌入表>_manifest} 的表中（不存在时会自动创建），每个文件一行，
+ * so every {@link #put} and {@link #remove} touches a single row.
+ * 因此每次 {@link #put} 与 {@link #remove} 只涉及一行。
+ * <p>
+ * The manifest is found wherever the embedding table is reachable, unlike a file in the temp directory of one machine.
+ * 只要能访问嵌入表就能找到清单，而不像某台机器临时目录中的文件那样。
+ * When the embedding table is empty, e.g. because it was dropped and recreated, the manifest is cleared
+ * 当嵌入表为空时（例如它被删除后又重建），清单会被清空，
+ * and everything is ingested again.
+ * 所有内容都会被重新导入。
+ * Works with PostgreSQL and H2.
+ * 适用于 PostgreSQL 与 H2。
+ */
+public class JdbcManifestStore implements ManifestStore {
+
+    private static final Logger log = LoggerFactory.getLogger(JdbcManifestStore.class);
+
+    // table names are concatenated into the SQL, so only plain identifiers are accepted
+    // 表名会被拼接进 SQL，因此只接受普通标识符
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final DataSource dataSource;
+    private final String embeddingTable;
+    private final String manifestTable;
+
+    public JdbcManifestStore(DataSource dataSource, String embeddingTable) {
+        this.dataSource = ensureNotNull(dataSource, "dataSource");
+        ensureNotNull(embeddingTable, "embeddingTable");
+        if (!IDENTIFIER.matcher(embeddingTable).matches()) {
+            throw new IllegalArgumentException("Not a plain table name: '" + embeddingTable + "'");
+        }
+        this.embeddingTable = embeddingTable;
+        this.manifestTable = embeddingTable + "_manifest";
+    }
+
+    @Override
+    public Map<String, Entry> load() {
+        Map<String, Entry> entries = new TreeMap<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + manifestTable + " (path VARCHAR(4096) PRIMARY KEY, "
+                    + "size BIGINT NOT NULL, last_modified BIGINT NOT NULL, content_hash VARCHAR(64) NOT NULL, segment_ids TEXT NOT NULL)");
+            if (isEmbeddingTableEmpty(statement)) {
+                int cleared = statement.executeUpdate("DELETE FROM " + manifestTable);
+                if (cleared > 0) {
+                    log.info("{} is empty, cleared {} stale entries from {}", embeddingTable, cleared, manifestTable);
+                }
+                return entries;
+            }
+            try (ResultSet rows = statement.executeQuery(
+                    "SELECT path, size, last_modified, content_hash, segment_ids FROM " + manifestTable)) {
+                while (rows.next()) {
+                    String ids = rows.getString(5);
+                    entries.put(rows.getString(1), new Entry(rows.getLong(2), rows.getLong(3), rows.getString(4),
+                            ids.isEmpty() ? List.of() : List.of(ids.split(","))));
+                }
+            }
+            return entries;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot read ingestion manifest from " + manifestTable, e);
+        }
+    }
+
+    @Override
+    public void put(String path, Entry entry) {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement update = connection.prepareStatement("UPDATE " + manifestTable
+                    + " SET size = ?, last_modified = ?, content_hash = ?, segment_ids = ? WHERE path = ?")) {
+                bind(update, entry, path);
+                if (update.executeUpdate() == 0) {
+                    try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + manifestTable
+                            + " (size, last_modified, content_hash, segment_ids, path) VALUES (?, ?, ?, ?, ?)")) {
+                        bind(insert, entry, path);
+                        insert.executeUpdate();
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot write the manifest entry of '" + path + "' to " + manifestTable, e);
+        }
+    }
+
+    @Override
+    public void remove(String path) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM " + manifestTable + " WHERE path = ?")) {
+            delete.setString(1, path);
+            delete.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot remove the manifest entry of '" + path + "' from " + manifestTable, e);
+        }
+    }
+
+    private static void bind(PreparedStatement statement, Entry entry, String path) throws SQLException {
+        statement.setLong(1, entry.size());
+        statement.setLong(2, entry.lastModified());
+        statement.setString(3, entry.contentHash());
+        statement.setString(4, String.join(",", entry.segmentIds()));
+        statement.setString(5, path);
+    }
+
+    private boolean isEmbeddingTableEmpty(Statement statement) throws SQLException {
+        try (ResultSet rows = statement.executeQuery("SELECT 1 FROM " + embeddingTable + " LIMIT 1")) {
+            return !rows.next();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return manifestTable;
+    }
+}
@@ -0,0 +1,54 @@
+package shared.ingest;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where {@link IncrementalIngestor} keeps its manifest, i.e. which segments of the embedding store came from which file.
+ * {@link IncrementalIngestor} 保存其清单的位置，清单记录了嵌入存储中的哪些片段来自哪个文件。
+ * <p>
+ * The manifest is persisted entry by entry: the ingestor calls {@link #put} after every ingested file and
+ * 清单按条目持久化：导入器在每导入一个文件后调用 {@link #put}，
+ * {@link #remove} after every deleted one, so a run over N files costs N small writes, not N rewrites of the whole manifest,
+ * 在每删除一个文件后调用 {@link #remove}，因此处理 N 个文件只需 N 次小写入，而不是 N 次重写整个清单，
+ * and a crash halfway never re-embeds more than the file that was being ingested.
+ * 中途崩溃时也最多只会重新嵌入正在导入的那个文件。
+ * <p>
+ * The manifest is only valid together with the store it describes: keep it where it lives and dies with that store,
+ * 清单只有与它所描述的存储一起才有效：应把它保存在与该存储同生共死的地方，
+ * e.g. in the same database for PGVector ({@link JdbcManifestStore}), or use a {@link FileManifestStore}
+ * 例如对于 PGVector 保存在同一个数据库中（{@link JdbcManifestStore}），或者使用 {@link FileManifestStore}
+ * and delete the file whenever the store is dropped.
+ * 并在删除存储时同时删除该文件。
+ */
+public interface ManifestStore {
+
+    /**
+     * What the manifest knows about one ingested file.
+     * 清单中关于一个已导入文件的记录。
+     */
+    record Entry(long size, long lastModified, String contentHash, List<String> segmentIds) {
+
+        public Entry {
+            segmentIds = List.copyOf(segmentIds);
+        }
+    }
+
+    /**
+     * All entries, by path relative to the ingested directory. Called once at the start of every run.
+     * 所有条目，以相对于被导入目录的路径为键。每次运行开始时调用一次。
+     */
+    Map<String, Entry> load();
+
+    /**
+     * Adds or replaces the entry of {@code path}. It must be durable when this method returns.
+     * 添加或替换 {@code path} 的条目。方法返回时它必须已经持久化。
+     */
+    void put(String path, Entry entry);
+
+    /**
+     * Removes the entry of {@code path}. It must be durable when this method returns.
+     * 删除 {@code path} 的条目。方法返回时它必须已经持久化。
+     */
+    void remove(String path);
+}
@@ -0,0 +1,404 @@
+package shared.ingest;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentParser;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static dev.langchain4j.data.document.loader.FileSystemDocumentLoader.loadDocument;
+import static dev.langchain4j.internal.Utils.getOrDefault;
+import static dev.langchain4j.internal.ValidationUtils.ensureGreaterThanZero;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+/**
+ * A staged alternative to {@code EmbeddingStoreIngestor} for large corpora.
+ * 面向大规模语料、分阶段执行的 {@code EmbeddingStoreIngestor} 替代方案。
+ * <p>
+ * parse + split (fork-join pool) → bounded segment queue → embed in fixed-size micro-batches
+ * 解析 + 切分（fork-join 线程池）→ 有界片段队列 → 以固定大小的微批次做嵌入
+ * → bounded batch queue → {@link EmbeddingStore#addAll(List, List)} (single writer thread).
+ * → 有界批次队列 → {@link EmbeddingStore#addAll(List, List)}（单个写入线程）。
+ * <p>
+ * Every hand-off is bounded, so a slow embedding model or store slows down parsing instead of filling the heap.
+ * 每一次交接都是有界的，因此嵌入模型或存储变慢时会让解析减速，而不是撑满堆内存。
+ * The in-process ONNX models already use several threads per inference, so one embedding thread
+ * 进程内 ONNX 模型每次推理已使用多个线程，因此默认只用一个嵌入线程，
+ * with batches of 32 segments is the default; remote embedding models usually benefit from more threads.
+ * 批大小为 32；远程嵌入模型通常能从更多线程中获益。
+ */
+public class ParallelIngestionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ParallelIngestionPipeline.class);
+
+    private static final TextSegment END_OF_SEGMENTS = TextSegment.from("<end of segments>");
+    private static final Batch END_OF_BATCHES = new Batch(List.of(), List.of());
+
+    private final DocumentSplitter documentSplitter;
+    private final EmbeddingModel embeddingModel;
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final int batchSize;
+    private final int splitParallelism;
+    private final int embeddingThreads;
+    private final int maxDocumentsInFlight;
+    private final int segmentQueueCapacity;
+    private final int batchQueueCapacity;
+    private final Duration maxBatchDelay;
+
+    /**
+     * Summary of one {@code ingest} call.
+     * 单次 {@code ingest} 调用的汇总信息。
+     */
+    public record Result(int documents, int segments, int batches, TokenUsage tokenUsage, Duration duration) {
+    }
+
+    private record Batch(List<Embedding> embeddings, List<TextSegment> segments) {
+    }
+
+    private ParallelIngestionPipeline(Builder builder) {
+        this.documentSplitter = ensureNotNull(builder.documentSplitter, "documentSplitter");
+        this.embeddingModel = ensureNotNull(builder.embeddingModel, "embeddingModel");
+        this.embeddingStore = ensureNotNull(builder.embeddingStore, "embeddingStore");
+        this.batchSize = ensureGreaterThanZero(getOrDefault(builder.batchSize, 32), "batchSize");
+        this.splitParallelism = ensureGreaterThanZero(getOrDefault(builder.splitParallelism, Runtime.getRuntime().availableProcessors()), "splitParallelism");
+        this.embeddingThreads = ensureGreaterThanZero(getOrDefault(builder.embeddingThreads, 1), "embeddingThreads");
+        this.maxDocumentsInFlight = ensureGreaterThanZero(getOrDefault(builder.maxDocumentsInFlight, splitParallelism * 2), "maxDocumentsInFlight");
+        this.segmentQueueCapacity = batchSize * embeddingThreads * 4;
+        this.batchQueueCapacity = embeddingThreads * 2;
+        this.maxBatchDelay = getOrDefault(builder.maxBatchDelay, Duration.ofMillis(50));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Result ingest(Document... documents) {
+        return ingest(Stream.of(documents));
+    }
+
+    public Result ingest(List<Document> documents) {
+        return ingest(documents.stream());
+    }
+
+    /**
+     * Ingests already loaded documents. The stream is consumed lazily on the calling thread.
+     * 导入已加载的文档。流会在调用线程上被惰性消费。
+     */
+    public Result ingest(Stream<Document> documents) {
+        Iterator<Document> iterator = documents.iterator();
+        return ingestSources(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Callable<Document> next() {
+                Document document = iterator.next();
+                return () -> document;
+            }
+        });
+    }
+
+    /**
+     * Ingests files, parsing each of them on the fork-join pool together with splitting.
+     * 导入文件，每个文件的解析与切分一起在 fork-join 线程池上执行。
+     */
+    public Result ingestFiles(Stream<Path> files, DocumentParser documentParser) {
+        Iterator<Path> iterator = files.iterator();
+        return ingestSources(new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Callable<Document> next() {
+                Path file = iterator.next();
+                return () -> loadDocument(file, documentParser);
+            }
+        });
+    }
+
+    private Result ingestSources(Iterator<Callable<Document>> sources) {
+        long start = System.nanoTime();
+        Run run = new Run();
+
+        ForkJoinPool splitPool = new ForkJoinPool(splitParallelism);
+        ExecutorService embedders = Executors.newFixedThreadPool(embeddingThreads);
+        Thread writer = new Thread(run::write, "ingestion-writer");
+        writer.start();
+        for (int i = 0; i < embeddingThreads; i++) {
+            embedders.execute(run::embed);
+        }
+
+        try {
+            Semaphore documentsInFlight = new Semaphore(maxDocumentsInFlight);
+            Phaser splitting = new Phaser(1);
+            while (sources.hasNext() && run.failure.get() == null) {
+                Callable<Document> source = sources.next();
+                documentsInFlight.acquire();
+                splitting.register();
+                splitPool.execute(() -> {
+                    try {
+                        List<TextSegment> segments = documentSplitter.split(source.call());
+                        run.documents.incrementAndGet();
+                        for (TextSegment segment : segments) {
+                            run.putSegment(segment);
+                        }
+                    } catch (Throwable e) {
+                        run.fail(e);
+                    } finally {
+                        documentsInFlight.release();
+                        splitting.arriveAndDeregister();
+                    }
+                });
+            }
+            splitting.arriveAndAwaitAdvance();
+
+            for (int i = 0; i < embeddingThreads; i++) {
+                run.segments.put(END_OF_SEGMENTS);
+            }
+            embedders.shutdown();
+            embedders.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            run.batches.put(END_OF_BATCHES);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.fail(e);
+            writer.interrupt();
+        } catch (Throwable e) {
+            // e.g. the document iterator failed: the writer would otherwise wait for END_OF_BATCHES forever
+            // 例如文档迭代器失败：否则写入线程会永远等待 END_OF_BATCHES
+            run.fail(e);
+            writer.interrupt();
+        } finally {
+            splitPool.shutdownNow();
+            embedders.shutdownNow();
+        }
+
+        Throwable failure = run.failure.get();
+        if (failure != null) {
+            throw new RuntimeException("Ingestion failed after storing " + run.segmentsStored.get() + " segments", failure);
+        }
+
+        Result result = new Result(run.documents.get(), run.segmentsStored.get(), run.batchCount.get(),
+                run.tokenUsage.get(), Duration.ofNanos(System.nanoTime() - start));
+        log.info("Ingested {}", result);
+        return result;
+    }
+
+    /**
+     * State of a single {@code ingest} call, shared by all stages.
+     * 单次 {@code ingest} 调用的状态，由所有阶段共享。
+     */
+    private class Run {
+
+        final BlockingQueue<TextSegment> segments = new ArrayBlockingQueue<>(segmentQueueCapacity);
+        final BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(batchQueueCapacity);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicReference<TokenUsage> tokenUsage = new AtomicReference<>();
+        final AtomicInteger documents = new AtomicInteger();
+        final AtomicInteger segmentsStored = new AtomicInteger();
+        final AtomicInteger batchCount = new AtomicInteger();
+
+        void fail(Throwable e) {
+            if (failure.compareAndSet(null, e)) {
+                log.error("Ingestion failed, draining the pipeline", e);
+            }
+        }
+
+        void putSegment(TextSegment segment) throws InterruptedException {
+            // let the fork-join pool compensate for the worker blocked on a full queue
+            // 让 fork-join 线程池为阻塞在满队列上的工作线程进行补偿
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+
+                boolean done;
+
+                @Override
+                public boolean block() throws InterruptedException {
+                    segments.put(segment);
+                    done = true;
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return done || (done = segments.offer(segment));
+                }
+            });
+        }
+
+        void embed() {
+            List<TextSegment> batch = new ArrayList<>(batchSize);
+            try {
+                while (true) {
+                    TextSegment segment = segments.poll(maxBatchDelay.toNanos(), TimeUnit.NANOSECONDS);
+                    if (segment == null) {
+                        // producers are slow, do not keep a partial batch waiting
+                        // 生产者较慢时，不让未满的批次一直等待
+                        batch = flush(batch);
+                        continue;
+                    }
+                    if (segment == END_OF_SEGMENTS) {
+                        flush(batch);
+                        return;
+                    }
+                    batch.add(segment);
+                    if (batch.size() == batchSize) {
+                        batch = flush(batch);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+
+        private List<TextSegment> flush(List<TextSegment> batch) throws InterruptedException {
+            if (batch.isEmpty()) {
+                return batch;
+            }
+            if (failure.get() == null) {
+                try {
+                    Response<List<Embedding>> response = embeddingModel.embedAll(batch);
+                    tokenUsage.accumulateAndGet(response.tokenUsage(), TokenUsage::sum);
+                    batches.put(new Batch(response.content(), batch));
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    // an Error too: an embedder that dies stops draining the queue, and the producers block on it forever
+                    // Error 也要捕获：死掉的嵌入线程不再消费队列，生产者会永远阻塞在它上面
+                    fail(e);
+                }
+            }
+            return new ArrayList<>(batchSize);
+        }
+
+        void write() {
+            try {
+                while (true) {
+                    Batch batch = batches.take();
+                    if (batch == END_OF_BATCHES) {
+                        return;
+                    }
+                    if (failure.get() != null) {
+                        continue;
+                    }
+                    try {
+                        embeddingStore.addAll(batch.embeddings(), batch.segments());
+                        segmentsStored.addAndGet(batch.segments().size());
+                        batchCount.incrementAndGet();
+                    } catch (Throwable e) {
+                        // keep draining, or the embedders block on the full batch queue
+                        // 继续消费，否则嵌入线程会阻塞在已满的批次队列上
+                        fail(e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private DocumentSplitter documentSplitter;
+        private EmbeddingModel embeddingModel;
+        private EmbeddingStore<TextSegment> embeddingStore;
+        private Integer batchSize;
+        private Integer splitParallelism;
+        private Integer embeddingThreads;
+        private Integer maxDocumentsInFlight;
+        private Duration maxBatchDelay;
+
+        public Builder documentSplitter(DocumentSplitter documentSplitter) {
+            this.documentSplitter = documentSplitter;
+            return this;
+        }
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder embeddingStore(EmbeddingStore<TextSegment> embeddingStore) {
+            this.embeddingStore = embeddingStore;
+            return this;
+        }
+
+        /**
+         * Number of segments per {@code embedAll} and {@code addAll} call. Defaults to 32.
+         * 每次 {@code embedAll} 与 {@code addAll} 调用的片段数量，默认 32。
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Parallelism of the fork-join pool that parses and splits documents. Defaults to the number of CPUs.
+         * 负责解析与切分文档的 fork-join 线程池并行度，默认等于 CPU 数。
+         */
+        public Builder splitParallelism(int splitParallelism) {
+            this.splitParallelism = splitParallelism;
+            return this;
+        }
+
+        /**
+         * Number of threads calling the embedding model concurrently. Defaults to 1.
+         * 并发调用嵌入模型的线程数，默认 1。
+         */
+        public Builder embeddingThreads(int embeddingThreads) {
+            this.embeddingThreads = embeddingThreads;
+            return this;
+        }
+
+        /**
+         * Upper bound of documents being parsed and split at the same time. Defaults to twice the split parallelism.
+         * 同时被解析与切分的文档数上限，默认是切分并行度的两倍。
+         */
+        public Builder maxDocumentsInFlight(int maxDocumentsInFlight) {
+            this.maxDocumentsInFlight = maxDocumentsInFlight;
+            return this;
+        }
+
+        /**
+         * How long a partial batch may wait for more segments before it is embedded anyway. Defaults to 50 ms.
+         * 未满批次在被强制嵌入前等待更多片段的最长时间，默认 50 毫秒。
+         */
+        public Builder maxBatchDelay(Duration maxBatchDelay) {
+            this.maxBatchDelay = maxBatchDelay;
+            return this;
+        }
+
+        public ParallelIngestionPipeline build() {
+            return new ParallelIngestionPipeline(this);
+        }
+    }
+}
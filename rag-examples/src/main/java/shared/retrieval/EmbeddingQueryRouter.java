@@ -0,0 +1,257 @@
+package shared.retrieval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.rag.query.router.LanguageModelQueryRouter;
+import dev.langchain4j.rag.query.router.QueryRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static dev.langchain4j.internal.Utils.getOrDefault;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotEmpty;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+/**
+ * A {@link QueryRouter} that routes by embedding similarity instead of asking an LLM.
+ * 通过嵌入相似度而不是询问 LLM 来路由的 {@link QueryRouter}。
+ * <p>
+ * Every route is described by a description and a few sample queries. They are embedded once, when the router is built,
+ * 每条路由由一段描述和几个示例查询来描述。它们只在构建路由器时嵌入一次，
+ * and averaged into one centroid per route. A query is embedded once and sent to the route whose centroid is the most similar,
+ * 并平均为每条路由的一个质心。查询只嵌入一次，并被发送到质心最相似的那条路由，
+ * which costs one local embedding and a few dot products instead of an LLM round trip ({@link LanguageModelQueryRouter}).
+ * 其代价是一次本地嵌入和几次点积运算，而不是一次 LLM 往返（{@link LanguageModelQueryRouter}）。
+ * <p>
+ * When the decision is not clear, i.e. the best route scores below {@code minScore} or is less than
+ * 当决策不明确时，即最佳路由得分低于 {@code minScore}，或者与第二名的差距小于
+ * {@code ambiguityMargin} ahead of the runner-up, the query goes to the {@code fallback} router (e.g. a LanguageModelQueryRouter).
+ * {@code ambiguityMargin} 时，查询会交给 {@code fallback} 路由器（例如 LanguageModelQueryRouter）。
+ * Without a fallback, a query below {@code minScore} is not routed at all and an ambiguous query goes to both routes.
+ * 没有后备路由器时，低于 {@code minScore} 的查询不会被路由，而不明确的查询会同时发送到两条路由。
+ * <p>
+ * A route without retrievers ({@link Builder#noRetrieval(String, String...)}) skips retrieval for queries like it.
+ * 没有检索器的路由（{@link Builder#noRetrieval(String, String...)}）会让与之相似的查询跳过检索。
+ */
+public class EmbeddingQueryRouter implements QueryRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingQueryRouter.class);
+
+    private final EmbeddingModel embeddingModel;
+    private final List<Route> routes;
+    private final double minScore;
+    private final double ambiguityMargin;
+    private final QueryRouter fallback;
+
+    private final LongAdder embeddingDecisions = new LongAdder();
+    private final LongAdder fallbackDecisions = new LongAdder();
+
+    private record Route(String description, List<ContentRetriever> retrievers, float[] centroid) {
+    }
+
+    private record RouteDefinition(String description, List<ContentRetriever> retrievers, List<String> sampleQueries) {
+    }
+
+    private EmbeddingQueryRouter(Builder builder) {
+        this.embeddingModel = ensureNotNull(builder.embeddingModel, "embeddingModel");
+        ensureNotEmpty(builder.routes, "routes");
+        this.minScore = getOrDefault(builder.minScore, 0.0);
+        this.ambiguityMargin = getOrDefault(builder.ambiguityMargin, 0.02);
+        this.fallback = builder.fallback;
+
+        // embed the descriptions and sample queries of all routes in one call
+        // 在一次调用中嵌入所有路由的描述和示例查询
+        List<TextSegment> texts = new ArrayList<>();
+        for (RouteDefinition definition : builder.routes) {
+            texts.add(TextSegment.from(definition.description()));
+            definition.sampleQueries().forEach(sampleQuery -> texts.add(TextSegment.from(sampleQuery)));
+        }
+        List<Embedding> embeddings = embeddingModel.embedAll(texts).content();
+
+        List<Route> routes = new ArrayList<>();
+        int next = 0;
+        for (RouteDefinition definition : builder.routes) {
+            int count = 1 + definition.sampleQueries().size();
+            routes.add(new Route(definition.description(), definition.retrievers(), centroid(embeddings.subList(next, next + count))));
+            next += count;
+        }
+        this.routes = List.copyOf(routes);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Collection<ContentRetriever> route(Query query) {
+        float[] vector = normalize(embeddingModel.embed(query.text()).content().vector());
+
+        Route best = null;
+        Route runnerUp = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        double runnerUpScore = Double.NEGATIVE_INFINITY;
+        for (Route route : routes) {
+            double score = dot(vector, route.centroid());
+            if (score > bestScore) {
+                runnerUp = best;
+                runnerUpScore = bestScore;
+                best = route;
+                bestScore = score;
+            } else if (score > runnerUpScore) {
+                runnerUp = route;
+                runnerUpScore = score;
+            }
+        }
+
+        boolean belowMinScore = bestScore < minScore;
+        boolean ambiguous = runnerUp != null && bestScore - runnerUpScore < ambiguityMargin;
+        if ((belowMinScore || ambiguous) && fallback != null) {
+            fallbackDecisions.increment();
+            log.debug("Query '{}' is {} (best '{}' {}), asking the fallback router", query.text(),
+                    belowMinScore ? "below minScore" : "ambiguous", best.description(), bestScore);
+            return fallback.route(query);
+        }
+
+        embeddingDecisions.increment();
+        if (belowMinScore) {
+            log.debug("Query '{}' is not routed (best '{}' {})", query.text(), best.description(), bestScore);
+            return List.of();
+        }
+        if (ambiguous) {
+            log.debug("Query '{}' is routed to '{}' ({}) and '{}' ({})", query.text(),
+                    best.description(), bestScore, runnerUp.description(), runnerUpScore);
+            Collection<ContentRetriever> retrievers = new LinkedHashSet<>(best.retrievers());
+            retrievers.addAll(runnerUp.retrievers());
+            return retrievers;
+        }
+        log.debug("Query '{}' is routed to '{}' ({})", query.text(), best.description(), bestScore);
+        return best.retrievers();
+    }
+
+    /**
+     * Number of queries routed by embedding similarity, and by the fallback router.
+     * 通过嵌入相似度路由的查询数，以及由后备路由器路由的查询数。
+     */
+    public long embeddingDecisions() {
+        return embeddingDecisions.sum();
+    }
+
+    public long fallbackDecisions() {
+        return fallbackDecisions.sum();
+    }
+
+    private static float[] centroid(List<Embedding> embeddings) {
+        float[] centroid = new float[embeddings.get(0).dimension()];
+        for (Embedding embedding : embeddings) {
+            float[] vector = normalize(embedding.vector());
+            for (int i = 0; i < centroid.length; i++) {
+                centroid[i] += vector[i];
+            }
+        }
+        return normalize(centroid);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = Math.sqrt(dot(vector, vector));
+        if (norm == 0) {
+            return vector;
+        }
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    public static class Builder {
+
+        private EmbeddingModel embeddingModel;
+        private final List<RouteDefinition> routes = new ArrayList<>();
+        private Double minScore;
+        private Double ambiguityMargin;
+        private QueryRouter fallback;
+
+        /**
+         * The model that embeds the route descriptions and the queries, ideally a local one such as
+         * 用于嵌入路由描述和查询的模型，最好是本地模型，例如
+         * {@code BgeSmallEnV15QuantizedEmbeddingModel}.
+         * {@code BgeSmallEnV15QuantizedEmbeddingModel}。
+         */
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        /**
+         * Adds a route to {@code retriever}, described the same way as for a LanguageModelQueryRouter,
+         * 添加一条到 {@code retriever} 的路由，其描述方式与 LanguageModelQueryRouter 相同，
+         * plus a few queries that should go there. More (and more varied) sample queries give a better centroid.
+         * 再加上几个应该被路由到这里的查询。示例查询越多（越多样），质心越好。
+         */
+        public Builder route(ContentRetriever retriever, String description, String... sampleQueries) {
+            ensureNotNull(retriever, "retriever");
+            return addRoute(description, List.of(retriever), sampleQueries);
+        }
+
+        /**
+         * Adds a route without retrievers: queries like these skip retrieval.
+         * 添加一条没有检索器的路由：与这些查询相似的查询会跳过检索。
+         */
+        public Builder noRetrieval(String description, String... sampleQueries) {
+            return addRoute(description, List.of(), sampleQueries);
+        }
+
+        private Builder addRoute(String description, List<ContentRetriever> retrievers, String... sampleQueries) {
+            routes.add(new RouteDefinition(ensureNotBlank(description, "description"), retrievers, List.of(sampleQueries)));
+            return this;
+        }
+
+        /**
+         * Queries whose best route scores below this cosine similarity are not clear. Defaults to 0 (disabled).
+         * 最佳路由的余弦相似度低于该值的查询被视为不明确。默认 0（不启用）。
+         */
+        public Builder minScore(double minScore) {
+            this.minScore = minScore;
+            return this;
+        }
+
+        /**
+         * Queries whose best route is less than this ahead of the runner-up are not clear. Defaults to 0.02.
+         * 最佳路由领先第二名的差距小于该值的查询被视为不明确。默认 0.02。
+         */
+        public Builder ambiguityMargin(double ambiguityMargin) {
+            this.ambiguityMargin = ambiguityMargin;
+            return this;
+        }
+
+        /**
+         * The router that decides the queries that are not clear, e.g. a LanguageModelQueryRouter. Optional.
+         * 对不明确的查询做决定的路由器，例如 LanguageModelQueryRouter。可选。
+         */
+        public Builder fallback(QueryRouter fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        public EmbeddingQueryRouter build() {
+            return new EmbeddingQueryRouter(this);
+        }
+    }
+}
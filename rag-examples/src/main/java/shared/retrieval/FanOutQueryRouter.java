@@ -0,0 +1,256 @@
+package shared.retrieval;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.rag.query.router.DefaultQueryRouter;
+import dev.langchain4j.rag.query.router.QueryRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static dev.langchain4j.internal.Utils.getOrDefault;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotBlank;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotEmpty;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+/**
+ * Like {@link DefaultQueryRouter}, routes every query to all retrievers, but every retriever gets a deadline.
+ * 与 {@link DefaultQueryRouter} 一样把每个查询路由到所有检索器，但每个检索器都有一个截止时间。
+ * <p>
+ * {@code DefaultRetrievalAugmentor} already queries the routed retrievers concurrently, but it waits for all of them,
+ * {@code DefaultRetrievalAugmentor} 已经会并发查询被路由到的检索器，但它会等待所有检索器，
+ * so one slow backend (e.g. a web search next to an in-memory store) sets the latency of every answer.
+ * 因此一个慢的后端（例如与内存存储并列的网页搜索）会决定每个回答的延迟。
+ * Here a retriever that has not answered within its timeout, or that failed, is dropped for this query:
+ * 这里，一个在超时时间内没有返回或已经失败的检索器，会在本次查询中被丢弃：
+ * it contributes no content, the answer is built from whatever arrived in time, and the drop is reported
+ * 它不提供任何内容，回答基于按时到达的内容生成，并且丢弃会通过
+ * to {@link Builder#onDropped(Consumer)} (logged by default) and counted in {@link #droppedCounts()}.
+ * {@link Builder#onDropped(Consumer)} 报告（默认记录日志），并计入 {@link #droppedCounts()}。
+ * <p>
+ * Combine it with {@link HedgedContentRetriever} to send slow requests to a second replica before giving up on them.
+ * 可与 {@link HedgedContentRetriever} 组合使用，在放弃慢请求之前先把它发送给第二个副本。
+ */
+public class FanOutQueryRouter implements QueryRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(FanOutQueryRouter.class);
+
+    // retrieval is I/O bound: a cached pool of daemon threads, so an abandoned slow call never blocks the JVM from exiting;
+    // abandoned calls are interrupted, but a retriever that ignores interrupts keeps its thread until it returns
+    // 检索是 I/O 密集型的：使用守护线程的缓存线程池，被放弃的慢调用不会阻止 JVM 退出；
+    // 被放弃的调用会被中断，但忽略中断的检索器会一直占用其线程直到返回
+    static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(daemonThreadFactory());
+
+    public enum DropReason {
+        TIMEOUT, FAILED
+    }
+
+    /**
+     * A retriever whose content was left out of the answer to {@code query}.
+     * 一个其内容没有被纳入 {@code query} 回答的检索器。
+     */
+    public record DroppedSource(Query query, String source, DropReason reason, Duration elapsed, Throwable error) {
+    }
+
+    private final List<ContentRetriever> retrievers;
+    private final Map<String, LongAdder> droppedCounts = new LinkedHashMap<>();
+
+    private FanOutQueryRouter(Builder builder) {
+        ensureNotEmpty(builder.sources, "retrievers");
+        Executor executor = getOrDefault(builder.executor, DEFAULT_EXECUTOR);
+        Consumer<DroppedSource> onDropped = getOrDefault(builder.onDropped, dropped ->
+                log.warn("Dropped '{}' ({}) after {} ms for query '{}'", dropped.source(), dropped.reason(),
+                        dropped.elapsed().toMillis(), dropped.query().text()));
+
+        List<ContentRetriever> retrievers = new ArrayList<>();
+        for (Source source : builder.sources) {
+            droppedCounts.put(source.name(), new LongAdder());
+            retrievers.add(new DeadlineContentRetriever(source.name(), source.retriever().apply(executor), source.timeout(), executor, onDropped));
+        }
+        this.retrievers = List.copyOf(retrievers);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Collection<ContentRetriever> route(Query query) {
+        return retrievers;
+    }
+
+    /**
+     * How often each source was dropped so far, by source name.
+     * 按来源名称统计的各来源迄今被丢弃的次数。
+     */
+    public Map<String, Long> droppedCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        droppedCounts.forEach((source, count) -> counts.put(source, count.sum()));
+        return counts;
+    }
+
+    private static ThreadFactory daemonThreadFactory() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "fan-out-retriever-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record Source(String name, Function<Executor, ContentRetriever> retriever, Duration timeout) {
+    }
+
+    private class DeadlineContentRetriever implements ContentRetriever {
+
+        private final String name;
+        private final ContentRetriever delegate;
+        private final Duration timeout;
+        private final Executor executor;
+        private final Consumer<DroppedSource> onDropped;
+
+        private DeadlineContentRetriever(String name, ContentRetriever delegate, Duration timeout,
+                                         Executor executor, Consumer<DroppedSource> onDropped) {
+            this.name = name;
+            this.delegate = delegate;
+            this.timeout = timeout;
+            this.executor = executor;
+            this.onDropped = onDropped;
+        }
+
+        @Override
+        public List<Content> retrieve(Query query) {
+            long start = System.nanoTime();
+            // the call runs on its own thread, so it can be abandoned when the deadline passes;
+            // a hedged retriever runs both its calls on the executor without waiting there itself
+            // 调用在单独的线程上运行，因此超过截止时间时可以放弃它；
+            // 对冲检索器在执行器上运行它的两个调用，但自身不会在执行器上等待
+            Future<List<Content>> call = delegate instanceof HedgedContentRetriever hedged
+                    ? hedged.retrieveAsync(query)
+                    : submit(query);
+            try {
+                return call.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // interrupts the abandoned call, so its thread goes back to the pool
+                // 中断被放弃的调用，使其线程回到线程池
+                call.cancel(true);
+                drop(query, DropReason.TIMEOUT, start, null);
+            } catch (ExecutionException e) {
+                drop(query, DropReason.FAILED, start, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                call.cancel(true);
+                drop(query, DropReason.TIMEOUT, start, e);
+            }
+            return List.of();
+        }
+
+        private Future<List<Content>> submit(Query query) {
+            // unlike CompletableFuture.cancel(true), FutureTask.cancel(true) interrupts the thread running the call
+            // 与 CompletableFuture.cancel(true) 不同，FutureTask.cancel(true) 会中断正在运行调用的线程
+            FutureTask<List<Content>> call = new FutureTask<>(() -> delegate.retrieve(query));
+            try {
+                executor.execute(call);
+            } catch (RuntimeException e) {
+                // e.g. rejected by a saturated bounded executor
+                // 例如被已饱和的有界执行器拒绝
+                return CompletableFuture.failedFuture(e);
+            }
+            return call;
+        }
+
+        private void drop(Query query, DropReason reason, long start, Throwable error) {
+            droppedCounts.get(name).increment();
+            onDropped.accept(new DroppedSource(query, name, reason, Duration.ofNanos(System.nanoTime() - start), error));
+        }
+    }
+
+    public static class Builder {
+
+        private final List<Source> sources = new ArrayList<>();
+        private Executor executor;
+        private Consumer<DroppedSource> onDropped;
+
+        /**
+         * Adds a retriever that is dropped for a query when it did not answer within {@code timeout}.
+         * 添加一个检索器，若它没有在 {@code timeout} 内返回，就会在本次查询中被丢弃。
+         * The {@code name} identifies it in {@link DroppedSource} and {@link FanOutQueryRouter#droppedCounts()}.
+         * {@code name} 用于在 {@link DroppedSource} 与 {@link FanOutQueryRouter#droppedCounts()} 中标识它。
+         */
+        public Builder retriever(String name, ContentRetriever retriever, Duration timeout) {
+            ensureNotNull(retriever, "retriever");
+            return source(name, executor -> retriever, timeout);
+        }
+
+        /**
+         * Adds a retriever with a replica: when the primary did not answer after {@code hedgeAfter},
+         * 添加一个带副本的检索器：当主检索器在 {@code hedgeAfter} 之后仍未返回时，
+         * the query is also sent to the replica, see {@link HedgedContentRetriever}.
+         * 查询也会被发送给副本，参见 {@link HedgedContentRetriever}。
+         */
+        public Builder hedgedRetriever(String name, ContentRetriever primary, ContentRetriever replica,
+                                       Duration hedgeAfter, Duration timeout) {
+            ensureNotNull(primary, "primary");
+            ensureNotNull(replica, "replica");
+            ensureNotNull(hedgeAfter, "hedgeAfter");
+            return source(name, executor -> new HedgedContentRetriever(primary, replica, hedgeAfter, executor), timeout);
+        }
+
+        private Builder source(String name, Function<Executor, ContentRetriever> retriever, Duration timeout) {
+            ensureNotBlank(name, "name");
+            if (sources.stream().anyMatch(source -> source.name().equals(name))) {
+                throw new IllegalArgumentException("There is already a retriever named '" + name + "'");
+            }
+            sources.add(new Source(name, retriever, ensureNotNull(timeout, "timeout")));
+            return this;
+        }
+
+        /**
+         * Runs the retriever calls. Defaults to a shared cached pool of daemon threads.
+         * 运行检索器调用的执行器，默认使用共享的守护线程缓存线程池。
+         * Every call holds one thread while it runs and no task waits on another one, so a bounded pool is safe:
+         * 每个调用在运行期间占用一个线程，且没有任务等待另一个任务，因此可以安全地使用有界线程池：
+         * it limits how many calls run at once (a hedged source may run two), and rejected calls count as failed.
+         * 它限制同时运行的调用数（一个对冲来源可能同时运行两个），被拒绝的调用视为失败。
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Called for every source that was dropped from an answer. Defaults to logging a warning.
+         * 每当有来源被某个回答丢弃时调用，默认记录一条警告日志。
+         */
+        public Builder onDropped(Consumer<DroppedSource> onDropped) {
+            this.onDropped = onDropped;
+            return this;
+        }
+
+        public FanOutQueryRouter build() {
+            return new FanOutQueryRouter(this);
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+package shared.retrieval;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+/**
+ * A {@link ContentRetriever} that sends a hedged request to a replica when the primary is slow.
+ * 当主检索器变慢时，向副本发送对冲请求的 {@link ContentRetriever}。
+ * <p>
+ * The query goes to the primary first. If it has not answered after {@code hedgeAfter}, or if it failed,
+ * 查询先发送给主检索器。如果它在 {@code hedgeAfter} 之后仍未返回，或者已经失败，
+ * the same query is sent to the replica, and whichever of the two succeeds first wins.
+ * 同一个查询会被发送给副本，两者中先成功返回的那个胜出。
+ * Set {@code hedgeAfter} around the primary's p95 latency: only the slowest ~5% of the queries pay for a second request,
+ * 把 {@code hedgeAfter} 设为主检索器 p95 延迟左右：只有最慢的约 5% 的查询会多发一次请求，
+ * while the tail latency drops to roughly {@code hedgeAfter} plus the replica's typical latency.
+ * 而尾部延迟会降到大约 {@code hedgeAfter} 加上副本的典型延迟。
+ * <p>
+ * Both retrievers must return equivalent results, e.g. two replicas of the same search index or search API.
+ * 两个检索器必须返回等价的结果，例如同一个搜索索引或搜索 API 的两个副本。
+ */
+public class HedgedContentRetriever implements ContentRetriever {
+
+    private final ContentRetriever primary;
+    private final ContentRetriever replica;
+    private final long hedgeAfterNanos;
+    private final Executor executor;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedgedRequests = new LongAdder();
+    private final LongAdder replicaWins = new LongAdder();
+
+    public HedgedContentRetriever(ContentRetriever primary, ContentRetriever replica, Duration hedgeAfter) {
+        this(primary, replica, hedgeAfter, FanOutQueryRouter.DEFAULT_EXECUTOR);
+    }
+
+    public HedgedContentRetriever(ContentRetriever primary, ContentRetriever replica, Duration hedgeAfter, Executor executor) {
+        this.primary = ensureNotNull(primary, "primary");
+        this.replica = ensureNotNull(replica, "replica");
+        this.hedgeAfterNanos = ensureNotNull(hedgeAfter, "hedgeAfter").toNanos();
+        this.executor = ensureNotNull(executor, "executor");
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        CompletableFuture<List<Content>> winner = retrieveAsync(query);
+        try {
+            return winner.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            winner.cancel(true);
+            throw new CancellationException("Interrupted while retrieving");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Starts the primary call and, when needed, the hedged call, without blocking the calling thread.
+     * 启动主调用以及（必要时的）对冲调用，不阻塞调用线程。
+     * Cancelling the returned future interrupts whichever call is still running.
+     * 取消返回的 future 会中断仍在运行的调用。
+     * <p>
+     * No task waits on another one, so the retriever cannot starve a bounded executor:
+     * 没有任何任务等待另一个任务，因此检索器不会耗尽有界执行器：
+     * each call holds one thread while it runs, and the hedge is only scheduled, never waited for, on the executor.
+     * 每个调用在运行期间只占用一个线程，对冲请求只会被调度到执行器上，而不会在执行器上等待。
+     */
+    CompletableFuture<List<Content>> retrieveAsync(Query query) {
+        requests.increment();
+        HedgedCall call = new HedgedCall(query);
+        call.start();
+        return call.winner;
+    }
+
+    /**
+     * The state of one query: the winner, and the primary and replica calls racing for it.
+     * 一次查询的状态：胜出结果，以及竞争它的主调用和副本调用。
+     */
+    private class HedgedCall {
+
+        private final Query query;
+        private final CompletableFuture<List<Content>> winner = new CompletableFuture<>();
+        private final AtomicBoolean hedged = new AtomicBoolean();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final List<FutureTask<List<Content>>> calls = new CopyOnWriteArrayList<>();
+
+        private HedgedCall(Query query) {
+            this.query = query;
+            // whoever completes the winner (a call, or the caller cancelling it) stops the other call;
+            // FutureTask.cancel(true), unlike CompletableFuture.cancel(true), interrupts the thread running it
+            // 无论是谁完成了 winner（某个调用，或取消它的调用方），都会停止另一个调用；
+            // 与 CompletableFuture.cancel(true) 不同，FutureTask.cancel(true) 会中断正在运行它的线程
+            winner.whenComplete((contents, error) -> calls.forEach(call -> call.cancel(true)));
+        }
+
+        private void start() {
+            submit(primary, false);
+            // too slow: hedge; the delayed hedge only submits a task, so it runs on the JDK's shared delay thread
+            // 太慢：发起对冲请求；延迟的对冲只是提交一个任务，因此它在 JDK 共享的延迟线程上运行
+            CompletableFuture.delayedExecutor(hedgeAfterNanos, TimeUnit.NANOSECONDS, Runnable::run).execute(this::hedge);
+        }
+
+        private void hedge() {
+            if (!winner.isDone() && hedged.compareAndSet(false, true)) {
+                hedgedRequests.increment();
+                submit(replica, true);
+            }
+        }
+
+        private void submit(ContentRetriever retriever, boolean fromReplica) {
+            FutureTask<List<Content>> call = new FutureTask<>(() -> retriever.retrieve(query)) {
+                @Override
+                protected void done() {
+                    complete(this, fromReplica);
+                }
+            };
+            calls.add(call);
+            if (winner.isDone()) {
+                // the query was settled while this call was being added
+                // 在添加这个调用的过程中查询已经有了结果
+                call.cancel(true);
+                return;
+            }
+            try {
+                executor.execute(call);
+            } catch (RuntimeException e) {
+                winner.completeExceptionally(e);
+            }
+        }
+
+        private void complete(FutureTask<List<Content>> call, boolean fromReplica) {
+            try {
+                if (winner.complete(call.get()) && fromReplica) {
+                    replicaWins.increment();
+                }
+            } catch (CancellationException e) {
+                // stopped because the query was already settled
+                // 因为查询已有结果而被停止
+            } catch (InterruptedException e) {
+                // never thrown: the call is done
+                // 不会抛出：调用已经完成
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                if (!fromReplica) {
+                    // failed: hedge right away
+                    // 已失败：立即发起对冲请求
+                    hedge();
+                }
+                // the first success wins, the query only fails when both calls failed
+                // 先成功者胜出，只有两个调用都失败时查询才会失败
+                if (failures.incrementAndGet() == 2) {
+                    winner.completeExceptionally(e.getCause());
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of queries, how many of them were also sent to the replica, and how often the replica answered first.
+     * 查询次数、其中同时发送给副本的次数，以及副本先返回的次数。
+     */
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long hedgedRequests() {
+        return hedgedRequests.sum();
+    }
+
+    public long replicaWins() {
+        return replicaWins.sum();
+    }
+}
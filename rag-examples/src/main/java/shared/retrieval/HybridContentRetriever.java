@@ -0,0 +1,220 @@
+package shared.retrieval;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import shared.store.Bm25Index;
+import shared.store.Bm25IndexingEmbeddingStore;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import static dev.langchain4j.internal.Utils.getOrDefault;
+import static dev.langchain4j.internal.ValidationUtils.ensureGreaterThanZero;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+/**
+ * A {@link ContentRetriever} that combines vector search with BM25 keyword search.
+ * 一个将向量检索与 BM25 关键词检索结合起来的 {@link ContentRetriever}。
+ * <p>
+ * Vector search ({@link EmbeddingStoreContentRetriever}) finds segments that mean the same as the query,
+ * 向量检索（{@link EmbeddingStoreContentRetriever}）能找到与查询含义相同的片段，
+ * but misses exact tokens such as booking numbers or clause ids, which keyword search ({@link Bm25Index}) finds.
+ * 但会漏掉预订号或条款编号等精确词元，而关键词检索（{@link Bm25Index}）能找到它们。
+ * Both searches run in parallel, each returns {@code candidates} segments, and they are fused with reciprocal rank fusion:
+ * 两种检索并行运行，各返回 {@code candidates} 个片段，并通过倒数排名融合（RRF）合并：
+ * a segment scores {@code 1 / (rrfK + rank)} for each list it is in, so segments found by both rise to the top.
+ * 片段在它出现的每个列表中得分 {@code 1 / (rrfK + rank)}，因此两种检索都找到的片段会排到最前面。
+ * RRF only uses ranks, so the two kinds of scores never need to be made comparable.
+ * RRF 只使用排名，因此永远不需要让两种分数可比。
+ * <p>
+ * The index must hold the same segments under the same ids as the store, see {@link Bm25IndexingEmbeddingStore}.
+ * 索引必须以与存储相同的 id 保存相同的片段，参见 {@link Bm25IndexingEmbeddingStore}。
+ * The {@link ContentMetadata#SCORE} of the returned contents is the fused score.
+ * 返回内容的 {@link ContentMetadata#SCORE} 是融合后的分数。
+ */
+public class HybridContentRetriever implements ContentRetriever {
+
+    private static final Logger log = LoggerFactory.getLogger(HybridContentRetriever.class);
+
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final EmbeddingModel embeddingModel;
+    private final Bm25Index keywordIndex;
+    private final int maxResults;
+    private final int candidates;
+    private final double minScore;
+    private final int rrfK;
+    private final Executor executor;
+
+    private static final class Fused {
+
+        private final TextSegment textSegment;
+        private double score;
+
+        private Fused(TextSegment textSegment) {
+            this.textSegment = textSegment;
+        }
+    }
+
+    private HybridContentRetriever(Builder builder) {
+        this.embeddingStore = ensureNotNull(builder.embeddingStore, "embeddingStore");
+        this.embeddingModel = ensureNotNull(builder.embeddingModel, "embeddingModel");
+        this.keywordIndex = ensureNotNull(builder.keywordIndex, "keywordIndex");
+        this.maxResults = ensureGreaterThanZero(getOrDefault(builder.maxResults, 3), "maxResults");
+        this.candidates = ensureGreaterThanZero(getOrDefault(builder.candidates, 4 * maxResults), "candidates");
+        this.minScore = getOrDefault(builder.minScore, 0.0);
+        this.rrfK = ensureGreaterThanZero(getOrDefault(builder.rrfK, 60), "rrfK");
+        this.executor = getOrDefault(builder.executor, FanOutQueryRouter.DEFAULT_EXECUTOR);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        // the embedding dominates, so it runs on the executor while this thread searches the keyword index
+        // 嵌入耗时最多，因此它在执行器上运行，而当前线程检索关键词索引
+        CompletableFuture<List<EmbeddingMatch<TextSegment>>> vectorSearch = CompletableFuture.supplyAsync(() -> {
+            Embedding embedding = embeddingModel.embed(query.text()).content();
+            return embeddingStore.search(EmbeddingSearchRequest.builder()
+                    .queryEmbedding(embedding)
+                    .maxResults(candidates)
+                    .minScore(minScore)
+                    .build()).matches();
+        }, executor);
+        List<Bm25Index.Match> keywordMatches = keywordIndex.search(query.text(), candidates);
+        List<EmbeddingMatch<TextSegment>> vectorMatches = await(vectorSearch);
+
+        Map<String, Fused> fused = new HashMap<>();
+        for (int rank = 0; rank < vectorMatches.size(); rank++) {
+            EmbeddingMatch<TextSegment> match = vectorMatches.get(rank);
+            if (match.embedded() != null) {
+                fused.computeIfAbsent(match.embeddingId(), id -> new Fused(match.embedded())).score += 1.0 / (rrfK + rank + 1);
+            }
+        }
+        int foundByBoth = 0;
+        for (int rank = 0; rank < keywordMatches.size(); rank++) {
+            Bm25Index.Match match = keywordMatches.get(rank);
+            if (fused.containsKey(match.id())) {
+                foundByBoth++;
+            }
+            fused.computeIfAbsent(match.id(), id -> new Fused(match.textSegment())).score += 1.0 / (rrfK + rank + 1);
+        }
+        log.debug("Query '{}': {} vector and {} keyword candidates, {} found by both", query.text(),
+                vectorMatches.size(), keywordMatches.size(), foundByBoth);
+
+        List<Map.Entry<String, Fused>> ranked = new ArrayList<>(fused.entrySet());
+        ranked.sort(Comparator.comparingDouble((Map.Entry<String, Fused> entry) -> entry.getValue().score).reversed());
+        List<Content> contents = new ArrayList<>(Math.min(maxResults, ranked.size()));
+        for (Map.Entry<String, Fused> entry : ranked.subList(0, Math.min(maxResults, ranked.size()))) {
+            contents.add(Content.from(entry.getValue().textSegment, Map.of(
+                    ContentMetadata.SCORE, entry.getValue().score,
+                    ContentMetadata.EMBEDDING_ID, entry.getKey())));
+        }
+        return contents;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    public static class Builder {
+
+        private EmbeddingStore<TextSegment> embeddingStore;
+        private EmbeddingModel embeddingModel;
+        private Bm25Index keywordIndex;
+        private Integer maxResults;
+        private Integer candidates;
+        private Double minScore;
+        private Integer rrfK;
+        private Executor executor;
+
+        public Builder embeddingStore(EmbeddingStore<TextSegment> embeddingStore) {
+            this.embeddingStore = embeddingStore;
+            return this;
+        }
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder keywordIndex(Bm25Index keywordIndex) {
+            this.keywordIndex = keywordIndex;
+            return this;
+        }
+
+        /**
+         * Number of fused results. Defaults to 3.
+         * 融合后的结果数量。默认 3。
+         */
+        public Builder maxResults(int maxResults) {
+            this.maxResults = maxResults;
+            return this;
+        }
+
+        /**
+         * Number of results taken from each search before fusing. Defaults to 4 x {@code maxResults}.
+         * 融合前从每种检索中取的结果数量。默认 4 x {@code maxResults}。
+         */
+        public Builder candidates(int candidates) {
+            this.candidates = candidates;
+            return this;
+        }
+
+        /**
+         * Minimum similarity of the vector search results. Keyword results are not filtered. Defaults to 0.
+         * 向量检索结果的最小相似度。关键词检索结果不会被过滤。默认 0。
+         */
+        public Builder minScore(double minScore) {
+            this.minScore = minScore;
+            return this;
+        }
+
+        /**
+         * The RRF constant: the higher it is, the less the top ranks of a single list dominate. Defaults to 60.
+         * RRF 常数：值越大，单个列表中靠前排名的主导作用越小。默认 60。
+         */
+        public Builder rrfK(int rrfK) {
+            this.rrfK = rrfK;
+            return this;
+        }
+
+        /**
+         * Runs the vector search. Defaults to a shared cached pool of daemon threads.
+         * 运行向量检索的执行器，默认使用共享的守护线程缓存线程池。
+         */
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public HybridContentRetriever build() {
+            return new HybridContentRetriever(this);
+        }
+    }
+}
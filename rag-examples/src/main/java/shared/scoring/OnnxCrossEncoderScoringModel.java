@@ -0,0 +1,203 @@
+package shared.scoring;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.djl.util.PairList;
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+import dev.langchain4j.model.scoring.ScoringModel;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.LongBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+/**
+ * A {@link ScoringModel} that re-ranks in-process with an ONNX cross-encoder, e.g. {@code cross-encoder/ms-marco-MiniLM-L6-v2}.
+ * 一个使用 ONNX 交叉编码器在进程内重排序的 {@link ScoringModel}，例如 {@code cross-encoder/ms-marco-MiniLM-L6-v2}。
+ * <p>
+ * It is a drop-in replacement for a remote scorer such as {@code CohereScoringModel} in a {@code ReRankingContentAggregator}:
+ * 它可以直接替换 {@code ReRankingContentAggregator} 中的远程评分模型（如 {@code CohereScoringModel}）：
+ * there is no network round trip per query, and it works in air-gapped environments.
+ * 每次查询都没有网络往返，并且可以在隔离网络环境中运行。
+ * <p>
+ * All (query, segment) pairs of a call are tokenized together, padded to the longest pair and scored
+ * 一次调用中的所有（查询，片段）对会被一起分词、填充到最长的那一对，并在
+ * in a single inference pass. The ONNX session is created once and shared by all threads:
+ * 一次推理中完成评分。ONNX 会话只创建一次，并由所有线程共享：
+ * ONNX Runtime sessions are thread-safe, and one session per thread would load the model once per thread.
+ * ONNX Runtime 会话是线程安全的，而每个线程一个会话会让每个线程都加载一次模型。
+ * <p>
+ * The model must output one logit per pair (shape {@code [batch, 1]}). By default it is mapped to
+ * 模型必须为每一对输出一个 logit（形状为 {@code [batch, 1]}）。默认会通过 sigmoid 把它映射到
+ * 0..1 with a sigmoid, like the relevance scores of remote re-rankers, so {@code minScore} thresholds keep their meaning.
+ * 0..1，与远程重排序模型的相关性分数一致，因此 {@code minScore} 阈值的含义保持不变。
+ * Like {@code BgeSmallEnV15QuantizedEmbeddingModel}, the model and its {@code tokenizer.json} can be loaded
+ * 与 {@code BgeSmallEnV15QuantizedEmbeddingModel} 一样，模型及其 {@code tokenizer.json} 可以从
+ * from the file system or be packaged in a jar and loaded from the classpath, see {@link #fromClasspath(String, String)}.
+ * 文件系统加载，也可以打包进 jar 并从 classpath 加载，参见 {@link #fromClasspath(String, String)}。
+ */
+public class OnnxCrossEncoderScoringModel implements ScoringModel {
+
+    private static final int MAX_SEQUENCE_LENGTH = 512;
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final HuggingFaceTokenizer tokenizer;
+    private final boolean hasTokenTypeIds;
+    private final boolean normalize;
+
+    public OnnxCrossEncoderScoringModel(Path modelPath, Path tokenizerPath) {
+        this(modelPath, tokenizerPath, true);
+    }
+
+    /**
+     * @param normalize whether to map the logits to 0..1 with a sigmoid
+     *                  是否通过 sigmoid 把 logit 映射到 0..1
+     */
+    public OnnxCrossEncoderScoringModel(Path modelPath, Path tokenizerPath, boolean normalize) {
+        this.environment = OrtEnvironment.getEnvironment();
+        try {
+            this.session = environment.createSession(ensureNotNull(modelPath, "modelPath").toString());
+            this.tokenizer = HuggingFaceTokenizer.newInstance(ensureNotNull(tokenizerPath, "tokenizerPath"), tokenizerOptions());
+        } catch (OrtException e) {
+            throw new IllegalArgumentException("Cannot load ONNX model " + modelPath, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.hasTokenTypeIds = validate(session);
+        this.normalize = normalize;
+    }
+
+    private OnnxCrossEncoderScoringModel(byte[] model, InputStream tokenizer, boolean normalize) throws OrtException, IOException {
+        this.environment = OrtEnvironment.getEnvironment();
+        this.session = environment.createSession(model);
+        this.tokenizer = HuggingFaceTokenizer.newInstance(tokenizer, tokenizerOptions());
+        this.hasTokenTypeIds = validate(session);
+        this.normalize = normalize;
+    }
+
+    /**
+     * Loads a cross-encoder that is packaged in a jar, e.g. {@code fromClasspath("ms-marco-MiniLM-L6-v2.onnx", "ms-marco-MiniLM-L6-v2-tokenizer.json")}.
+     * 加载打包在 jar 中的交叉编码器，例如 {@code fromClasspath("ms-marco-MiniLM-L6-v2.onnx", "ms-marco-MiniLM-L6-v2-tokenizer.json")}。
+     */
+    public static OnnxCrossEncoderScoringModel fromClasspath(String modelResource, String tokenizerResource) {
+        ClassLoader classLoader = OnnxCrossEncoderScoringModel.class.getClassLoader();
+        try (InputStream model = classLoader.getResourceAsStream(modelResource);
+             InputStream tokenizer = classLoader.getResourceAsStream(tokenizerResource)) {
+            if (model == null || tokenizer == null) {
+                throw new IllegalArgumentException("Cannot find " + (model == null ? modelResource : tokenizerResource) + " on the classpath");
+            }
+            return new OnnxCrossEncoderScoringModel(model.readAllBytes(), tokenizer, true);
+        } catch (OrtException e) {
+            throw new IllegalArgumentException("Cannot load ONNX model " + modelResource, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, String> tokenizerOptions() {
+        // truncate the segment, never the query; padding is done per batch, to the longest pair
+        // 截断片段而不是查询；填充按批进行，填充到最长的那一对
+        Map<String, String> options = new HashMap<>();
+        options.put("maxLength", String.valueOf(MAX_SEQUENCE_LENGTH));
+        options.put("truncation", "only_second");
+        options.put("padding", "false");
+        return options;
+    }
+
+    private static boolean validate(OrtSession session) {
+        try {
+            NodeInfo output = session.getOutputInfo().values().iterator().next();
+            if (output.getInfo() instanceof TensorInfo tensor) {
+                long[] shape = tensor.getShape();
+                if (shape.length != 2 || shape[1] != 1) {
+                    throw new IllegalArgumentException("Expected a cross-encoder with one logit per pair (shape [batch, 1]), "
+                            + "but the model outputs " + tensor);
+                }
+            }
+            return session.getInputNames().contains("token_type_ids");
+        } catch (OrtException e) {
+            throw new IllegalArgumentException("Cannot read the inputs and outputs of the ONNX model", e);
+        }
+    }
+
+    @Override
+    public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+        if (segments.isEmpty()) {
+            return Response.from(List.of());
+        }
+
+        PairList<String, String> pairs = new PairList<>(segments.size());
+        for (TextSegment segment : segments) {
+            pairs.add(query, segment.text());
+        }
+        Encoding[] encodings = tokenizer.batchEncode(pairs);
+
+        int batchSize = encodings.length;
+        long[][] ids = new long[batchSize][];
+        int sequenceLength = 0;
+        int tokenCount = 0;
+        for (int i = 0; i < batchSize; i++) {
+            ids[i] = encodings[i].getIds();
+            sequenceLength = Math.max(sequenceLength, ids[i].length);
+            tokenCount += ids[i].length;
+        }
+
+        // one [batch, sequenceLength] tensor per input, shorter pairs are padded with zeros (masked out)
+        // 每个输入一个 [batch, sequenceLength] 张量，较短的对用 0 填充（会被掩码屏蔽）
+        long[] inputIds = new long[batchSize * sequenceLength];
+        long[] attentionMask = new long[batchSize * sequenceLength];
+        long[] tokenTypeIds = new long[batchSize * sequenceLength];
+        for (int i = 0; i < batchSize; i++) {
+            int offset = i * sequenceLength;
+            System.arraycopy(ids[i], 0, inputIds, offset, ids[i].length);
+            Arrays.fill(attentionMask, offset, offset + ids[i].length, 1L);
+            if (hasTokenTypeIds) {
+                long[] typeIds = encodings[i].getTypeIds();
+                System.arraycopy(typeIds, 0, tokenTypeIds, offset, typeIds.length);
+            }
+        }
+
+        long[] shape = {batchSize, sequenceLength};
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, LongBuffer.wrap(inputIds), shape));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, LongBuffer.wrap(attentionMask), shape));
+            if (hasTokenTypeIds) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, LongBuffer.wrap(tokenTypeIds), shape));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                float[][] logits = (float[][]) result.get(0).getValue();
+                List<Double> scores = new ArrayList<>(batchSize);
+                for (float[] logit : logits) {
+                    scores.add(normalize ? sigmoid(logit[0]) : logit[0]);
+                }
+                return Response.from(scores, new TokenUsage(tokenCount));
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("Cross-encoder inference failed", e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    private static double sigmoid(float logit) {
+        return 1 / (1 + Math.exp(-logit));
+    }
+}
@@ -0,0 +1,413 @@
+package shared.store;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static dev.langchain4j.internal.ValidationUtils.ensureGreaterThanZero;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+/**
+ * An in-process BM25 keyword index over text segments, updated incrementally as segments are added or removed.
+ * 一个进程内的 BM25 关键词索引，随片段的添加或删除增量更新。
+ * <p>
+ * Dense search scores exact tokens such as booking numbers ("MS-777") or clause ids poorly; keyword search finds them.
+ * 稠密检索对预订号（"MS-777"）或条款编号等精确词元的评分很差；关键词检索能找到它们。
+ * Fill it during ingestion with {@link Bm25IndexingEmbeddingStore}, and query it together with the embedding store
+ * 可在导入时通过 {@link Bm25IndexingEmbeddingStore} 填充它，并通过 {@code HybridContentRetriever}
+ * through {@code HybridContentRetriever}.
+ * 与嵌入存储一起查询。
+ * <p>
+ * Segments get consecutive int document numbers, so each term's postings list is appended in document order
+ * 片段获得连续的 int 文档编号，因此每个词项的倒排列表按文档顺序追加，
+ * and stored as variable-length (doc gap, term frequency) pairs in one {@code byte[]}, and document lengths are an {@code int[]}:
+ * 并以变长的（文档间隔，词频）对存储在一个 {@code byte[]} 中，文档长度则存储在一个 {@code int[]} 中：
+ * no object per posting. Removed segments are skipped until they outnumber the live ones, then the index is rebuilt.
+ * 每个倒排项都没有对象。被删除的片段会被跳过，直到其数量超过存活片段时再重建索引。
+ */
+public class Bm25Index {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+    // too common to tell segments apart, they only make every segment match
+    // 太常见，无法区分片段，只会让每个片段都匹配
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "can", "do", "does", "for", "from", "has", "have",
+            "i", "if", "in", "is", "it", "its", "me", "my", "of", "on", "or", "so", "that", "the", "their", "there",
+            "this", "to", "was", "we", "what", "when", "which", "who", "will", "with", "you", "your");
+
+    private final double k1;
+    private final double b;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int documentCount;
+    private String[] ids;
+    private TextSegment[] segments;
+    private int[] lengths;
+    private final Map<String, Integer> documentById = new HashMap<>();
+    private final Map<String, Postings> postingsByTerm = new HashMap<>();
+
+    private int liveDocuments;
+    private long liveLength;
+
+    /**
+     * A segment that matched a query, with its BM25 score.
+     * 与查询匹配的片段及其 BM25 分数。
+     */
+    public record Match(String id, TextSegment textSegment, double score) {
+    }
+
+    public Bm25Index() {
+        this(1.2, 0.75);
+    }
+
+    /**
+     * @param k1 how quickly repeating a term stops adding to the score, usually 1.2 to 2
+     *           重复出现的词项多快不再增加分数，通常为 1.2 到 2
+     * @param b  how much long segments are penalized, 0 (not at all) to 1
+     *           对长片段的惩罚程度，从 0（不惩罚）到 1
+     */
+    public Bm25Index(double k1, double b) {
+        this.k1 = k1;
+        this.b = b;
+        this.ids = new String[DEFAULT_INITIAL_CAPACITY];
+        this.segments = new TextSegment[DEFAULT_INITIAL_CAPACITY];
+        this.lengths = new int[DEFAULT_INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds segments under the given ids (normally the ids they have in the embedding store), replacing existing ones.
+     * 以给定的 id（通常是它们在嵌入存储中的 id）添加片段，并替换已有的片段。
+     */
+    public void addAll(List<String> ids, List<TextSegment> segments) {
+        if (ids.size() != segments.size()) {
+            throw new IllegalArgumentException("The list of ids and segments must have the same size");
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < ids.size(); i++) {
+                String id = ensureNotNull(ids.get(i), "id");
+                Integer existing = documentById.get(id);
+                if (existing != null) {
+                    removeDocument(existing);
+                }
+                TextSegment segment = segments.get(i);
+                if (segment != null) {
+                    append(id, segment);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Integer document = documentById.get(id);
+                if (document != null) {
+                    removeDocument(document);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll(Filter filter) {
+        ensureNotNull(filter, "filter");
+        lock.writeLock().lock();
+        try {
+            for (int document = 0; document < documentCount; document++) {
+                if (segments[document] != null && filter.test(segments[document].metadata())) {
+                    removeDocument(document);
+                }
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(ids, 0, documentCount, null);
+            Arrays.fill(segments, 0, documentCount, null);
+            documentById.clear();
+            postingsByTerm.clear();
+            documentCount = 0;
+            liveDocuments = 0;
+            liveLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the {@code maxResults} segments with the highest BM25 score for {@code query}, best first.
+     * 返回针对 {@code query} BM25 分数最高的 {@code maxResults} 个片段，最好的在前。
+     */
+    public List<Match> search(String query, int maxResults) {
+        ensureGreaterThanZero(maxResults, "maxResults");
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+
+        lock.readLock().lock();
+        try {
+            if (liveDocuments == 0 || terms.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) liveLength / liveDocuments;
+            double[] scores = new double[documentCount];
+            int[] matched = new int[Math.min(documentCount, 64)];
+            int matchedCount = 0;
+
+            for (String term : terms) {
+                Postings postings = postingsByTerm.get(term);
+                if (postings == null || postings.documentFrequency == 0) {
+                    continue;
+                }
+                double idf = Math.log(1 + (liveDocuments - postings.documentFrequency + 0.5) / (postings.documentFrequency + 0.5));
+                byte[] data = postings.data;
+                int position = 0;
+                int document = -1;
+                while (position < postings.length) {
+                    // inlined varint decoding of (doc gap, term frequency)
+                    // 内联的（文档间隔，词频）变长整数解码
+                    int gap = 0;
+                    for (int shift = 0; ; shift += 7) {
+                        byte next = data[position++];
+                        gap |= (next & 0x7F) << shift;
+                        if (next >= 0) {
+                            break;
+                        }
+                    }
+                    int frequency = 0;
+                    for (int shift = 0; ; shift += 7) {
+                        byte next = data[position++];
+                        frequency |= (next & 0x7F) << shift;
+                        if (next >= 0) {
+                            break;
+                        }
+                    }
+                    document += gap;
+                    if (segments[document] == null) {
+                        continue;
+                    }
+                    if (scores[document] == 0) {
+                        if (matchedCount == matched.length) {
+                            matched = Arrays.copyOf(matched, matchedCount * 2);
+                        }
+                        matched[matchedCount++] = document;
+                    }
+                    double norm = k1 * (1 - b + b * lengths[document] / averageLength);
+                    scores[document] += idf * frequency * (k1 + 1) / (frequency + norm);
+                }
+            }
+
+            // keep the best maxResults in a min-heap
+            // 用最小堆保留最好的 maxResults 个
+            PriorityQueue<Integer> best = new PriorityQueue<>(maxResults + 1,
+                    (left, right) -> Double.compare(scores[left], scores[right]));
+            for (int i = 0; i < matchedCount; i++) {
+                best.add(matched[i]);
+                if (best.size() > maxResults) {
+                    best.poll();
+                }
+            }
+            Match[] matches = new Match[best.size()];
+            for (int i = matches.length - 1; i >= 0; i--) {
+                int document = best.poll();
+                matches[i] = new Match(ids[document], segments[document], scores[document]);
+            }
+            return List.of(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lower-cased, stemmed runs of letters and digits without stop words, plus compounds such as "ms-777" as a whole.
+     * 去除停用词并提取词干后的小写字母数字串，以及作为整体的复合词元，例如 "ms-777"。
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int length = text.length();
+        int position = 0;
+        while (position < length) {
+            while (position < length && !Character.isLetterOrDigit(text.charAt(position))) {
+                position++;
+            }
+            // a compound is a run of words joined by punctuation other than whitespace, e.g. "MS-777" or "4.2"
+            // 复合词元是由非空白标点连接的一串单词，例如 "MS-777" 或 "4.2"
+            int compoundStart = position;
+            int compoundEnd = position;
+            int parts = 0;
+            while (position < length) {
+                int wordStart = position;
+                while (position < length && Character.isLetterOrDigit(text.charAt(position))) {
+                    position++;
+                }
+                if (position == wordStart) {
+                    break;
+                }
+                String word = text.substring(wordStart, position).toLowerCase(Locale.ROOT);
+                if (!STOP_WORDS.contains(word)) {
+                    tokens.add(stem(word));
+                }
+                parts++;
+                compoundEnd = position;
+                boolean joined = position + 1 < length
+                        && !Character.isWhitespace(text.charAt(position))
+                        && Character.isLetterOrDigit(text.charAt(position + 1));
+                if (!joined) {
+                    break;
+                }
+                position++;
+            }
+            if (parts > 1) {
+                tokens.add(text.substring(compoundStart, compoundEnd).toLowerCase(Locale.ROOT));
+            }
+        }
+        return tokens;
+    }
+
+    // a light English stemmer, so "reservations" matches "reservation" and "cancelled" matches "cancel"
+    // 一个轻量的英文词干提取器，使 "reservations" 能匹配 "reservation"，"cancelled" 能匹配 "cancel"
+    private static String stem(String word) {
+        if (word.length() <= 4 || !word.chars().allMatch(Character::isLetter)) {
+            return word;
+        }
+        if (word.endsWith("ies")) {
+            word = word.substring(0, word.length() - 3) + "y";
+        } else if (word.endsWith("sses")) {
+            word = word.substring(0, word.length() - 2);
+        } else if (word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+            word = word.substring(0, word.length() - 1);
+        }
+        int suffix = 0;
+        if (word.endsWith("ing") && word.length() >= 6) {
+            suffix = 3;
+        } else if (word.endsWith("ed") && word.length() >= 5) {
+            suffix = 2;
+        }
+        if (suffix == 0) {
+            return word;
+        }
+        String stem = word.substring(0, word.length() - suffix);
+        int length = stem.length();
+        if (stem.charAt(length - 1) == stem.charAt(length - 2) && "aeiousz".indexOf(stem.charAt(length - 1)) < 0) {
+            stem = stem.substring(0, length - 1);
+        }
+        return stem;
+    }
+
+    private void append(String id, TextSegment segment) {
+        if (documentCount == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            segments = Arrays.copyOf(segments, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        int document = documentCount++;
+        List<String> tokens = tokenize(segment.text());
+        ids[document] = id;
+        segments[document] = segment;
+        lengths[document] = tokens.size();
+        documentById.put(id, document);
+        liveDocuments++;
+        liveLength += tokens.size();
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        tokens.forEach(token -> frequencies.merge(token, 1, Integer::sum));
+        frequencies.forEach((term, frequency) ->
+                postingsByTerm.computeIfAbsent(term, unused -> new Postings()).append(document, frequency));
+    }
+
+    private void removeDocument(int document) {
+        // the postings keep pointing at the document, search skips it, and it is gone after the next compaction
+        // 倒排列表仍指向该文档，搜索时会跳过它，下次压缩后它就消失了
+        for (String term : new LinkedHashSet<>(tokenize(segments[document].text()))) {
+            postingsByTerm.get(term).documentFrequency--;
+        }
+        documentById.remove(ids[document]);
+        liveDocuments--;
+        liveLength -= lengths[document];
+        ids[document] = null;
+        segments[document] = null;
+    }
+
+    private void compactIfNeeded() {
+        int removed = documentCount - liveDocuments;
+        if (removed <= liveDocuments || removed < DEFAULT_INITIAL_CAPACITY / 8) {
+            return;
+        }
+        String[] oldIds = ids;
+        TextSegment[] oldSegments = segments;
+        int oldCount = documentCount;
+
+        ids = new String[Math.max(DEFAULT_INITIAL_CAPACITY, liveDocuments * 2)];
+        segments = new TextSegment[ids.length];
+        lengths = new int[ids.length];
+        documentById.clear();
+        postingsByTerm.clear();
+        documentCount = 0;
+        liveDocuments = 0;
+        liveLength = 0;
+        for (int document = 0; document < oldCount; document++) {
+            if (oldSegments[document] != null) {
+                append(oldIds[document], oldSegments[document]);
+            }
+        }
+    }
+
+    private static final class Postings {
+
+        private byte[] data = new byte[8];
+        private int length;
+        private int lastDocument = -1;
+        private int documentFrequency;
+
+        private void append(int document, int frequency) {
+            if (data.length - length < 10) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            writeVarInt(document - lastDocument);
+            writeVarInt(frequency);
+            lastDocument = document;
+            documentFrequency++;
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package shared.store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.Collection;
+import java.util.List;
+
+import static dev.langchain4j.internal.Utils.randomUUID;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+
+/**
+ * An {@link EmbeddingStore} decorator that also adds every stored segment to a {@link Bm25Index}, under the same id.
+ * 一个 {@link EmbeddingStore} 装饰器，它还会以相同的 id 把每个存储的片段添加到 {@link Bm25Index} 中。
+ * <p>
+ * Pass it to {@code EmbeddingStoreIngestor} (or call {@code addAll} on it) instead of the store itself,
+ * 把它（而不是存储本身）传给 {@code EmbeddingStoreIngestor}（或对它调用 {@code addAll}），
+ * and the keyword index is built alongside the vectors, and kept in sync when segments are removed.
+ * 关键词索引就会与向量一起构建，并在删除片段时保持同步。
+ * Searches go to the store only; query both with {@code HybridContentRetriever}.
+ * 搜索只访问存储；可通过 {@code HybridContentRetriever} 同时查询两者。
+ */
+public class Bm25IndexingEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private final EmbeddingStore<TextSegment> delegate;
+    private final Bm25Index index;
+
+    public Bm25IndexingEmbeddingStore(EmbeddingStore<TextSegment> delegate, Bm25Index index) {
+        this.delegate = ensureNotNull(delegate, "delegate");
+        this.index = ensureNotNull(index, "index");
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        return delegate.add(embedding);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        delegate.add(id, embedding);
+        index.removeAll(List.of(id));
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = randomUUID();
+        addAll(List.of(id), List.of(embedding), textSegment == null ? null : List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        return delegate.addAll(embeddings);
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> embedded) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, embedded);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        delegate.addAll(ids, embeddings, embedded);
+        if (embedded == null) {
+            index.removeAll(ids);
+        } else {
+            index.addAll(ids, embedded);
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        delegate.removeAll(ids);
+        index.removeAll(ids);
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        delegate.removeAll(filter);
+        index.removeAll(filter);
+    }
+
+    @Override
+    public void removeAll() {
+        delegate.removeAll();
+        index.removeAll();
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        return delegate.search(request);
+    }
+}
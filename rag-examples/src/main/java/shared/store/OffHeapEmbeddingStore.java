@@ -0,0 +1,564 @@
+package shared.store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+import static dev.langchain4j.internal.Utils.randomUUID;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotEmpty;
+import static dev.langchain4j.internal.ValidationUtils.ensureNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A drop-in replacement for {@code InMemoryEmbeddingStore<TextSegment>} that keeps all vectors
+ * 一个可直接替换 {@code InMemoryEmbeddingStore<TextSegment>} 的嵌入存储，它把所有向量
+ * in contiguous off-heap buffers and all segment texts in a separate off-heap UTF-8 arena (up to 2 GB).
+ * 保存在连续的堆外缓冲区中，并把所有片段文本保存在单独的堆外 UTF-8 区域（最多 2 GB）中。
+ * <p>
+ * The heap only holds ids, offsets, inverse norms and (non-empty) metadata, so millions of segments
+ * 堆上只保存 id、偏移量、范数倒数以及（非空的）元数据，因此数百万片段
+ * do not turn into millions of {@link Embedding} objects for the GC to trace.
+ * 不会变成数百万个需要 GC 追踪的 {@link Embedding} 对象。
+ * Vectors are stored in chunks of at most 1 GB, because a direct buffer is indexed by {@code int}.
+ * 向量按最多 1 GB 的块存储，因为直接缓冲区使用 {@code int} 索引。
+ * Search is still a brute-force scan, but over flat memory with a 4-way unrolled dot product,
+ * 搜索仍是暴力扫描，但在扁平内存上使用 4 路展开的点积，
+ * and large stores are scanned in parallel partitions.
+ * 大型存储会按分区并行扫描。
+ * <p>
+ * Note: the target is Java 17, so the Vector API and {@code MemorySegment} (both incubating there)
+ * 注意：目标版本为 Java 17，其中 Vector API 与 {@code MemorySegment} 仍处于孵化阶段，
+ * are not used; direct {@link FloatBuffer}s play the role of the off-heap arena.
+ * 因此未使用它们，而是用直接 {@link FloatBuffer} 充当堆外区域。
+ */
+public class OffHeapEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+    private static final int DEFAULT_TEXT_BYTES_PER_SEGMENT = 512;
+    private static final int PARALLEL_SCAN_THRESHOLD = 65_536;
+    private static final int NO_TEXT = -1;
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int dimension;
+    private int size;
+    private int capacity;
+
+    // rows [i * rowsPerChunk, (i + 1) * rowsPerChunk) live in chunks[i], only the last chunk may be smaller
+    // 第 [i * rowsPerChunk, (i + 1) * rowsPerChunk) 行保存在 chunks[i] 中，只有最后一块可以更小
+    private FloatBuffer[] chunks;
+    private int rowsPerChunk;
+    private int vectorCapacity;
+    private float[] inverseNorms;
+
+    private ByteBuffer texts;
+    private int textBytesUsed;
+    private int textBytesGarbage;
+    private int[] textOffsets;
+    private int[] textLengths;
+
+    private Metadata[] metadata;
+    private String[] ids;
+    private final Map<String, Integer> rowById = new HashMap<>();
+
+    public OffHeapEmbeddingStore() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public OffHeapEmbeddingStore(int initialCapacity) {
+        this.capacity = Math.max(1, initialCapacity);
+        this.inverseNorms = new float[capacity];
+        this.textOffsets = new int[capacity];
+        this.textLengths = new int[capacity];
+        this.metadata = new Metadata[capacity];
+        this.ids = new String[capacity];
+        this.texts = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE, (long) capacity * DEFAULT_TEXT_BYTES_PER_SEGMENT));
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = randomUUID();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = randomUUID();
+        addAll(List.of(id), List.of(embedding), textSegment == null ? null : List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        if (embeddings == null || embeddings.isEmpty()) {
+            return;
+        }
+        if (ids.size() != embeddings.size() || (embedded != null && embedded.size() != embeddings.size())) {
+            throw new IllegalArgumentException("The list of ids, embeddings and embedded must have the same size");
+        }
+
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(size + embeddings.size());
+            for (int i = 0; i < embeddings.size(); i++) {
+                String id = ensureNotNull(ids.get(i), "id");
+                Integer existing = rowById.get(id);
+                if (existing != null) {
+                    removeRow(existing);
+                }
+                append(id, embeddings.get(i), embedded == null ? null : embedded.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        ensureNotEmpty(ids, "ids");
+        lock.writeLock().lock();
+        try {
+            for (String id : ids) {
+                Integer row = rowById.get(id);
+                if (row != null) {
+                    removeRow(row);
+                }
+            }
+            compactTextsIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        ensureNotNull(filter, "filter");
+        lock.writeLock().lock();
+        try {
+            for (int row = size - 1; row >= 0; row--) {
+                if (filter.test(metadataAt(row))) {
+                    removeRow(row);
+                }
+            }
+            compactTextsIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(ids, 0, size, null);
+            Arrays.fill(metadata, 0, size, null);
+            rowById.clear();
+            size = 0;
+            textBytesUsed = 0;
+            textBytesGarbage = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        lock.readLock().lock();
+        try {
+            if (size == 0) {
+                return new EmbeddingSearchResult<>(List.of());
+            }
+            float[] vector = request.queryEmbedding().vector();
+            if (vector.length != dimension) {
+                throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+            }
+            float[] query = normalizedCopy(vector);
+            // never allocate more heap slots than there are rows, whatever maxResults the caller asks for
+            // 无论调用方要求多大的 maxResults，堆的容量都不超过行数
+            int maxResults = Math.min(request.maxResults(), size);
+            double minScore = request.minScore();
+            Filter filter = request.filter();
+
+            TopK topK;
+            if (size < PARALLEL_SCAN_THRESHOLD) {
+                topK = scan(query, 0, size, maxResults, minScore, filter);
+            } else {
+                int partitions = Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), size / PARALLEL_SCAN_THRESHOLD + 1));
+                int partitionSize = (size + partitions - 1) / partitions;
+                // every partition fills its own TopK, which are then merged pairwise
+                // 每个分区填充自己的 TopK，然后两两合并
+                topK = IntStream.range(0, partitions).parallel()
+                        .mapToObj(p -> scan(query, (int) Math.min(size, (long) p * partitionSize),
+                                (int) Math.min(size, (long) (p + 1) * partitionSize), maxResults, minScore, filter))
+                        .reduce(TopK::merge)
+                        .orElseGet(() -> new TopK(maxResults));
+            }
+            return new EmbeddingSearchResult<>(toMatches(topK));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of embeddings currently held by the store.
+     * 当前存储中的嵌入数量。
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate number of off-heap bytes reserved for vectors and texts.
+     * 为向量和文本预留的堆外字节数（近似值）。
+     */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            long vectorBytes = (long) vectorCapacity * dimension * Float.BYTES;
+            return vectorBytes + texts.capacity();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private TopK scan(float[] query, int from, int to, int maxResults, double minScore, Filter filter) {
+        TopK topK = new TopK(maxResults);
+        int dimension = this.dimension;
+        for (int row = from; row < to; row++) {
+            if (filter != null && !filter.test(metadataAt(row))) {
+                continue;
+            }
+            double cosine = dot(chunks[row / rowsPerChunk], offsetInChunk(row), query, dimension) * inverseNorms[row];
+            double score = RelevanceScore.fromCosineSimilarity(cosine);
+            if (score >= minScore) {
+                topK.offer(row, score);
+            }
+        }
+        return topK;
+    }
+
+    private static float dot(FloatBuffer vectors, int offset, float[] query, int dimension) {
+        // four independent accumulators let the JIT pipeline the multiply-adds
+        // 四个独立累加器让 JIT 能够流水线化乘加运算
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        int upperBound = dimension & ~3;
+        for (; i < upperBound; i += 4) {
+            s0 += vectors.get(offset + i) * query[i];
+            s1 += vectors.get(offset + i + 1) * query[i + 1];
+            s2 += vectors.get(offset + i + 2) * query[i + 2];
+            s3 += vectors.get(offset + i + 3) * query[i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += vectors.get(offset + i) * query[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    private List<EmbeddingMatch<TextSegment>> toMatches(TopK topK) {
+        topK.sortDescending();
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(topK.count);
+        for (int i = 0; i < topK.count; i++) {
+            int row = topK.rows[i];
+            matches.add(new EmbeddingMatch<>(topK.scores[i], ids[row], Embedding.from(vectorAt(row)), segmentAt(row)));
+        }
+        return matches;
+    }
+
+    private void append(String id, Embedding embedding, TextSegment segment) {
+        float[] vector = embedding.vector();
+        if (dimension == 0) {
+            dimension = vector.length;
+            rowsPerChunk = Math.max(1, MAX_CHUNK_BYTES / Float.BYTES / dimension);
+            chunks = new FloatBuffer[0];
+            ensureVectorCapacity(capacity);
+        } else if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+        }
+
+        int row = size++;
+        chunks[row / rowsPerChunk].put(offsetInChunk(row), vector);
+        inverseNorms[row] = inverseNorm(vector);
+        ids[row] = id;
+        rowById.put(id, row);
+
+        if (segment == null) {
+            textOffsets[row] = 0;
+            textLengths[row] = NO_TEXT;
+            metadata[row] = null;
+        } else {
+            byte[] bytes = segment.text().getBytes(UTF_8);
+            ensureTextCapacity((long) textBytesUsed + bytes.length);
+            texts.put(textBytesUsed, bytes);
+            textOffsets[row] = textBytesUsed;
+            textLengths[row] = bytes.length;
+            textBytesUsed += bytes.length;
+            metadata[row] = segment.metadata().toMap().isEmpty() ? null : segment.metadata().copy();
+        }
+    }
+
+    private void removeRow(int row) {
+        rowById.remove(ids[row]);
+        if (textLengths[row] > 0) {
+            textBytesGarbage += textLengths[row];
+        }
+        int last = --size;
+        if (row != last) {
+            // move the last row into the gap so the live rows stay contiguous
+            // 把最后一行移入空位，使有效行保持连续
+            float[] lastVector = vectorAt(last);
+            chunks[row / rowsPerChunk].put(offsetInChunk(row), lastVector);
+            inverseNorms[row] = inverseNorms[last];
+            textOffsets[row] = textOffsets[last];
+            textLengths[row] = textLengths[last];
+            metadata[row] = metadata[last];
+            ids[row] = ids[last];
+            rowById.put(ids[row], row);
+        }
+        ids[last] = null;
+        metadata[last] = null;
+    }
+
+    private void compactTextsIfNeeded() {
+        if (textBytesGarbage == 0 || textBytesGarbage < textBytesUsed / 2) {
+            return;
+        }
+        ByteBuffer compacted = ByteBuffer.allocateDirect(Math.max(texts.capacity() / 2, textBytesUsed - textBytesGarbage + 1));
+        int position = 0;
+        for (int row = 0; row < size; row++) {
+            int length = textLengths[row];
+            if (length > 0) {
+                compacted.put(position, texts, textOffsets[row], length);
+            }
+            textOffsets[row] = position;
+            position += Math.max(length, 0);
+        }
+        texts = compacted;
+        textBytesUsed = position;
+        textBytesGarbage = 0;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, (long) capacity * 2));
+        if (chunks != null) {
+            ensureVectorCapacity(newCapacity);
+        }
+        inverseNorms = Arrays.copyOf(inverseNorms, newCapacity);
+        textOffsets = Arrays.copyOf(textOffsets, newCapacity);
+        textLengths = Arrays.copyOf(textLengths, newCapacity);
+        metadata = Arrays.copyOf(metadata, newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+        capacity = newCapacity;
+    }
+
+    private void ensureVectorCapacity(int required) {
+        while (vectorCapacity < required) {
+            int last = chunks.length - 1;
+            int lastRows = last < 0 ? rowsPerChunk : chunks[last].capacity() / dimension;
+            if (lastRows < rowsPerChunk) {
+                // grow the last chunk, small stores never allocate a whole chunk
+                // 扩大最后一块，小型存储永远不会分配一整块
+                int grownRows = (int) Math.min(rowsPerChunk, Math.max(2L * lastRows, required - (long) last * rowsPerChunk));
+                FloatBuffer grown = allocateChunk(grownRows);
+                grown.put(0, chunks[last], 0, lastRows * dimension);
+                chunks[last] = grown;
+                vectorCapacity += grownRows - lastRows;
+            } else {
+                int newRows = (int) Math.min(rowsPerChunk, Math.max(DEFAULT_INITIAL_CAPACITY, (long) required - vectorCapacity));
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunks.length - 1] = allocateChunk(newRows);
+                vectorCapacity += newRows;
+            }
+        }
+    }
+
+    private FloatBuffer allocateChunk(int rows) {
+        return ByteBuffer.allocateDirect(rows * dimension * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+
+    private int offsetInChunk(int row) {
+        return (row % rowsPerChunk) * dimension;
+    }
+
+    private void ensureTextCapacity(long required) {
+        if (required <= texts.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("The segment texts exceed the 2 GB text arena of this store");
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, 2L * texts.capacity())));
+        grown.put(0, texts, 0, textBytesUsed);
+        texts = grown;
+    }
+
+    private float[] vectorAt(int row) {
+        float[] vector = new float[dimension];
+        chunks[row / rowsPerChunk].get(offsetInChunk(row), vector);
+        return vector;
+    }
+
+    private TextSegment segmentAt(int row) {
+        int length = textLengths[row];
+        if (length == NO_TEXT) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        texts.get(textOffsets[row], bytes);
+        return TextSegment.from(new String(bytes, UTF_8), metadataAt(row));
+    }
+
+    private Metadata metadataAt(int row) {
+        Metadata value = metadata[row];
+        return value == null ? new Metadata() : value;
+    }
+
+    private static float inverseNorm(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return sum == 0 ? 0f : (float) (1.0 / Math.sqrt(sum));
+    }
+
+    private static float[] normalizedCopy(float[] vector) {
+        float[] copy = vector.clone();
+        float inverseNorm = inverseNorm(copy);
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] *= inverseNorm;
+        }
+        return copy;
+    }
+
+    /**
+     * Fixed-size min-heap of (row, score) pairs kept in primitive arrays.
+     * 基于基本类型数组的定长 (row, score) 最小堆。
+     */
+    private static final class TopK {
+
+        private final int[] rows;
+        private final double[] scores;
+        private int count;
+
+        TopK(int k) {
+            this.rows = new int[k];
+            this.scores = new double[k];
+        }
+
+        void offer(int row, double score) {
+            if (count < rows.length) {
+                rows[count] = row;
+                scores[count] = score;
+                siftUp(count++);
+            } else if (rows.length > 0 && score > scores[0]) {
+                rows[0] = row;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        TopK merge(TopK other) {
+            for (int i = 0; i < other.count; i++) {
+                offer(other.rows[i], other.scores[i]);
+            }
+            return this;
+        }
+
+        void sortDescending() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+            int[] sortedRows = new int[count];
+            double[] sortedScores = new double[count];
+            for (int i = 0; i < count; i++) {
+                sortedRows[i] = rows[order[i]];
+                sortedScores[i] = scores[order[i]];
+            }
+            System.arraycopy(sortedRows, 0, rows, 0, count);
+            System.arraycopy(sortedScores, 0, scores, 0, count);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (scores[parent] <= scores[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                int right = left + 1;
+                int smallest = i;
+                if (left < count && scores[left] < scores[smallest]) {
+                    smallest = left;
+                }
+                if (right < count && scores[right] < scores[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int row = rows[a];
+            rows[a] = rows[b];
+            rows[b] = row;
+            double score = scores[a];
+            scores[a] = scores[b];
+            scores[b] = score;
+        }
+    }
+}
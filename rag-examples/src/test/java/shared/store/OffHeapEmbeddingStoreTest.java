@@ -0,0 +1,118 @@
+package shared.store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class OffHeapEmbeddingStoreTest {
+
+    private static final int DIMENSION = 32;
+
+    @Test
+    void should_return_same_matches_as_in_memory_store_when_scanning_in_parallel() {
+
+        // given: enough rows for the parallel scan
+        int rows = 140_000;
+        Random random = new Random(42);
+        List<String> ids = new ArrayList<>(rows);
+        List<Embedding> embeddings = new ArrayList<>(rows);
+        List<TextSegment> segments = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            ids.add("id-" + i);
+            embeddings.add(randomEmbedding(random));
+            segments.add(TextSegment.from("segment " + i));
+        }
+        OffHeapEmbeddingStore offHeapStore = new OffHeapEmbeddingStore();
+        offHeapStore.addAll(ids, embeddings, segments);
+        InMemoryEmbeddingStore<TextSegment> inMemoryStore = new InMemoryEmbeddingStore<>();
+        inMemoryStore.addAll(ids, embeddings, segments);
+
+        for (int query = 0; query < 20; query++) {
+            EmbeddingSearchRequest request = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(randomEmbedding(random))
+                    .maxResults(10)
+                    .build();
+
+            // when
+            List<EmbeddingMatch<TextSegment>> actual = search(offHeapStore, request);
+            List<EmbeddingMatch<TextSegment>> expected = search(inMemoryStore, request);
+
+            // then
+            assertThat(actual).extracting(EmbeddingMatch::embeddingId)
+                    .containsExactlyElementsOf(expected.stream().map(EmbeddingMatch::embeddingId).toList());
+            for (int i = 0; i < expected.size(); i++) {
+                assertThat(actual.get(i).score()).isCloseTo(expected.get(i).score(), within(1e-5));
+                assertThat(actual.get(i).embedded().text()).isEqualTo(expected.get(i).embedded().text());
+            }
+        }
+    }
+
+    @Test
+    void should_keep_vectors_intact_when_growing_and_removing() {
+
+        // given
+        OffHeapEmbeddingStore store = new OffHeapEmbeddingStore(1);
+        Random random = new Random(7);
+        List<Embedding> embeddings = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Embedding embedding = randomEmbedding(random);
+            embeddings.add(embedding);
+            ids.add(store.add(embedding, TextSegment.from("segment " + i)));
+        }
+
+        // when
+        store.removeAll(ids.subList(0, 2_500));
+
+        // then
+        for (int i = 2_500; i < 5_000; i += 250) {
+            EmbeddingMatch<TextSegment> best = store.search(EmbeddingSearchRequest.builder()
+                    .queryEmbedding(embeddings.get(i))
+                    .maxResults(1)
+                    .build()).matches().get(0);
+            assertThat(best.embeddingId()).isEqualTo(ids.get(i));
+            assertThat(best.embedding().vector()).containsExactly(embeddings.get(i).vector());
+        }
+        assertThat(store.size()).isEqualTo(2_500);
+    }
+
+    @Test
+    void should_reject_query_with_different_dimension() {
+
+        // given
+        OffHeapEmbeddingStore store = new OffHeapEmbeddingStore(1);
+        store.add(randomEmbedding(new Random(3)));
+
+        // when-then
+        assertThatThrownBy(() -> store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(new float[DIMENSION + 1]))
+                .maxResults(Integer.MAX_VALUE)
+                .build()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Expected dimension " + DIMENSION + " but got " + (DIMENSION + 1));
+    }
+
+    private static List<EmbeddingMatch<TextSegment>> search(EmbeddingStore<TextSegment> store, EmbeddingSearchRequest request) {
+        return store.search(request).matches();
+    }
+
+    private static Embedding randomEmbedding(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return Embedding.from(vector);
+    }
+}